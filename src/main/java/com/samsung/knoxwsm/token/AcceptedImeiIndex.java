@@ -0,0 +1,197 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Local record of the IMEIs Knox Guard has already accepted, so a re-run of a growing fleet list uploads only
+ * the devices that are new since the last run. The index is fed from {@code GET /devices/uploads/{id}} results
+ * ({@link #record(UploadDetail)}); an upload that has not finished yet is remembered as pending and resolved on
+ * the next run before the delta is computed.
+ * <p>
+ * On disk the accepted IMEIs are a sorted {@code long[]} (8 bytes each) after a small header, followed by the
+ * pending upload IDs. Loading maps the file and bulk-copies the array; {@link #save()} writes a temporary file
+ * and atomically renames it over the old one, so an interrupted run never leaves a truncated index behind.
+ */
+public final class AcceptedImeiIndex {
+    private static final int MAGIC = 0x4B584149; // "KXAI"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private final Path file;
+    private SortedLongIndex accepted;
+    private LongHashSet added = new LongHashSet();
+    private final Set<String> pending = new LinkedHashSet<>();
+
+    private AcceptedImeiIndex(Path file, SortedLongIndex accepted, List<String> pending) {
+        this.file = file;
+        this.accepted = accepted;
+        this.pending.addAll(pending);
+    }
+
+    /** The index stored at {@code file}, or an empty one when the file does not exist yet. */
+    public static AcceptedImeiIndex load(Path file) throws IOException {
+        if (!Files.exists(file)) return new AcceptedImeiIndex(file, SortedLongIndex.empty(), List.of());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) throw new IOException("Accepted IMEI index truncated: " + file);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC) throw new IOException("Not an accepted IMEI index: " + file);
+            int version = buffer.getInt();
+            if (version != VERSION) throw new IOException("Unsupported accepted IMEI index version " + version + ": " + file);
+            long count = buffer.getLong();
+            if (count < 0 || count > Integer.MAX_VALUE - 8 || HEADER_BYTES + count * Long.BYTES + Integer.BYTES > size) {
+                throw new IOException("Accepted IMEI index truncated: " + file);
+            }
+            long[] imeis = new long[(int) count];
+            LongBuffer longs = buffer.slice(HEADER_BYTES, (int) count * Long.BYTES).order(buffer.order()).asLongBuffer();
+            longs.get(imeis);
+            buffer.position(HEADER_BYTES + (int) count * Long.BYTES);
+            int pendingCount = buffer.getInt();
+            String[] ids = new String[pendingCount];
+            for (int i = 0; i < pendingCount; i++) {
+                byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(bytes);
+                ids[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return new AcceptedImeiIndex(file, SortedLongIndex.ofSorted(imeis, imeis.length), List.of(ids));
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            throw new IOException("Corrupt accepted IMEI index: " + file, e);
+        }
+    }
+
+    public Path getFile() { return file; }
+
+    /** Every IMEI recorded as accepted, including those recorded since the index was loaded. */
+    public SortedLongIndex accepted() {
+        if (!added.isEmpty()) {
+            accepted = accepted.union(SortedLongIndex.ofUnsorted(added.toArray(), true));
+            added = new LongHashSet();
+        }
+        return accepted;
+    }
+
+    /** The IMEIs of {@code candidates} that have not been accepted yet. */
+    public SortedLongIndex delta(SortedLongIndex candidates) {
+        return candidates.difference(accepted());
+    }
+
+    /** Upload IDs submitted but not yet seen in a terminal state, in submission order. */
+    public List<String> pendingUploadIds() {
+        return List.copyOf(pending);
+    }
+
+    /** Remember an upload whose outcome is not known yet. */
+    public void addPending(String uploadId) {
+        if (uploadId != null && !uploadId.isBlank()) pending.add(uploadId);
+    }
+
+    /**
+     * Take in the outcome of an upload. A terminal upload stops being pending and its accepted devices are
+     * added; a non-terminal one is (kept) pending. Returns the number of devices newly recorded as accepted.
+     */
+    public int record(UploadDetail detail) {
+        if (!detail.isTerminal()) {
+            addPending(detail.uploadId());
+            return 0;
+        }
+        pending.remove(detail.uploadId());
+        int recorded = 0;
+        for (UploadDetail.DeviceStatus device : detail.devices()) {
+            if (!isAccepted(device)) continue;
+            long imei = ImeiFileReader.parse(device.deviceId());
+            if (imei >= 0 && !accepted.contains(imei) && added.add(imei)) recorded++;
+        }
+        return recorded;
+    }
+
+    /** A device entry without an error code whose status is a success status (SUCCESS, COMPLETED, ACCEPTED). */
+    static boolean isAccepted(UploadDetail.DeviceStatus device) {
+        if (device.errorCode() != null && !device.errorCode().isBlank()) return false;
+        if (device.status() == null) return false;
+        return switch (device.status().trim().toLowerCase()) {
+            case "success", "succeeded", "completed", "accepted" -> true;
+            default -> false;
+        };
+    }
+
+    /** Write the index to a sibling temporary file and rename it over {@link #getFile()}. */
+    public void save() throws IOException {
+        SortedLongIndex imeis = accepted();
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).putLong(imeis.size());
+                channel.write(header.flip());
+                ByteBuffer chunk = ByteBuffer.allocateDirect(1 << 16);
+                for (int i = 0; i < imeis.size(); i++) {
+                    if (!chunk.hasRemaining()) writeFully(channel, chunk);
+                    chunk.putLong(imeis.get(i));
+                }
+                writeFully(channel, chunk);
+                OutputStream out = Channels.newOutputStream(channel);
+                DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+                data.writeInt(pending.size());
+                for (String id : pending) {
+                    byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+                    data.writeShort(bytes.length);
+                    data.write(bytes);
+                }
+                data.flush();
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "AcceptedImeiIndex[" + file + ", accepted=" + (accepted.size() + added.size()) + ", pending=" + pending.size() + "]";
+    }
+}
@@ -0,0 +1,40 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Typed access token response ({@code POST /ses/token}, {@code /ses/token/refresh}).
+ * {@code expiresIn} is the server-reported lifetime in seconds and may be null if omitted.
+ * {@link #toString()} redacts both tokens so instances are safe to log.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record AccessToken(String accessToken, String refreshToken, Long expiresIn) {
+    @Override
+    public String toString() {
+        return "AccessToken[accessToken=" + redact(accessToken) + ", refreshToken=" + redact(refreshToken) + ", expiresIn=" + expiresIn + "]";
+    }
+
+    private static String redact(String token) {
+        return token == null ? null : "***(" + token.length() + ")";
+    }
+}
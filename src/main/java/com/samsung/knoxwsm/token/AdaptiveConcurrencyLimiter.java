@@ -0,0 +1,204 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.InterruptedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * AIMD concurrency limit for bulk Knox calls, shared by every client on a {@link KnoxTransport}.
+ * <ul>
+ *   <li>Additive increase: each successful call while the limit is actually being used adds {@code 1/limit},
+ *       i.e. roughly +1 per round of calls.</li>
+ *   <li>Multiplicative decrease: a 429/5xx/timeout ({@link Outcome#OVERLOAD}) multiplies the limit by
+ *       {@code backoffRatio}. At most one decrease is applied per smoothed round-trip so a burst of rejections
+ *       does not collapse it.</li>
+ *   <li>Latency: per {@link KnoxOperation}, a smoothed RTT above {@code latencyTolerance} x that operation's recent
+ *       minimum (and at least {@code minExcessMillis} above it) means queueing is building up upstream; the limit
+ *       then stops growing. Latency alone never decreases it, so jitter on fast, healthy calls cannot shrink it.</li>
+ * </ul>
+ * The limit therefore converges on whatever concurrency the tenant's quota sustains.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+    // The latency baseline is the minimum over the current and previous window of this many samples per operation,
+    // so it follows an upstream that became permanently slower instead of remembering one lucky sample forever.
+    private static final int BASELINE_WINDOW_SAMPLES = 100;
+
+    /** How a finished call should influence the limit. */
+    public enum Outcome { SUCCESS, OVERLOAD, IGNORE }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+    private final long minExcessNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final Map<KnoxOperation, Latency> latencies = new EnumMap<>(KnoxOperation.class);
+    private final Latency unclassified = new Latency();
+    private double limit;
+    private int inFlight;
+    private double smoothedRttNanos;
+    private long lastDecreaseNanos;
+
+    /** Smoothed RTT and windowed minimum of one operation. */
+    private static final class Latency {
+        double smoothedNanos;
+        long windowMinNanos = Long.MAX_VALUE;
+        long previousWindowMinNanos = Long.MAX_VALUE;
+        int windowSamples;
+
+        void add(long rttNanos) {
+            smoothedNanos = smoothedNanos == 0 ? rttNanos : 0.9 * smoothedNanos + 0.1 * rttNanos;
+            windowMinNanos = Math.min(windowMinNanos, rttNanos);
+            if (++windowSamples == BASELINE_WINDOW_SAMPLES) {
+                previousWindowMinNanos = windowMinNanos;
+                windowMinNanos = Long.MAX_VALUE;
+                windowSamples = 0;
+            }
+        }
+
+        long baselineNanos() { return Math.min(windowMinNanos, previousWindowMinNanos); }
+    }
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, double latencyTolerance) {
+        this(initialLimit, minLimit, maxLimit, backoffRatio, latencyTolerance, 5);
+    }
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, double latencyTolerance,
+                                      long minExcessMillis) {
+        if (minLimit < 1 || maxLimit < minLimit) throw new IllegalArgumentException("require 1 <= minLimit <= maxLimit");
+        if (backoffRatio <= 0 || backoffRatio >= 1) throw new IllegalArgumentException("backoffRatio must be in (0,1)");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.minExcessNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, minExcessMillis));
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * From env/.env, or null when KNOX_LIMITER_ENABLED=false. KNOX_LIMITER_INITIAL (20), KNOX_LIMITER_MIN (1),
+     * KNOX_LIMITER_MAX (200), KNOX_LIMITER_BACKOFF_PERCENT (70), KNOX_LIMITER_LATENCY_TOLERANCE_PERCENT (200),
+     * KNOX_LIMITER_LATENCY_MIN_EXCESS_MS (5).
+     */
+    public static AdaptiveConcurrencyLimiter fromConfig() {
+        if (!Boolean.parseBoolean(Config.get("KNOX_LIMITER_ENABLED", "true"))) return null;
+        return new AdaptiveConcurrencyLimiter(
+                (int) Config.getLong("KNOX_LIMITER_INITIAL", 20),
+                (int) Config.getLong("KNOX_LIMITER_MIN", 1),
+                (int) Config.getLong("KNOX_LIMITER_MAX", 200),
+                Config.getLong("KNOX_LIMITER_BACKOFF_PERCENT", 70) / 100.0,
+                Config.getLong("KNOX_LIMITER_LATENCY_TOLERANCE_PERCENT", 200) / 100.0,
+                Config.getLong("KNOX_LIMITER_LATENCY_MIN_EXCESS_MS", 5));
+    }
+
+    /** Block until a slot is free. */
+    public void acquire() throws InterruptedIOException {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                released.await();
+            }
+            inFlight++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a concurrency slot");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** As {@link #acquire()}, but give up and return false after {@code timeoutMillis}. */
+    public boolean tryAcquire(long timeoutMillis) throws InterruptedIOException {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis));
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                if (remainingNanos <= 0) return false;
+                remainingNanos = released.awaitNanos(remainingNanos);
+            }
+            inFlight++;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a concurrency slot");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Return a slot acquired with {@link #acquire()} and feed the call's latency and outcome into the limit. */
+    public void release(long rttNanos, Outcome outcome) {
+        release(null, rttNanos, outcome);
+    }
+
+    /** As {@link #release(long, Outcome)}, judging latency against {@code operation}'s own baseline. */
+    public void release(KnoxOperation operation, long rttNanos, Outcome outcome) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (outcome != Outcome.IGNORE) adjust(operation, rttNanos, outcome);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adjust(KnoxOperation operation, long rttNanos, Outcome outcome) {
+        smoothedRttNanos = smoothedRttNanos == 0 ? rttNanos : 0.9 * smoothedRttNanos + 0.1 * rttNanos;
+        long now = System.nanoTime();
+        if (outcome == Outcome.OVERLOAD) {
+            if (now - lastDecreaseNanos >= smoothedRttNanos) {
+                double before = limit;
+                limit = Math.max(minLimit, limit * backoffRatio);
+                lastDecreaseNanos = now;
+                log.debug("Concurrency limit {} -> {} (operation={} rttMs={})", (int) before, (int) limit, operation, TimeUnit.NANOSECONDS.toMillis(rttNanos));
+            }
+            return;
+        }
+        Latency latency = operation == null ? unclassified : latencies.computeIfAbsent(operation, k -> new Latency());
+        latency.add(rttNanos);
+        long baseline = latency.baselineNanos();
+        boolean queueing = latency.smoothedNanos > baseline * latencyTolerance && latency.smoothedNanos - baseline > minExcessNanos;
+        // Only grow while the limit is actually being exercised and upstream latency is not building up
+        if (!queueing && inFlight + 1 >= limit / 2) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try { return (int) limit; } finally { lock.unlock(); }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try { return inFlight; } finally { lock.unlock(); }
+    }
+}
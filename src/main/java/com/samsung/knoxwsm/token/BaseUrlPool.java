@@ -0,0 +1,229 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.LongSupplier;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Ordered list of equivalent base URLs (gateways or proxies in front of the same Knox API) with a rolling
+ * latency and error score per URL. Requests are built against the first (primary) URL and tagged with the
+ * pool; {@link KnoxTransport} asks {@link #select()} which URL each attempt should use, rewrites the request
+ * and reports the outcome through {@link #record}.
+ * <ul>
+ *   <li>A gateway-level failure (connection refused or unresolvable host, 502, 503, 504) ejects the URL for a
+ *       cooldown that doubles with each consecutive failure (at most 8x). Other errors (500, read timeouts)
+ *       come from the API behind every URL, so they only raise the URL's error rate.</li>
+ *   <li>Traffic goes to the first URL in list order whose score is within {@code tolerance} of the best one,
+ *       so the primary is kept unless another URL is clearly faster or healthier.</li>
+ *   <li>Once per {@code probeInterval} one attempt goes to the least recently measured other URL, so a
+ *       recovered or faster URL is noticed without a separate health check.</li>
+ * </ul>
+ */
+public class BaseUrlPool {
+    private static final Logger log = LoggerFactory.getLogger(BaseUrlPool.class);
+    private static final double ALPHA = 0.3;
+    // An error rate of 1 makes a URL look five times slower than its latency.
+    private static final double ERROR_WEIGHT = 4;
+    private static final int MAX_COOLDOWN_SHIFT = 3;
+
+    /** Cooldown after a failure, probe interval and how much worse than the best URL the preferred one may be. */
+    public record Settings(long cooldownMillis, long probeIntervalMillis, double tolerance) {
+        /** KNOX_FAILOVER_COOLDOWN_MS (30000), KNOX_FAILOVER_PROBE_INTERVAL_MS (10000), KNOX_FAILOVER_TOLERANCE_PERCENT (150). */
+        public static Settings fromConfig() {
+            return new Settings(
+                    Config.getLong("KNOX_FAILOVER_COOLDOWN_MS", 30_000),
+                    Config.getLong("KNOX_FAILOVER_PROBE_INTERVAL_MS", 10_000),
+                    Config.getLong("KNOX_FAILOVER_TOLERANCE_PERCENT", 150) / 100.0);
+        }
+    }
+
+    /** How an attempt against one URL went. */
+    public enum Outcome {
+        /** Answered without a server error; updates the latency. */
+        SUCCESS,
+        /** Answered with, or failed on, an error that any URL would have produced; raises the error rate. */
+        ERROR,
+        /** The URL itself is unreachable or its gateway failed; raises the error rate and ejects it. */
+        GATEWAY_FAILURE
+    }
+
+    /** One base URL and its rolling statistics (guarded by the pool). */
+    public static final class Endpoint {
+        private final HttpUrl url;
+        private final List<String> segments;
+        private final String baseUrl;
+        private double latencyMillis = -1;
+        private double errorRate;
+        private int consecutiveFailures;
+        private long ejectedUntil;
+        private long lastSampleAt = Long.MIN_VALUE;
+
+        private Endpoint(String baseUrl) {
+            this.url = HttpUrl.get(baseUrl);
+            this.segments = pathSegments(url);
+            String canonical = url.toString();
+            this.baseUrl = canonical.endsWith("/") ? canonical.substring(0, canonical.length() - 1) : canonical;
+        }
+
+        public String baseUrl() { return baseUrl; }
+
+        private boolean sampled() { return latencyMillis >= 0; }
+
+        private double score() { return (latencyMillis + 1) * (1 + ERROR_WEIGHT * errorRate); }
+    }
+
+    private final String name;
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final Settings settings;
+    private final KnoxMetrics metrics;
+    private final LongSupplier clock;
+    private long nextProbeAt;
+    private Endpoint active;
+
+    public BaseUrlPool(String name, List<String> baseUrls, Settings settings, KnoxMetrics metrics) {
+        this(name, baseUrls, settings, metrics, System::currentTimeMillis);
+    }
+
+    BaseUrlPool(String name, List<String> baseUrls, Settings settings, KnoxMetrics metrics, LongSupplier clock) {
+        if (baseUrls.isEmpty()) throw new IllegalArgumentException("at least one base URL required");
+        for (String baseUrl : baseUrls) endpoints.add(new Endpoint(baseUrl));
+        this.name = name;
+        this.settings = settings;
+        this.metrics = metrics;
+        this.clock = clock;
+        this.active = endpoints.get(0);
+        this.nextProbeAt = clock.getAsLong() + settings.probeIntervalMillis();
+        metrics.gauge("failover." + name + ".active", () -> current().baseUrl);
+    }
+
+    public String name() { return name; }
+    public int size() { return endpoints.size(); }
+    /** The URL requests are built against, in {@link HttpUrl}'s canonical form without a trailing slash. */
+    public String primary() { return endpoints.get(0).baseUrl; }
+
+    public List<String> baseUrls() {
+        List<String> out = new ArrayList<>();
+        for (Endpoint endpoint : endpoints) out.add(endpoint.baseUrl);
+        return Collections.unmodifiableList(out);
+    }
+
+    /**
+     * True if {@code url} was built against the primary URL: same scheme, host and port, and a path that starts
+     * with the primary's path segments ({@code /kcs} covers {@code /kcs/v1} but not {@code /kcs2}).
+     */
+    public boolean covers(HttpUrl url) {
+        Endpoint primary = endpoints.get(0);
+        return url.scheme().equals(primary.url.scheme()) && url.host().equals(primary.url.host())
+                && url.port() == primary.url.port() && startsWith(url.encodedPathSegments(), primary.segments);
+    }
+
+    /** URL currently preferred for regular traffic. */
+    public synchronized Endpoint current() { return active; }
+
+    /** Endpoint for the next attempt: the preferred one, or occasionally a probe of another. */
+    public synchronized Endpoint select() {
+        long now = clock.getAsLong();
+        Endpoint preferred = preferred(now);
+        if (preferred != active) {
+            log.info("Base URL pool {} switching {} -> {}", name, active.baseUrl, preferred.baseUrl);
+            metrics.increment("failover." + name + ".switches");
+            active = preferred;
+        }
+        if (endpoints.size() > 1 && now >= nextProbeAt) {
+            nextProbeAt = now + settings.probeIntervalMillis();
+            Endpoint stalest = null;
+            for (Endpoint e : endpoints) {
+                if (e != preferred && e.ejectedUntil <= now && (stalest == null || e.lastSampleAt < stalest.lastSampleAt)) stalest = e;
+            }
+            if (stalest != null) {
+                metrics.increment("failover." + name + ".probes");
+                return stalest;
+            }
+        }
+        return preferred;
+    }
+
+    private Endpoint preferred(long now) {
+        double best = Double.MAX_VALUE;
+        for (Endpoint e : endpoints) {
+            if (e.ejectedUntil <= now && e.sampled()) best = Math.min(best, e.score());
+        }
+        for (Endpoint e : endpoints) {
+            if (e.ejectedUntil > now) continue;
+            // unmeasured URLs only take regular traffic when nothing measured is available
+            if (e.sampled() ? e.score() <= best * settings.tolerance() : best == Double.MAX_VALUE) return e;
+        }
+        // everything ejected: use the one that comes back first
+        return endpoints.stream().min(Comparator.comparingLong(e -> e.ejectedUntil)).orElseThrow();
+    }
+
+    /** Feed one attempt's outcome; gateway failures eject the endpoint, successes update its latency. */
+    public synchronized void record(Endpoint endpoint, long elapsedMillis, Outcome outcome) {
+        long now = clock.getAsLong();
+        endpoint.lastSampleAt = now;
+        endpoint.errorRate += ALPHA * ((outcome == Outcome.SUCCESS ? 0 : 1) - endpoint.errorRate);
+        if (outcome == Outcome.GATEWAY_FAILURE) {
+            endpoint.consecutiveFailures++;
+            long cooldown = settings.cooldownMillis() << Math.min(endpoint.consecutiveFailures - 1, MAX_COOLDOWN_SHIFT);
+            endpoint.ejectedUntil = now + cooldown;
+            metrics.increment("failover." + name + ".ejections");
+            log.warn("Base URL {} ejected for {} ms after {} consecutive failure(s)", endpoint.baseUrl, cooldown, endpoint.consecutiveFailures);
+        } else {
+            endpoint.consecutiveFailures = 0;
+            if (outcome == Outcome.SUCCESS) endpoint.latencyMillis = endpoint.sampled() ? endpoint.latencyMillis + ALPHA * (elapsedMillis - endpoint.latencyMillis) : elapsedMillis;
+        }
+    }
+
+    /** {@code request} (built against the primary URL) pointed at {@code endpoint}; query and fragment are kept. */
+    public Request rewrite(Request request, Endpoint endpoint) {
+        HttpUrl url = request.url();
+        if (endpoint == endpoints.get(0) || !covers(url)) return request;
+        List<String> path = new ArrayList<>(endpoint.segments);
+        List<String> segments = url.encodedPathSegments();
+        path.addAll(segments.subList(endpoints.get(0).segments.size(), segments.size()));
+        HttpUrl target = url.newBuilder()
+                .scheme(endpoint.url.scheme())
+                .host(endpoint.url.host())
+                .port(endpoint.url.port())
+                .encodedPath("/" + String.join("/", path))
+                .build();
+        return request.newBuilder().url(target).build();
+    }
+
+    // encoded path segments without the empty one HttpUrl reports for a trailing slash
+    private static List<String> pathSegments(HttpUrl url) {
+        List<String> segments = new ArrayList<>(url.encodedPathSegments());
+        while (!segments.isEmpty() && segments.get(segments.size() - 1).isEmpty()) segments.remove(segments.size() - 1);
+        return Collections.unmodifiableList(segments);
+    }
+
+    private static boolean startsWith(List<String> segments, List<String> prefix) {
+        return segments.size() >= prefix.size() && segments.subList(0, prefix.size()).equals(prefix);
+    }
+}
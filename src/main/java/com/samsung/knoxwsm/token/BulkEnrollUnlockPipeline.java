@@ -0,0 +1,372 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Two-stage bulk pipeline: every device is enrolled and, as soon as its own enrollment succeeds,
+ * handed to the unlock stage while other devices are still enrolling.
+ * Each stage has its own concurrency limit; a failed enrollment skips that device's unlock.
+ * Per-device results are streamed to a {@link Listener}; {@link #run} returns a {@link Summary}.
+ */
+public class BulkEnrollUnlockPipeline {
+    private static final Logger log = LoggerFactory.getLogger(BulkEnrollUnlockPipeline.class);
+
+    /** Final state of a single device after passing through the pipeline. */
+    public enum Outcome { UNLOCKED, ALREADY_UNLOCKED, ENROLL_FAILED, UNLOCK_FAILED }
+
+    /** Result for one device. {@code enrollment}/{@code unlock} are null when that stage failed or was skipped. */
+    public static final class DeviceResult {
+        private final String imei;
+        private final Outcome outcome;
+        private final Map<String, Object> enrollment;
+        private final Map<String, Object> unlock;
+        private final Exception error;
+        private final long elapsedMillis;
+
+        DeviceResult(String imei, Outcome outcome, Map<String, Object> enrollment, Map<String, Object> unlock, Exception error, long elapsedMillis) {
+            this.imei = imei;
+            this.outcome = outcome;
+            this.enrollment = enrollment;
+            this.unlock = unlock;
+            this.error = error;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public String getImei() { return imei; }
+        public Outcome getOutcome() { return outcome; }
+        public Map<String, Object> getEnrollment() { return enrollment; }
+        public Map<String, Object> getUnlock() { return unlock; }
+        public Exception getError() { return error; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        public boolean isSuccess() { return outcome == Outcome.UNLOCKED || outcome == Outcome.ALREADY_UNLOCKED; }
+    }
+
+    /** Aggregated counts for a finished run. */
+    public static final class Summary {
+        private final int total;
+        private final int unlocked;
+        private final int skipped;
+        private final int enrollFailed;
+        private final int unlockFailed;
+        private final long elapsedMillis;
+        private final List<DeviceResult> failures;
+
+        Summary(int total, int unlocked, int skipped, int enrollFailed, int unlockFailed, long elapsedMillis, List<DeviceResult> failures) {
+            this.total = total;
+            this.unlocked = unlocked;
+            this.skipped = skipped;
+            this.enrollFailed = enrollFailed;
+            this.unlockFailed = unlockFailed;
+            this.elapsedMillis = elapsedMillis;
+            this.failures = Collections.unmodifiableList(failures);
+        }
+
+        public int getTotal() { return total; }
+        public int getUnlocked() { return unlocked; }
+        /** Devices the state store already had as unlocked; no call was made for them. */
+        public int getSkipped() { return skipped; }
+        public int getEnrollFailed() { return enrollFailed; }
+        public int getUnlockFailed() { return unlockFailed; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        public List<DeviceResult> getFailures() { return failures; }
+
+        @Override
+        public String toString() {
+            return "total=" + total + " unlocked=" + unlocked + " skipped=" + skipped + " enrollFailed=" + enrollFailed
+                    + " unlockFailed=" + unlockFailed + " elapsedMs=" + elapsedMillis;
+        }
+    }
+
+    /** Progress callback. Invoked from worker threads, so implementations must be thread-safe. */
+    public interface Listener {
+        /** Called once a device's enrollment succeeded and its unlock has been queued. */
+        default void onEnrolled(String imei) { }
+        /** Called exactly once per device when it leaves the pipeline. */
+        void onDeviceCompleted(DeviceResult result);
+    }
+
+    private final KnoxAuthClient client;
+    private final int enrollConcurrency;
+    private final int unlockConcurrency;
+    private final DeviceStateStore stateStore;
+    private final BulkJournal journal;
+
+    public BulkEnrollUnlockPipeline(KnoxAuthClient client, int enrollConcurrency, int unlockConcurrency) {
+        this(client, enrollConcurrency, unlockConcurrency, null);
+    }
+
+    /**
+     * With a {@code stateStore}, devices it records as unlocked are reported as {@link Outcome#ALREADY_UNLOCKED}
+     * without any call, devices recorded as enrolled go straight to unlock, and every successful enroll and
+     * unlock is recorded. IMEIs that are not 15 valid digits are not tracked.
+     */
+    public BulkEnrollUnlockPipeline(KnoxAuthClient client, int enrollConcurrency, int unlockConcurrency, DeviceStateStore stateStore) {
+        this(client, enrollConcurrency, unlockConcurrency, stateStore, null);
+    }
+
+    /**
+     * With a {@code journal}, every enroll and unlock is journaled (started, then succeeded or failed) and a device
+     * is only reported complete once its success is durable. Operations the journal already has as succeeded,
+     * e.g. from an interrupted run being resumed, are skipped like those in the state store; either may be null.
+     */
+    public BulkEnrollUnlockPipeline(KnoxAuthClient client, int enrollConcurrency, int unlockConcurrency,
+                                    DeviceStateStore stateStore, BulkJournal journal) {
+        if (client == null) throw new IllegalArgumentException("client required");
+        if (enrollConcurrency < 1 || unlockConcurrency < 1) throw new IllegalArgumentException("stage concurrency must be >= 1");
+        this.client = client;
+        this.enrollConcurrency = enrollConcurrency;
+        this.unlockConcurrency = unlockConcurrency;
+        this.stateStore = stateStore;
+        this.journal = journal;
+    }
+
+    /**
+     * Run every IMEI through enroll then unlock. Blocks until all devices have completed.
+     * The source is consumed lazily; at most twice the combined stage concurrency is in flight at once.
+     * A {@link Deadline} current on the calling thread bounds every enroll and unlock call of the run.
+     * @throws IOException if the journal failed: no further devices are started, devices whose success could not be
+     *         made durable are reported as failed, and the run should be resumed from the journal
+     */
+    public Summary run(String accessToken, String clientId, Iterable<String> imeis, Listener listener) throws InterruptedException, IOException {
+        Listener sink = listener == null ? r -> { } : listener;
+        int maxInFlight = 2 * (enrollConcurrency + unlockConcurrency);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicInteger total = new AtomicInteger();
+        AtomicInteger unlocked = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        AtomicInteger enrollFailed = new AtomicInteger();
+        AtomicInteger unlockFailed = new AtomicInteger();
+        List<DeviceResult> failures = Collections.synchronizedList(new ArrayList<>());
+        // First journal commit failure; once set, nothing is durable, so no further calls are issued
+        AtomicReference<IOException> journalFailure = new AtomicReference<>();
+        long start = System.currentTimeMillis();
+
+        ExecutorService enrollPool = Executors.newFixedThreadPool(enrollConcurrency, namedThreads("knox-enroll"));
+        ExecutorService unlockPool = Executors.newFixedThreadPool(unlockConcurrency, namedThreads("knox-unlock"));
+        try {
+            for (String imei : imeis) {
+                inFlight.acquire();
+                if (journalFailure.get() != null) {
+                    inFlight.release();
+                    break;
+                }
+                // Released exactly once per device, however its tasks end, so the drain below cannot hang
+                AtomicBoolean permitHeld = new AtomicBoolean(true);
+                Runnable release = () -> { if (permitHeld.getAndSet(false)) inFlight.release(); };
+                total.incrementAndGet();
+                long deviceStart = System.currentTimeMillis();
+                long tracked = stateStore == null && journal == null ? -1 : ImeiFileReader.parse(imei);
+                if (isDone(tracked, DeviceStateStore.Step.UNLOCKED, BulkJournal.Op.UNLOCK)) {
+                    skipped.incrementAndGet();
+                    complete(new DeviceResult(imei, Outcome.ALREADY_UNLOCKED, null, null, null, 0), sink, failures, release);
+                    continue;
+                }
+                boolean enrolled = isDone(tracked, DeviceStateStore.Step.ENROLLED, BulkJournal.Op.ENROLL);
+                Runnable enrollTask = Deadline.propagate(() -> {
+                    boolean handedOff = false;
+                    try {
+                        Map<String, Object> enrollment = null;
+                        if (journalFailure.get() != null) {
+                            enrollFailed.incrementAndGet();
+                            complete(new DeviceResult(imei, Outcome.ENROLL_FAILED, null, null, journalFailure.get(), System.currentTimeMillis() - deviceStart), sink, failures, release);
+                            return;
+                        }
+                        if (!enrolled) {
+                            journal(tracked, BulkJournal.Op.ENROLL, BulkJournal.Event.STARTED);
+                            try {
+                                enrollment = client.enrollDeviceInKnoxGuard(accessToken, imei, clientId);
+                            } catch (Exception e) {
+                                journal(tracked, BulkJournal.Op.ENROLL, BulkJournal.Event.FAILED);
+                                log.warn("Enrollment failed imei={} error={}", imei, e.toString());
+                                enrollFailed.incrementAndGet();
+                                complete(new DeviceResult(imei, Outcome.ENROLL_FAILED, null, null, e, System.currentTimeMillis() - deviceStart), sink, failures, release);
+                                return;
+                            }
+                            recordState(tracked, DeviceStateStore.Step.ENROLLED);
+                            IOException notDurable = commitSuccess(tracked, BulkJournal.Op.ENROLL, journalFailure);
+                            if (notDurable != null) {
+                                enrollFailed.incrementAndGet();
+                                complete(new DeviceResult(imei, Outcome.ENROLL_FAILED, enrollment, null, notDurable, System.currentTimeMillis() - deviceStart), sink, failures, release);
+                                return;
+                            }
+                        }
+                        try {
+                            sink.onEnrolled(imei);
+                        } catch (RuntimeException e) {
+                            log.warn("Listener threw for imei={} error={}", imei, e.toString());
+                        }
+                        Map<String, Object> enrollResult = enrollment;
+                        Runnable unlockTask = Deadline.propagate(() -> {
+                            try {
+                                if (journalFailure.get() != null) {
+                                    unlockFailed.incrementAndGet();
+                                    complete(new DeviceResult(imei, Outcome.UNLOCK_FAILED, enrollResult, null, journalFailure.get(), System.currentTimeMillis() - deviceStart), sink, failures, release);
+                                    return;
+                                }
+                                journal(tracked, BulkJournal.Op.UNLOCK, BulkJournal.Event.STARTED);
+                                Map<String, Object> unlock;
+                                try {
+                                    unlock = client.unlockDevice(accessToken, imei);
+                                } catch (Exception e) {
+                                    journal(tracked, BulkJournal.Op.UNLOCK, BulkJournal.Event.FAILED);
+                                    log.warn("Unlock failed imei={} error={}", imei, e.toString());
+                                    unlockFailed.incrementAndGet();
+                                    complete(new DeviceResult(imei, Outcome.UNLOCK_FAILED, enrollResult, null, e, System.currentTimeMillis() - deviceStart), sink, failures, release);
+                                    return;
+                                }
+                                recordState(tracked, DeviceStateStore.Step.UNLOCKED);
+                                IOException notDurable = commitSuccess(tracked, BulkJournal.Op.UNLOCK, journalFailure);
+                                if (notDurable != null) {
+                                    unlockFailed.incrementAndGet();
+                                    complete(new DeviceResult(imei, Outcome.UNLOCK_FAILED, enrollResult, unlock, notDurable, System.currentTimeMillis() - deviceStart), sink, failures, release);
+                                    return;
+                                }
+                                unlocked.incrementAndGet();
+                                complete(new DeviceResult(imei, Outcome.UNLOCKED, enrollResult, unlock, null, System.currentTimeMillis() - deviceStart), sink, failures, release);
+                            } catch (Throwable t) {
+                                // still holding the permit means the device has not been reported yet
+                                if (!permitHeld.get()) return;
+                                log.error("Unlock task failed imei={}", imei, t);
+                                unlockFailed.incrementAndGet();
+                                complete(new DeviceResult(imei, Outcome.UNLOCK_FAILED, enrollResult, null, asException(t), System.currentTimeMillis() - deviceStart), sink, failures, release);
+                            } finally {
+                                release.run();
+                            }
+                        });
+                        try {
+                            unlockPool.execute(unlockTask);
+                            handedOff = true;
+                        } catch (RejectedExecutionException e) {
+                            log.warn("Unlock not scheduled imei={} error={}", imei, e.toString());
+                            unlockFailed.incrementAndGet();
+                            complete(new DeviceResult(imei, Outcome.UNLOCK_FAILED, enrollResult, null, e, System.currentTimeMillis() - deviceStart), sink, failures, release);
+                        }
+                    } catch (Throwable t) {
+                        if (handedOff || !permitHeld.get()) return;
+                        log.error("Enrollment task failed imei={}", imei, t);
+                        enrollFailed.incrementAndGet();
+                        complete(new DeviceResult(imei, Outcome.ENROLL_FAILED, null, null, asException(t), System.currentTimeMillis() - deviceStart), sink, failures, release);
+                    } finally {
+                        if (!handedOff) release.run();
+                    }
+                });
+                try {
+                    enrollPool.execute(enrollTask);
+                } catch (RejectedExecutionException e) {
+                    log.warn("Enrollment not scheduled imei={} error={}", imei, e.toString());
+                    enrollFailed.incrementAndGet();
+                    complete(new DeviceResult(imei, Outcome.ENROLL_FAILED, null, null, e, System.currentTimeMillis() - deviceStart), sink, failures, release);
+                }
+            }
+            // Every device returns its permit on completion, so reclaiming all permits means the pipeline drained.
+            inFlight.acquire(maxInFlight);
+        } finally {
+            enrollPool.shutdown();
+            unlockPool.shutdown();
+            enrollPool.awaitTermination(1, TimeUnit.MINUTES);
+            unlockPool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        Summary summary = new Summary(total.get(), unlocked.get(), skipped.get(), enrollFailed.get(), unlockFailed.get(), System.currentTimeMillis() - start, failures);
+        log.info("Bulk enroll/unlock finished {}", summary);
+        if (journalFailure.get() != null) {
+            throw new IOException("Journal " + journal.getFile() + " failed after " + summary.getTotal()
+                    + " devices; resume the run from it once the disk is fixed", journalFailure.get());
+        }
+        return summary;
+    }
+
+    private boolean isDone(long imei, DeviceStateStore.Step step, BulkJournal.Op op) {
+        if (imei < 0) return false;
+        return (stateStore != null && stateStore.has(imei, step)) || (journal != null && journal.hasSucceeded(imei, op));
+    }
+
+    /** Started and failed records are only buffered; losing them just means the operation is issued again on resume. */
+    private void journal(long imei, BulkJournal.Op op, BulkJournal.Event event) {
+        if (journal == null || imei < 0) return;
+        journal.append(imei, op, event);
+    }
+
+    /**
+     * Wait until a success is durable. Returns null when it is, or the journal's error; the first error is kept in
+     * {@code journalFailure}, which stops the run.
+     */
+    private IOException commitSuccess(long imei, BulkJournal.Op op, AtomicReference<IOException> journalFailure) {
+        if (journal == null || imei < 0) return null;
+        try {
+            journal.commit(imei, op, BulkJournal.Event.SUCCEEDED);
+            return null;
+        } catch (IOException e) {
+            if (journalFailure.compareAndSet(null, e)) log.error("Journal {} failed, stopping the run: {}", journal.getFile(), e.toString());
+            return e;
+        }
+    }
+
+    /** A failure to write the state store only costs a repeated call next run, so it does not fail the device. */
+    private void recordState(long imei, DeviceStateStore.Step step) {
+        if (stateStore == null || imei < 0) return;
+        try {
+            stateStore.record(imei, step, System.currentTimeMillis());
+        } catch (IOException e) {
+            log.warn("Could not record {} for imei={} in {}: {}", step, imei, stateStore.getFile(), e.toString());
+        }
+    }
+
+    /** Errors escaping a device task are reported on the device like any other failure. */
+    private static Exception asException(Throwable t) {
+        return t instanceof Exception e ? e : new IllegalStateException("Device task failed: " + t, t);
+    }
+
+    private static void complete(DeviceResult result, Listener sink, List<DeviceResult> failures, Runnable release) {
+        try {
+            if (!result.isSuccess()) failures.add(result);
+            sink.onDeviceCompleted(result);
+        } catch (RuntimeException e) {
+            log.warn("Listener threw for imei={} error={}", result.getImei(), e.toString());
+        } finally {
+            release.run();
+        }
+    }
+
+    private static java.util.concurrent.ThreadFactory namedThreads(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
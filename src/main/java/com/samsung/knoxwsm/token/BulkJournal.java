@@ -0,0 +1,300 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-ahead journal of a bulk run: for every device and operation, a {@code STARTED} record before the call
+ * and a {@code SUCCEEDED}/{@code FAILED} record after it. A run that dies (including {@code kill -9}) is resumed
+ * by opening the same journal: operations with a durable {@code SUCCEEDED} are skipped, and those that were
+ * in flight or failed are issued again.
+ * <p>
+ * Records are fixed 24 bytes ({@code imei, epochMillis, op, event, crc32}) and are buffered in memory. Durability
+ * uses group commit: {@link #commit} appends a record and waits until it is forced to disk. The first waiting
+ * thread writes and {@code fsync}s everything buffered so far, and threads that append meanwhile are covered by
+ * the next sync, so one {@code fsync} serves a whole wave of concurrent completions. {@code STARTED} and
+ * {@code FAILED} records are only {@link #append appended}; losing them in a crash just means the operation is
+ * retried. Replay on open reads the file sequentially into primitive sets, so millions of records take seconds.
+ * A torn last record fails its checksum and is truncated.
+ * <p>
+ * If a write or {@code fsync} fails, the journal is marked failed: nothing more is written, so a torn record can
+ * only be the last one, and every pending and later {@link #commit} throws. Records that were buffered but not
+ * confirmed are not durable; the run should stop and be resumed.
+ * <p>
+ * The file is exclusively locked while the journal is open, so a second run on the same journal fails at
+ * {@link #create} or {@link #resume} instead of interleaving records.
+ */
+public final class BulkJournal implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(BulkJournal.class);
+    private static final int MAGIC = 0x4B58574A; // "KXWJ"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_BYTES = 24;
+
+    /** Journaled operations. */
+    public enum Op { ENROLL, UNLOCK }
+
+    /** Journaled events of an operation. */
+    public enum Event { STARTED, SUCCEEDED, FAILED }
+
+    private static final Op[] OPS = Op.values();
+    private static final Event[] EVENTS = Event.values();
+
+    /** What the journal contained when it was opened; counts are of (device, operation) pairs. */
+    public record Replay(long records, long succeeded, long inFlight, long failed) { }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition synced = lock.newCondition();
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer scratch = ByteBuffer.allocate(RECORD_BYTES - Integer.BYTES);
+    // keys are imei * OPS.length + op
+    private final LongHashSet succeeded = new LongHashSet();
+    private ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES * 1_024);
+    private ByteBuffer spare = ByteBuffer.allocate(RECORD_BYTES * 1_024);
+    private long appendedSeq;
+    private long durableSeq;
+    private boolean syncing;
+    private IOException failure;
+    private long syncs;
+    private Replay replay;
+
+    BulkJournal(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /** Start a new journal; fails if {@code file} already holds records (resume it with {@link #resume} instead). */
+    public static BulkJournal create(Path file) throws IOException {
+        if (Files.exists(file) && Files.size(file) > HEADER_BYTES) {
+            throw new IllegalArgumentException("Journal already exists: " + file + " (resume it or choose another path)");
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // lock before truncating, so a journal another run is writing is left alone
+            FileLocks.lockExclusive(channel, file, "Journal");
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+            while (header.hasRemaining()) channel.write(header);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        BulkJournal journal = new BulkJournal(file, channel);
+        journal.replay = new Replay(0, 0, 0, 0);
+        return journal;
+    }
+
+    /** Open an existing journal, replay it and continue appending to it. */
+    public static BulkJournal resume(Path file) throws IOException {
+        if (!Files.exists(file)) throw new IllegalArgumentException("Journal not found: " + file);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        BulkJournal journal = new BulkJournal(file, channel);
+        try {
+            FileLocks.lockExclusive(channel, file, "Journal");
+            journal.load();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    private void load() throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) throw new IOException("Journal truncated: " + file);
+        }
+        if (header.getInt(0) != MAGIC) throw new IOException("Not a bulk journal: " + file);
+        if (header.getInt(4) != VERSION) throw new IOException("Unsupported bulk journal version " + header.getInt(4) + ": " + file);
+
+        LongHashSet started = new LongHashSet();
+        LongHashSet failed = new LongHashSet();
+        ByteBuffer chunk = ByteBuffer.allocateDirect(RECORD_BYTES * 8_192);
+        long records = 0;
+        long valid = HEADER_BYTES;
+        replay:
+        while (valid < size) {
+            chunk.clear();
+            int read = channel.read(chunk, valid);
+            if (read < RECORD_BYTES) break;
+            chunk.flip();
+            while (chunk.remaining() >= RECORD_BYTES) {
+                long imei = chunk.getLong();
+                long at = chunk.getLong();
+                int op = chunk.get();
+                int event = chunk.get();
+                chunk.getShort();
+                int checksum = chunk.getInt();
+                if (checksum != checksum(imei, at, op, event) || op < 0 || op >= OPS.length || event < 0 || event >= EVENTS.length) break replay;
+                long key = imei * OPS.length + op;
+                switch (EVENTS[event]) {
+                    case STARTED -> { started.add(key); failed.remove(key); }
+                    case SUCCEEDED -> { started.remove(key); failed.remove(key); succeeded.add(key); }
+                    case FAILED -> { started.remove(key); failed.add(key); }
+                }
+                records++;
+                valid += RECORD_BYTES;
+            }
+        }
+        if (valid < size) {
+            log.warn("Journal {}: discarding {} bytes of incomplete or corrupt records at offset {}", file, size - valid, valid);
+            channel.truncate(valid);
+        }
+        channel.position(valid);
+        replay = new Replay(records, succeeded.size(), started.size(), failed.size());
+        log.info("Replayed journal {}: {}", file, replay);
+    }
+
+    public Path getFile() { return file; }
+
+    /** Contents found when the journal was opened (all zero for a new journal). */
+    public Replay getReplay() { return replay; }
+
+    /** Whether {@code op} for {@code imei} has a {@code SUCCEEDED} record, from this or an earlier run. */
+    public boolean hasSucceeded(long imei, Op op) {
+        lock.lock();
+        try {
+            return succeeded.contains(imei * OPS.length + op.ordinal());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Buffer a record without waiting for it to reach the disk; returns its sequence number. */
+    public long append(long imei, Op op, Event event) {
+        lock.lock();
+        try {
+            if (buffer.remaining() < RECORD_BYTES) {
+                ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer = larger.put(buffer.flip());
+            }
+            long at = System.currentTimeMillis();
+            buffer.putLong(imei).putLong(at).put((byte) op.ordinal()).put((byte) event.ordinal()).putShort((short) 0)
+                    .putInt(checksum(imei, at, op.ordinal(), event.ordinal()));
+            if (event == Event.SUCCEEDED) succeeded.add(imei * OPS.length + op.ordinal());
+            return ++appendedSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** {@link #append} and wait until the record is durable. */
+    public void commit(long imei, Op op, Event event) throws IOException {
+        awaitDurable(append(imei, op, event));
+    }
+
+    /**
+     * Block until every record up to {@code seq} has been written and forced, syncing them if no one else is.
+     * Throws if the journal has failed before those records became durable.
+     */
+    public void awaitDurable(long seq) throws IOException {
+        lock.lock();
+        try {
+            while (durableSeq < seq) {
+                if (failure != null) throw new IOException("Journal " + file + " failed; records after #" + durableSeq + " are not durable", failure);
+                if (syncing) {
+                    synced.await();
+                    continue;
+                }
+                // Become the leader for everything buffered so far; appends continue into the spare buffer
+                syncing = true;
+                ByteBuffer batch = buffer.flip();
+                buffer = spare;
+                long upTo = appendedSeq;
+                IOException error = null;
+                lock.unlock();
+                try {
+                    while (batch.hasRemaining()) channel.write(batch);
+                    channel.force(false);
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    lock.lock();
+                }
+                spare = batch.clear();
+                syncing = false;
+                if (error != null) {
+                    log.error("Journal {}: write failed, records after #{} are not durable", file, durableSeq, error);
+                    failure = error;
+                } else {
+                    durableSeq = upTo;
+                    syncs++;
+                }
+                synced.signalAll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for journal sync");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Number of {@code fsync}s issued so far; with concurrent committers this is well below the record count. */
+    public long getSyncCount() {
+        lock.lock();
+        try { return syncs; } finally { lock.unlock(); }
+    }
+
+    private int checksum(long imei, long at, int op, int event) {
+        crc.reset();
+        crc.update(scratch.clear().putLong(imei).putLong(at).put((byte) op).put((byte) event).putShort((short) 0).flip());
+        return (int) crc.getValue();
+    }
+
+    /** Make every appended record durable and close the file. */
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) return;
+        try {
+            long seq;
+            lock.lock();
+            try { seq = appendedSeq; } finally { lock.unlock(); }
+            awaitDurable(seq);
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BulkJournal[" + file + "]";
+    }
+}
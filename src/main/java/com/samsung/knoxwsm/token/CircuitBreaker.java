@@ -0,0 +1,211 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Count-based circuit breaker for one Knox endpoint.
+ * <ul>
+ *   <li>CLOSED: calls pass; the last {@code windowSize} outcomes are kept. Once at least {@code minimumCalls}
+ *       are recorded and either the failure rate or the slow-call rate reaches its threshold, the breaker opens.</li>
+ *   <li>OPEN: calls are rejected immediately until {@code openMillis} has elapsed.</li>
+ *   <li>HALF_OPEN: up to {@code halfOpenCalls} trial calls pass. All succeeding fast closes the breaker;
+ *       any failure or slow call re-opens it.</li>
+ * </ul>
+ * A failure is an I/O error or a 5xx response; 4xx (including 429) says nothing about upstream health.
+ */
+public class CircuitBreaker {
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** Immutable breaker thresholds. */
+    public static final class Settings {
+        final boolean enabled;
+        final int windowSize;
+        final int minimumCalls;
+        final double failureRateThreshold;
+        final double slowCallRateThreshold;
+        final long slowCallMillis;
+        final long openMillis;
+        final int halfOpenCalls;
+
+        public Settings(boolean enabled, int windowSize, int minimumCalls, double failureRateThreshold,
+                        double slowCallRateThreshold, long slowCallMillis, long openMillis, int halfOpenCalls) {
+            if (windowSize < 1 || halfOpenCalls < 1) throw new IllegalArgumentException("windowSize and halfOpenCalls must be >= 1");
+            this.enabled = enabled;
+            this.windowSize = windowSize;
+            this.minimumCalls = Math.max(1, Math.min(minimumCalls, windowSize));
+            this.failureRateThreshold = failureRateThreshold;
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            this.slowCallMillis = slowCallMillis;
+            this.openMillis = openMillis;
+            this.halfOpenCalls = halfOpenCalls;
+        }
+
+        /**
+         * From env/.env: KNOX_BREAKER_ENABLED (true), KNOX_BREAKER_WINDOW (20), KNOX_BREAKER_MIN_CALLS (10),
+         * KNOX_BREAKER_FAILURE_RATE_PERCENT (50), KNOX_BREAKER_SLOW_CALL_RATE_PERCENT (80), KNOX_BREAKER_SLOW_CALL_MS (10000),
+         * KNOX_BREAKER_OPEN_MS (30000), KNOX_BREAKER_HALF_OPEN_CALLS (3).
+         */
+        public static Settings fromConfig() {
+            return new Settings(
+                    Boolean.parseBoolean(Config.get("KNOX_BREAKER_ENABLED", "true")),
+                    (int) Config.getLong("KNOX_BREAKER_WINDOW", 20),
+                    (int) Config.getLong("KNOX_BREAKER_MIN_CALLS", 10),
+                    Config.getLong("KNOX_BREAKER_FAILURE_RATE_PERCENT", 50) / 100.0,
+                    Config.getLong("KNOX_BREAKER_SLOW_CALL_RATE_PERCENT", 80) / 100.0,
+                    Config.getLong("KNOX_BREAKER_SLOW_CALL_MS", 10_000),
+                    Config.getLong("KNOX_BREAKER_OPEN_MS", 30_000),
+                    (int) Config.getLong("KNOX_BREAKER_HALF_OPEN_CALLS", 3));
+        }
+
+        public static Settings disabled() {
+            return new Settings(false, 1, 1, 1, 1, Long.MAX_VALUE, 0, 1);
+        }
+    }
+
+    private final String name;
+    private final Settings settings;
+    private final LongSupplier clock;
+    private final KnoxMetrics metrics;
+    // Ring buffer of recent outcomes: bit 0 = failed, bit 1 = slow.
+    private final byte[] window;
+    private int windowPos;
+    private int windowCount;
+    private int failedInWindow;
+    private int slowInWindow;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenIssued;
+    private int halfOpenSucceeded;
+
+    public CircuitBreaker(String name, Settings settings, KnoxMetrics metrics) {
+        this(name, settings, metrics, System::currentTimeMillis);
+    }
+
+    CircuitBreaker(String name, Settings settings, KnoxMetrics metrics, LongSupplier clock) {
+        this.name = name;
+        this.settings = settings;
+        this.metrics = metrics;
+        this.clock = clock;
+        this.window = new byte[settings.windowSize];
+        metrics.gauge("breaker." + name + ".state", () -> getState().name());
+        metrics.gauge("breaker." + name + ".failureRate", this::getFailureRate);
+        metrics.gauge("breaker." + name + ".slowCallRate", this::getSlowCallRate);
+    }
+
+    public String getName() { return name; }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= settings.openMillis) return State.HALF_OPEN;
+        return state;
+    }
+
+    public synchronized double getFailureRate() { return windowCount == 0 ? 0 : (double) failedInWindow / windowCount; }
+    public synchronized double getSlowCallRate() { return windowCount == 0 ? 0 : (double) slowInWindow / windowCount; }
+
+    /** Admit or reject a call. Every admitted call must be followed by exactly one {@link #onResult} or {@link #onIgnored}. */
+    public void acquirePermission() throws CircuitOpenException {
+        if (!settings.enabled) return;
+        synchronized (this) {
+            if (state == State.OPEN) {
+                long remaining = settings.openMillis - (clock.getAsLong() - openedAt);
+                if (remaining > 0) {
+                    metrics.increment("breaker." + name + ".rejected");
+                    throw new CircuitOpenException(name, remaining);
+                }
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (halfOpenIssued >= settings.halfOpenCalls) {
+                    metrics.increment("breaker." + name + ".rejected");
+                    throw new CircuitOpenException(name, 0);
+                }
+                halfOpenIssued++;
+            }
+        }
+    }
+
+    /** Release an admitted call whose outcome says nothing about the endpoint (e.g. cut short by the caller's deadline). */
+    public void onIgnored() {
+        if (!settings.enabled) return;
+        synchronized (this) {
+            if (state == State.HALF_OPEN && halfOpenIssued > 0) halfOpenIssued--;
+        }
+    }
+
+    /** Record the outcome of an admitted call. */
+    public void onResult(long durationMillis, boolean failed) {
+        if (!settings.enabled) return;
+        boolean slow = durationMillis >= settings.slowCallMillis;
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                if (failed || slow) {
+                    transition(State.OPEN);
+                } else if (++halfOpenSucceeded >= settings.halfOpenCalls) {
+                    transition(State.CLOSED);
+                }
+                return;
+            }
+            if (state == State.OPEN) return; // late result from before the trip
+            record(failed, slow);
+            if (windowCount >= settings.minimumCalls
+                    && (getFailureRate() >= settings.failureRateThreshold || getSlowCallRate() >= settings.slowCallRateThreshold)) {
+                log.warn("Circuit {} opening failureRate={} slowCallRate={}", name, getFailureRate(), getSlowCallRate());
+                transition(State.OPEN);
+            }
+        }
+    }
+
+    private void record(boolean failed, boolean slow) {
+        if (windowCount == window.length) {
+            byte evicted = window[windowPos];
+            if ((evicted & 1) != 0) failedInWindow--;
+            if ((evicted & 2) != 0) slowInWindow--;
+        } else {
+            windowCount++;
+        }
+        window[windowPos] = (byte) ((failed ? 1 : 0) | (slow ? 2 : 0));
+        windowPos = (windowPos + 1) % window.length;
+        if (failed) failedInWindow++;
+        if (slow) slowInWindow++;
+    }
+
+    private void transition(State next) {
+        if (next == state) return;
+        log.info("Circuit {} {} -> {}", name, state, next);
+        metrics.increment("breaker." + name + ".transitions." + next.name().toLowerCase());
+        state = next;
+        halfOpenIssued = 0;
+        halfOpenSucceeded = 0;
+        if (next == State.OPEN) openedAt = clock.getAsLong();
+        if (next == State.CLOSED) {
+            windowPos = 0;
+            windowCount = 0;
+            failedInWindow = 0;
+            slowInWindow = 0;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+
+/**
+ * Thrown without touching the network when the {@link CircuitBreaker} for an endpoint is open.
+ */
+public class CircuitOpenException extends IOException {
+    private final String circuit;
+    private final long retryInMillis;
+
+    public CircuitOpenException(String circuit, long retryInMillis) {
+        super("Circuit open for " + circuit + "; failing fast" + (retryInMillis > 0 ? " (next probe in " + retryInMillis + "ms)" : ""));
+        this.circuit = circuit;
+        this.retryInMillis = retryInMillis;
+    }
+
+    public String getCircuit() { return circuit; }
+    public long getRetryInMillis() { return retryInMillis; }
+}
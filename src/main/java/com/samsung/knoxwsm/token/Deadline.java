@@ -0,0 +1,96 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time by which a whole flow (token + enroll + unlock, a bulk run, ...) must finish. Entering a
+ * deadline makes it current for the thread; every {@link KnoxTransport} call made inside the scope gets at most
+ * the remaining time as its call timeout, and is not retried past it. Nested scopes keep the tighter deadline.
+ * Worker pools pick it up through {@link #propagate(Runnable)}.
+ * <pre>{@code
+ * try (Deadline.Scope s = Deadline.after(Duration.ofSeconds(20)).enter()) {
+ *     client.enrollAndUnlock(token, imei, clientId); // unlock only gets what enroll left over
+ * }
+ * }</pre>
+ */
+public final class Deadline {
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    /** Restores the previous deadline on close. */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static Deadline after(Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos());
+    }
+
+    /** Deadline of the current thread, or null when none was entered. */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    /** Make this deadline (or the tighter enclosing one) current until the scope is closed. */
+    public Scope enter() {
+        Deadline outer = CURRENT.get();
+        CURRENT.set(outer != null && outer.expiresAtNanos - expiresAtNanos < 0 ? outer : this);
+        return () -> {
+            if (outer == null) CURRENT.remove(); else CURRENT.set(outer);
+        };
+    }
+
+    /** Wrap {@code task} so it runs under the submitting thread's current deadline, if any. */
+    public static Runnable propagate(Runnable task) {
+        Deadline deadline = current();
+        if (deadline == null) return task;
+        return () -> {
+            Scope scope = deadline.enter();
+            try {
+                task.run();
+            } finally {
+                scope.close();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline[remainingMs=" + remainingMillis() + "]";
+    }
+}
@@ -0,0 +1,39 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.InterruptedIOException;
+
+/**
+ * Thrown when a call's {@link Deadline} has passed, either before it was sent or while it was in flight.
+ * Never retried: the caller's time budget is spent.
+ */
+public class DeadlineExceededException extends InterruptedIOException {
+    private final KnoxOperation operation;
+
+    public DeadlineExceededException(KnoxOperation operation, Throwable cause) {
+        super("Deadline exceeded for " + operation);
+        this.operation = operation;
+        if (cause != null) initCause(cause);
+    }
+
+    public KnoxOperation getOperation() { return operation; }
+}
@@ -0,0 +1,276 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link Flow} operators for per-device Knox calls, for callers that feed IMEIs (or upload IDs) from their own
+ * streaming pipelines. Each operator subscribes to a {@code Publisher<String>} and publishes one {@link Result}
+ * per item, in completion order. A failed call becomes a failed result and the stream continues; only an error
+ * from the source, or an {@link Error} thrown by a call, ends it with {@code onError}, after the calls already
+ * started have been emitted.
+ * <p>
+ * Backpressure runs both ways: the source is only asked for as many items as the subscriber has requested,
+ * capped at {@code maxInFlight}, counting items requested from the source, calls running and results waiting
+ * for the subscriber. So at most {@code maxInFlight} items are held at once, however fast the source is and
+ * however slow the subscriber. A {@link Deadline} current when a subscriber subscribes bounds every call of
+ * that subscription.
+ */
+public class DeviceFlows {
+    private static final Logger log = LoggerFactory.getLogger(DeviceFlows.class);
+
+    /** Outcome of one call; exactly one of {@code value} / {@code error} is set. */
+    public record Result<T>(String key, T value, Exception error, long elapsedMillis) {
+        public boolean isSuccess() { return error == null; }
+    }
+
+    /** A Knox call keyed by an IMEI or upload ID. */
+    @FunctionalInterface
+    public interface KeyedCall<T> {
+        T call(String key) throws Exception;
+    }
+
+    private final KnoxAuthClient client;
+    private final Supplier<String> accessToken;
+    private final int maxInFlight;
+
+    /** {@code accessToken} is asked for a token on every call, so long streams can hand out refreshed ones. */
+    public DeviceFlows(KnoxAuthClient client, Supplier<String> accessToken, int maxInFlight) {
+        if (client == null) throw new IllegalArgumentException("client required");
+        if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be >= 1");
+        this.client = client;
+        this.accessToken = accessToken;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public Flow.Publisher<Result<Map<String, Object>>> enroll(Flow.Publisher<String> imeis, String clientId) {
+        return map(imeis, maxInFlight, "knox-flow-enroll", imei -> client.enrollDeviceInKnoxGuard(accessToken.get(), imei, clientId));
+    }
+
+    public Flow.Publisher<Result<Map<String, Object>>> unlock(Flow.Publisher<String> imeis) {
+        return map(imeis, maxInFlight, "knox-flow-unlock", imei -> client.unlockDevice(accessToken.get(), imei));
+    }
+
+    /** Current detail (with per-device status) of each upload ID. */
+    public Flow.Publisher<Result<UploadDetail>> uploadStatus(Flow.Publisher<String> uploadIds) {
+        return map(uploadIds, maxInFlight, "knox-flow-upload", id -> client.getUploadDetail(accessToken.get(), id));
+    }
+
+    /** Generic operator: {@code call} for every item of {@code source}, at most {@code maxInFlight} at a time. */
+    public static <T> Flow.Publisher<Result<T>> map(Flow.Publisher<String> source, int maxInFlight, String threadName, KeyedCall<T> call) {
+        if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be >= 1");
+        return subscriber -> {
+            MappingSubscription<T> subscription = new MappingSubscription<>(subscriber, maxInFlight, threadName, call);
+            subscriber.onSubscribe(subscription);
+            source.subscribe(subscription);
+        };
+    }
+
+    /**
+     * Downstream subscription and upstream subscriber in one. State changes happen under the lock; signals to
+     * either side are sent from {@link #drain()}, which one thread at a time runs, so the downstream sees
+     * serial {@code onNext} calls.
+     */
+    private static final class MappingSubscription<T> implements Flow.Subscription, Flow.Subscriber<String> {
+        private final Flow.Subscriber<? super Result<T>> downstream;
+        private final int maxInFlight;
+        private final KeyedCall<T> call;
+        private final ExecutorService workers;
+        private final Deadline deadline = Deadline.current();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final ArrayDeque<Result<T>> ready = new ArrayDeque<>();
+        private Flow.Subscription upstream;
+        private long demand;
+        private long requested;
+        private int inFlight;
+        private boolean upstreamDone;
+        private Throwable failure;
+        private boolean cancelled;
+        private boolean terminated;
+
+        MappingSubscription(Flow.Subscriber<? super Result<T>> downstream, int maxInFlight, String threadName, KeyedCall<T> call) {
+            this.downstream = downstream;
+            this.maxInFlight = maxInFlight;
+            this.call = call;
+            AtomicInteger seq = new AtomicInteger();
+            this.workers = Executors.newFixedThreadPool(maxInFlight, r -> {
+                Thread t = new Thread(r, threadName + "-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    // Reactive Streams rule 3.9
+                    failure = new IllegalArgumentException("request must be > 0: " + n);
+                    upstreamDone = true;
+                    if (upstream != null) upstream.cancel();
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            Flow.Subscription toCancel;
+            synchronized (this) {
+                cancelled = true;
+                ready.clear();
+                toCancel = upstream;
+            }
+            if (toCancel != null) toCancel.cancel();
+            workers.shutdown();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            boolean duplicate;
+            synchronized (this) {
+                duplicate = upstream != null || cancelled;
+                if (!duplicate) upstream = subscription;
+            }
+            if (duplicate) {
+                subscription.cancel();
+                return;
+            }
+            drain();
+        }
+
+        @Override
+        public void onNext(String key) {
+            synchronized (this) {
+                if (cancelled || upstreamDone) return;
+                requested--;
+                inFlight++;
+            }
+            try {
+                workers.execute(() -> run(key));
+            } catch (RejectedExecutionException e) {
+                // cancelled concurrently; the item is dropped with the rest of the stream
+            }
+        }
+
+        private void run(String key) {
+            long started = System.currentTimeMillis();
+            Result<T> result = null;
+            Deadline.Scope scope = deadline != null ? deadline.enter() : null;
+            try {
+                result = new Result<>(key, call.call(key), null, System.currentTimeMillis() - started);
+            } catch (Exception e) {
+                log.debug("Flow call failed key={} error={}", key, e.toString());
+                result = new Result<>(key, null, e, System.currentTimeMillis() - started);
+            } catch (Error e) {
+                // not a per-item failure: stop the source and end the stream with it once running calls are emitted
+                log.error("Flow call failed key={}", key, e);
+                Flow.Subscription toCancel;
+                synchronized (this) {
+                    if (failure == null) failure = e;
+                    toCancel = upstreamDone ? null : upstream;
+                    upstreamDone = true;
+                }
+                if (toCancel != null) toCancel.cancel();
+            } finally {
+                if (scope != null) scope.close();
+                synchronized (this) {
+                    inFlight--;
+                    if (result != null && !cancelled) ready.add(result);
+                }
+                drain();
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            synchronized (this) {
+                if (upstreamDone) return;
+                failure = error;
+                upstreamDone = true;
+            }
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            synchronized (this) {
+                upstreamDone = true;
+            }
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) return;
+            int missed = 1;
+            do {
+                while (true) {
+                    Result<T> next = null;
+                    boolean finish = false;
+                    long toRequest = 0;
+                    Flow.Subscription source;
+                    synchronized (this) {
+                        if (cancelled || terminated) break;
+                        source = upstream;
+                        if (demand > 0 && !ready.isEmpty()) {
+                            next = ready.poll();
+                            demand--;
+                        } else if (upstreamDone && inFlight == 0 && ready.isEmpty()) {
+                            terminated = true;
+                            finish = true;
+                        } else if (!upstreamDone && source != null) {
+                            long outstanding = requested + inFlight + ready.size();
+                            long window = Math.min(maxInFlight, demand);
+                            if (window > outstanding) {
+                                toRequest = window - outstanding;
+                                requested += toRequest;
+                            }
+                        }
+                    }
+                    if (next != null) {
+                        downstream.onNext(next);
+                        continue;
+                    }
+                    if (finish) {
+                        workers.shutdown();
+                        if (failure != null) downstream.onError(failure); else downstream.onComplete();
+                    } else if (toRequest > 0) {
+                        source.request(toRequest);
+                    }
+                    break;
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * Upload payload ({@code {"deviceList":[...], <policy flags>}}) generated with a {@link JsonGenerator} directly
+ * into the request sink, so the JSON is never materialized as a String or byte array and memory stays constant
+ * regardless of device count. Bodies built from an {@link Iterable} or an IMEI file are replayable (and so
+ * eligible for transport retries); bodies built from an {@link Iterator} are one-shot.
+ */
+public final class DeviceListRequestBody extends RequestBody {
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    // Flushing after every device would push each one to the socket separately.
+    private static final ObjectWriter WRITER = MAPPER.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    @FunctionalInterface
+    private interface DeviceWriter {
+        void writeDevices(JsonGenerator gen) throws IOException;
+    }
+
+    private final Map<String, Object> policyFlags;
+    private final DeviceWriter devices;
+    private final boolean oneShot;
+
+    private DeviceListRequestBody(Map<String, Object> policyFlags, DeviceWriter devices, boolean oneShot) {
+        this.policyFlags = policyFlags;
+        this.devices = devices;
+        this.oneShot = oneShot;
+    }
+
+    /** Replayable body over device entries (re-iterated on every write). */
+    public static DeviceListRequestBody of(Iterable<? extends Map<String, Object>> devices, Map<String, Object> policyFlags) {
+        return new DeviceListRequestBody(policyFlags, gen -> writeAll(gen, devices.iterator()), false);
+    }
+
+    /** One-shot body draining {@code devices}; the transport will not retry it. */
+    public static DeviceListRequestBody of(Iterator<? extends Map<String, Object>> devices, Map<String, Object> policyFlags) {
+        return new DeviceListRequestBody(policyFlags, gen -> writeAll(gen, devices), true);
+    }
+
+    /**
+     * Replayable body reading a newline separated IMEI file line by line (blank and {@code #} lines skipped);
+     * each IMEI becomes {@link UploadPlanner#deviceEntry(String)}.
+     */
+    public static DeviceListRequestBody ofImeiFile(Path imeiFile, Map<String, Object> policyFlags) {
+        if (!Files.isRegularFile(imeiFile)) throw new IllegalArgumentException("IMEI file not found: " + imeiFile);
+        return new DeviceListRequestBody(policyFlags, gen -> {
+            try (BufferedReader reader = Files.newBufferedReader(imeiFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String imei = line.trim();
+                    if (imei.isEmpty() || imei.startsWith("#")) continue;
+                    gen.writeStartObject();
+                    gen.writeStringField("deviceId", imei);
+                    gen.writeStringField("platform", "android");
+                    gen.writeEndObject();
+                }
+            }
+        }, false);
+    }
+
+    private static void writeAll(JsonGenerator gen, Iterator<? extends Map<String, Object>> devices) throws IOException {
+        while (devices.hasNext()) {
+            WRITER.writeValue(gen, devices.next());
+        }
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+
+    @Override
+    public boolean isOneShot() {
+        return oneShot;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        JsonGenerator gen = MAPPER.getFactory().createGenerator(sink.outputStream());
+        gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        gen.writeStartObject();
+        gen.writeArrayFieldStart("deviceList");
+        devices.writeDevices(gen);
+        gen.writeEndArray();
+        if (policyFlags != null) {
+            for (Map.Entry<String, Object> flag : policyFlags.entrySet()) {
+                if ("deviceList".equals(flag.getKey())) continue;
+                gen.writeFieldName(flag.getKey());
+                WRITER.writeValue(gen, flag.getValue());
+            }
+        }
+        gen.writeEndObject();
+        gen.close();
+    }
+}
@@ -0,0 +1,377 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Single-file record of where each device is in its lifecycle (uploaded, enrolled, unlocked, and when), keyed
+ * by IMEI as a {@code long}, so bulk runs can skip calls that already succeeded in an earlier run.
+ * <p>
+ * The file is an append-only log of fixed 24-byte records ({@code imei, epochMillis, step, crc32}); opening it
+ * replays the log into an in-memory open-addressing index (8 bytes key + 24 bytes timestamps per device). A torn
+ * last record, as left by {@code kill -9} mid-write, fails its checksum and is truncated away. When most of the
+ * log is superseded records (devices that were reset and re-recorded), it is compacted into one record per
+ * reached step, written to a temporary file and renamed into place. Appends go straight to the OS
+ * ({@link FileChannel#write}); {@link #sync()} and {@link #close()} also force them to the disk.
+ * <p>
+ * While open, the store holds an exclusive lock on a {@code .lock} file next to it, so a second run on the same
+ * store fails at open instead of interleaving records. The lock lives on its own file because compaction
+ * replaces the log file.
+ * <p>
+ * Thread-safe; all methods synchronize on the store.
+ */
+public final class DeviceStateStore implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(DeviceStateStore.class);
+    private static final int MAGIC = 0x4B584453; // "KXDS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_BYTES = 24;
+    private static final byte RESET = 0x7F;
+    private static final int COMPACT_MIN_RECORDS = 4_096;
+
+    /** Lifecycle steps tracked per device. */
+    public enum Step { UPLOADED, ENROLLED, UNLOCKED }
+
+    private static final Step[] STEPS = Step.values();
+
+    /** What is known about one device; a timestamp is 0 when the step has not been reached. */
+    public record DeviceState(long imei, long uploadedAt, long enrolledAt, long unlockedAt) {
+        public long at(Step step) {
+            return switch (step) {
+                case UPLOADED -> uploadedAt;
+                case ENROLLED -> enrolledAt;
+                case UNLOCKED -> unlockedAt;
+            };
+        }
+
+        public boolean has(Step step) { return at(step) != 0; }
+    }
+
+    private final Path file;
+    private FileChannel lockChannel;
+    private FileChannel channel;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer scratch = ByteBuffer.allocate(RECORD_BYTES - Integer.BYTES);
+    // Open addressing: keys hold imei + 1 so 0 marks a free slot; times holds one timestamp per step per slot
+    private long[] keys = new long[16];
+    private long[] times = new long[16 * STEPS.length];
+    private int devices;
+    private long liveSteps;
+    private long logRecords;
+
+    private DeviceStateStore(Path file) {
+        this.file = file;
+    }
+
+    /** Open (creating if absent) the store at {@code file} and replay its log. */
+    public static DeviceStateStore open(Path file) throws IOException {
+        DeviceStateStore store = new DeviceStateStore(file);
+        try {
+            store.load();
+        } catch (IOException | RuntimeException e) {
+            store.release();
+            throw e;
+        }
+        return store;
+    }
+
+    /** The store at KNOX_STATE_STORE, or null when it is unset. */
+    public static DeviceStateStore fromConfig() throws IOException {
+        String path = Config.get("KNOX_STATE_STORE", "");
+        return path.isBlank() ? null : open(Path.of(path));
+    }
+
+    public Path getFile() { return file; }
+
+    private void load() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        lockChannel = FileChannel.open(file.resolveSibling(file.getFileName() + ".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLocks.lockExclusive(lockChannel, file, "Device state store");
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size == 0) {
+            writeHeader(channel);
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(header, 0);
+        if (header.getInt(0) != MAGIC) throw new IOException("Not a device state store: " + file);
+        if (header.getInt(4) != VERSION) throw new IOException("Unsupported device state store version " + header.getInt(4) + ": " + file);
+
+        ByteBuffer chunk = ByteBuffer.allocateDirect(RECORD_BYTES * 8_192);
+        long position = HEADER_BYTES;
+        long valid = position;
+        replay:
+        while (position < size) {
+            chunk.clear();
+            int read = channel.read(chunk, position);
+            if (read <= 0) break;
+            chunk.flip();
+            while (chunk.remaining() >= RECORD_BYTES) {
+                long imei = chunk.getLong();
+                long at = chunk.getLong();
+                int step = chunk.getInt();
+                int checksum = chunk.getInt();
+                if (checksum != checksum(imei, at, step)) break replay;
+                apply(imei, at, step);
+                logRecords++;
+                valid += RECORD_BYTES;
+            }
+            position = valid;
+            if (read < RECORD_BYTES) break;
+        }
+        if (valid < size) {
+            log.warn("Device state store {}: discarding {} bytes of incomplete or corrupt records at offset {}", file, size - valid, valid);
+            channel.truncate(valid);
+        }
+        channel.position(valid);
+        if (logRecords > COMPACT_MIN_RECORDS && logRecords > 2 * liveSteps) compact();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new IOException("Device state store truncated: " + file);
+        }
+    }
+
+    private static void writeHeader(FileChannel target) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) target.write(header);
+    }
+
+    private int checksum(long imei, long at, int step) {
+        crc.reset();
+        crc.update(scratch.clear().putLong(imei).putLong(at).putInt(step).flip());
+        return (int) crc.getValue();
+    }
+
+    private void apply(long imei, long at, int step) {
+        if (step == RESET) {
+            int slot = find(imei);
+            if (slot < 0) return;
+            for (int s = 0; s < STEPS.length; s++) {
+                if (times[slot * STEPS.length + s] != 0) liveSteps--;
+                times[slot * STEPS.length + s] = 0;
+            }
+            return;
+        }
+        if (step < 0 || step >= STEPS.length) return;
+        int slot = slotFor(imei);
+        if (times[slot * STEPS.length + step] == 0) liveSteps++;
+        times[slot * STEPS.length + step] = at;
+    }
+
+    private int find(long imei) {
+        long key = imei + 1;
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == key) return i;
+            if (keys[i] == 0) return -1;
+        }
+    }
+
+    private int slotFor(long imei) {
+        if ((devices + 1) * 4L > keys.length * 3L) grow();
+        long key = imei + 1;
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+        if (keys[i] == 0) {
+            keys[i] = key;
+            devices++;
+        }
+        return i;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldTimes = times;
+        keys = new long[oldKeys.length * 2];
+        times = new long[keys.length * STEPS.length];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == 0) continue;
+            int i = mix(oldKeys[j]) & mask;
+            while (keys[i] != 0) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            System.arraycopy(oldTimes, j * STEPS.length, times, i * STEPS.length, STEPS.length);
+        }
+    }
+
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Record that {@code imei} reached {@code step} at {@code epochMillis}. Returns false (and writes nothing)
+     * if the step was already recorded.
+     */
+    public synchronized boolean record(long imei, Step step, long epochMillis) throws IOException {
+        int slot = find(imei);
+        if (slot >= 0 && times[slot * STEPS.length + step.ordinal()] != 0) return false;
+        append(imei, Math.max(1, epochMillis), step.ordinal());
+        return true;
+    }
+
+    /** Forget everything recorded for {@code imei}, e.g. after the device was removed from Knox Guard. */
+    public synchronized void reset(long imei) throws IOException {
+        if (find(imei) >= 0) append(imei, System.currentTimeMillis(), RESET);
+    }
+
+    private void append(long imei, long at, int step) throws IOException {
+        record.clear();
+        record.putLong(imei).putLong(at).putInt(step).putInt(checksum(imei, at, step)).flip();
+        while (record.hasRemaining()) channel.write(record);
+        apply(imei, at, step);
+        logRecords++;
+    }
+
+    public synchronized boolean has(long imei, Step step) {
+        int slot = find(imei);
+        return slot >= 0 && times[slot * STEPS.length + step.ordinal()] != 0;
+    }
+
+    /** What is recorded for {@code imei}, or null if nothing is. */
+    public synchronized DeviceState get(long imei) {
+        int slot = find(imei);
+        return slot < 0 ? null : state(slot);
+    }
+
+    private DeviceState state(int slot) {
+        int base = slot * STEPS.length;
+        if (times[base] == 0 && times[base + 1] == 0 && times[base + 2] == 0) return null;
+        return new DeviceState(keys[slot] - 1, times[base], times[base + 1], times[base + 2]);
+    }
+
+    /** Number of devices with at least one recorded step. */
+    public synchronized int size() {
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && state(i) != null) n++;
+        }
+        return n;
+    }
+
+    /** Visit every device with at least one recorded step, in ascending IMEI order. */
+    public synchronized void forEach(Consumer<DeviceState> action) {
+        long[] imeis = new long[devices];
+        int n = 0;
+        for (long key : keys) {
+            if (key != 0) imeis[n++] = key - 1;
+        }
+        Arrays.sort(imeis, 0, n);
+        for (int i = 0; i < n; i++) {
+            DeviceState state = state(find(imeis[i]));
+            if (state != null) action.accept(state);
+        }
+    }
+
+    /** Rewrite the log as one record per reached step, replacing the file atomically. */
+    public synchronized void compact() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        long records = 0;
+        try {
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeHeader(out);
+                ByteBuffer chunk = ByteBuffer.allocateDirect(RECORD_BYTES * 8_192);
+                for (int slot = 0; slot < keys.length; slot++) {
+                    if (keys[slot] == 0) continue;
+                    for (int s = 0; s < STEPS.length; s++) {
+                        long at = times[slot * STEPS.length + s];
+                        if (at == 0) continue;
+                        if (chunk.remaining() < RECORD_BYTES) drain(out, chunk);
+                        long imei = keys[slot] - 1;
+                        chunk.putLong(imei).putLong(at).putInt(s).putInt(checksum(imei, at, s));
+                        records++;
+                    }
+                }
+                drain(out, chunk);
+                out.force(true);
+            }
+            channel.close();
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                // reopen whichever file is in place, so a failed move leaves the store usable on the old log
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channel.position(channel.size());
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        log.info("Compacted device state store {}: {} -> {} records", file, logRecords, records);
+        logRecords = records;
+    }
+
+    private static void drain(FileChannel out, ByteBuffer chunk) throws IOException {
+        chunk.flip();
+        while (chunk.hasRemaining()) out.write(chunk);
+        chunk.clear();
+    }
+
+    /** Force appended records to the storage device. */
+    public synchronized void sync() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!channel.isOpen()) return;
+        try {
+            channel.force(false);
+        } finally {
+            release();
+        }
+    }
+
+    // closing the lock channel releases the lock, so it goes last
+    private void release() throws IOException {
+        try {
+            if (channel != null) channel.close();
+        } finally {
+            if (lockChannel != null) lockChannel.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceStateStore[" + file + "]";
+    }
+}
@@ -0,0 +1,53 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+
+/**
+ * Exclusive advisory locks that keep two runs from writing the same state file. The lock is held through an
+ * open channel and released when that channel is closed or the process exits, so a crashed run never leaves a
+ * stale lock behind.
+ */
+final class FileLocks {
+    private FileLocks() { }
+
+    /**
+     * Take an exclusive lock on the whole of {@code channel} (opened for writing), failing at once if another
+     * process, or another open of {@code file} in this JVM, holds it.
+     */
+    static FileLock lockExclusive(FileChannel channel, Path file, String what) throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            throw new IOException(what + " " + file + " is in use by another run; wait for it to finish or use another path");
+        }
+        return lock;
+    }
+}
@@ -0,0 +1,172 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.GzipSink;
+import okio.Okio;
+import okio.Sink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opt-in {@code Content-Encoding: gzip} for request bodies of selected {@link KnoxOperation}s (identified by the
+ * tag {@link KnoxTransport} puts on every request). Compression is streamed: the original body writes through a
+ * {@link GzipSink}, so nothing is buffered. Bodies with a known length below the threshold are sent as-is;
+ * streamed bodies of unknown length are always compressed. If the upstream answers a compressed request with
+ * 415 the request is re-sent uncompressed (when replayable) and compression is switched off for that operation.
+ * Metrics: {@code gzip.requests}, {@code gzip.bytesIn}, {@code gzip.bytesOut}, {@code gzip.bytesSaved}, {@code gzip.ratio}.
+ */
+public class GzipRequestInterceptor implements Interceptor {
+    private static final Logger log = LoggerFactory.getLogger(GzipRequestInterceptor.class);
+
+    /** Which operations to compress and from what size. */
+    public static final class Settings {
+        final Set<KnoxOperation> operations;
+        final long minBytes;
+
+        public Settings(Set<KnoxOperation> operations, long minBytes) {
+            this.operations = operations.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(EnumSet.copyOf(operations));
+            this.minBytes = Math.max(0, minBytes);
+        }
+
+        /**
+         * From env/.env: KNOX_GZIP_ENABLED (false), KNOX_GZIP_OPERATIONS (comma separated {@link KnoxOperation}
+         * names, default UPLOAD_DEVICES), KNOX_GZIP_MIN_BYTES (1024).
+         */
+        public static Settings fromConfig() {
+            if (!Boolean.parseBoolean(Config.get("KNOX_GZIP_ENABLED", "false"))) return disabled();
+            Set<KnoxOperation> operations = EnumSet.noneOf(KnoxOperation.class);
+            for (String name : Config.get("KNOX_GZIP_OPERATIONS", "UPLOAD_DEVICES").split(",")) {
+                if (!name.isBlank()) operations.add(KnoxOperation.valueOf(name.trim().toUpperCase()));
+            }
+            return new Settings(operations, Config.getLong("KNOX_GZIP_MIN_BYTES", 1024));
+        }
+
+        public static Settings disabled() {
+            return new Settings(EnumSet.noneOf(KnoxOperation.class), 0);
+        }
+
+        public boolean isEnabled() { return !operations.isEmpty(); }
+    }
+
+    private final Settings settings;
+    private final KnoxMetrics metrics;
+    private final Set<KnoxOperation> refused = ConcurrentHashMap.newKeySet();
+
+    public GzipRequestInterceptor(Settings settings, KnoxMetrics metrics) {
+        this.settings = settings;
+        this.metrics = metrics;
+        metrics.gauge("gzip.bytesSaved", () -> metrics.counter("gzip.bytesIn") - metrics.counter("gzip.bytesOut"));
+        metrics.gauge("gzip.ratio", () -> {
+            long in = metrics.counter("gzip.bytesIn");
+            return in == 0 ? 1.0 : (double) metrics.counter("gzip.bytesOut") / in;
+        });
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        KnoxOperation operation = request.tag(KnoxOperation.class);
+        RequestBody body = request.body();
+        if (operation == null || body == null || !settings.operations.contains(operation) || refused.contains(operation)
+                || request.header("Content-Encoding") != null) {
+            return chain.proceed(request);
+        }
+        long length = body.contentLength();
+        if (length >= 0 && length < settings.minBytes) {
+            return chain.proceed(request);
+        }
+        Request compressed = request.newBuilder()
+                .header("Content-Encoding", "gzip")
+                .method(request.method(), new GzipBody(body))
+                .build();
+        Response response = chain.proceed(compressed);
+        if (response.code() == 415 && !body.isOneShot()) {
+            log.warn("{} rejected gzip request body (415); sending uncompressed from now on", operation);
+            refused.add(operation);
+            response.close();
+            return chain.proceed(request);
+        }
+        return response;
+    }
+
+    private final class GzipBody extends RequestBody {
+        private final RequestBody delegate;
+
+        GzipBody(RequestBody delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+
+        @Override
+        public boolean isOneShot() {
+            return delegate.isOneShot();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            CountingSink compressedOut = new CountingSink(sink);
+            CountingSink plainIn;
+            try (BufferedSink gzip = Okio.buffer(plainIn = new CountingSink(new GzipSink(compressedOut)))) {
+                delegate.writeTo(gzip);
+            }
+            metrics.increment("gzip.requests");
+            metrics.increment("gzip.bytesIn", plainIn.bytes);
+            metrics.increment("gzip.bytesOut", compressedOut.bytes);
+        }
+    }
+
+    private static final class CountingSink extends ForwardingSink {
+        long bytes;
+
+        CountingSink(Sink delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void write(Buffer source, long byteCount) throws IOException {
+            super.write(source, byteCount);
+            bytes += byteCount;
+        }
+    }
+}
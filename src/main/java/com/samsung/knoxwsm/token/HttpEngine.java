@@ -0,0 +1,49 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Wire-level HTTP implementation underneath {@link KnoxTransport}. Requests and responses stay OkHttp model
+ * objects, so clients, retries, breakers, limiters, hedging and the gzip interceptor work the same with every
+ * engine; only the final network exchange is swapped. An engine other than {@link #OKHTTP} runs as the last
+ * application interceptor and takes read/write timeouts and cancellation from the chain.
+ */
+public interface HttpEngine {
+    /** OkHttp's own connection pool and protocol stack (default). */
+    HttpEngine OKHTTP = chain -> chain.proceed(chain.request());
+
+    /** Send {@code chain.request()} and return the response with a streaming body. */
+    Response execute(Interceptor.Chain chain) throws IOException;
+
+    /** From KNOX_HTTP_ENGINE: {@code okhttp} (default) or {@code jdk} ({@link JdkHttpEngine}). */
+    static HttpEngine fromConfig() {
+        String name = Config.get("KNOX_HTTP_ENGINE", "okhttp").trim().toLowerCase();
+        return switch (name) {
+            case "okhttp", "" -> OKHTTP;
+            case "jdk" -> JdkHttpEngine.fromConfig();
+            default -> throw new IllegalArgumentException("KNOX_HTTP_ENGINE must be okhttp or jdk: " + name);
+        };
+    }
+}
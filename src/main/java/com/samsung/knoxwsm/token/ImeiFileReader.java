@@ -0,0 +1,230 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Reads IMEI list files ({@code data/imeis-*.txt}: one IMEI per line, blank and {@code #} lines skipped)
+ * without decoding text. The file is memory-mapped in regions and scanned byte by byte; each line is parsed
+ * straight to a {@code long} while its Luhn sum is accumulated, so valid lines allocate nothing. Lines that are
+ * not 15 digits with a correct check digit are reported with their 1-based line number; only those allocate
+ * (a short excerpt of the line). Surrounding whitespace, CRLF endings and a UTF-8 BOM are accepted.
+ * <p>
+ * IMEIs are held as {@code long}s; use {@link #format(long)} to get the 15-digit string back (leading zeros
+ * included).
+ */
+public final class ImeiFileReader {
+    private static final long MAP_REGION_BYTES = 1L << 30;
+    private static final int EXCERPT_BYTES = 64;
+
+    /** Why a line was rejected. */
+    public enum Reason { LENGTH, NOT_A_DIGIT, CHECK_DIGIT }
+
+    /** A rejected line; {@code text} is at most the first 64 bytes. */
+    public record InvalidLine(long lineNumber, Reason reason, String text) { }
+
+    /** Valid IMEIs in file order plus every rejected line. */
+    public record Result(long[] imeis, List<InvalidLine> invalidLines) {
+        public int size() { return imeis.length; }
+    }
+
+    private ImeiFileReader() { }
+
+    /** Read the whole file into a {@code long[]} (8 bytes per IMEI). */
+    public static Result read(Path file) throws IOException {
+        LongArray imeis = new LongArray();
+        List<InvalidLine> invalid = new ArrayList<>();
+        scan(file, imeis, invalid::add);
+        return new Result(imeis.toArray(), Collections.unmodifiableList(invalid));
+    }
+
+    /** Stream every valid IMEI to {@code imeis} and every rejected line to {@code invalid}, in file order. */
+    public static void scan(Path file, LongConsumer imeis, Consumer<InvalidLine> invalid) throws IOException {
+        scan(file, imeis, invalid, MAP_REGION_BYTES);
+    }
+
+    static void scan(Path file, LongConsumer imeis, Consumer<InvalidLine> invalid, long regionBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            LineParser parser = new LineParser(channel, imeis, invalid);
+            for (long position = 0; position < size; position += regionBytes) {
+                int length = (int) Math.min(regionBytes, size - position);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                parser.feed(region, position, length);
+            }
+            parser.finish(size);
+        }
+    }
+
+    /** Luhn check of a 15-digit IMEI held as a {@code long}. */
+    public static boolean isValid(long imei) {
+        if (imei < 0 || imei > 999_999_999_999_999L) return false;
+        int sum = 0;
+        for (int position = 0; position < 15; position++, imei /= 10) {
+            int digit = (int) (imei % 10);
+            // every second digit from the right (the check digit is position 0) is doubled
+            if ((position & 1) == 1) digit = digit * 2 > 9 ? digit * 2 - 9 : digit * 2;
+            sum += digit;
+        }
+        return sum % 10 == 0;
+    }
+
+    /** {@code text} as an IMEI if it is exactly 15 digits with a valid check digit (surrounding whitespace allowed), else -1. */
+    public static long parse(CharSequence text) {
+        if (text == null) return -1;
+        int start = 0, end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) start++;
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+        if (end - start != 15) return -1;
+        long imei = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            imei = imei * 10 + (c - '0');
+        }
+        return isValid(imei) ? imei : -1;
+    }
+
+    /** The 15-digit form of {@code imei}, zero-padded. */
+    public static String format(long imei) {
+        String digits = Long.toString(imei);
+        return digits.length() >= 15 ? digits : "0".repeat(15 - digits.length()) + digits;
+    }
+
+    /**
+     * Per-line state machine. Carries its state across region boundaries, so a line split between two
+     * mappings parses the same as any other.
+     */
+    private static final class LineParser {
+        private final FileChannel channel;
+        private final LongConsumer imeis;
+        private final Consumer<InvalidLine> invalid;
+        private long lineNumber = 1;
+        private long lineStart;
+        private int digits;
+        private long value;
+        private int luhnSum;
+        private Reason bad;
+        private boolean content;
+        private boolean comment;
+        private boolean trailingSpace;
+
+        LineParser(FileChannel channel, LongConsumer imeis, Consumer<InvalidLine> invalid) {
+            this.channel = channel;
+            this.imeis = imeis;
+            this.invalid = invalid;
+        }
+
+        void feed(ByteBuffer region, long regionStart, int length) throws IOException {
+            int i = 0;
+            if (regionStart == 0 && length >= 3 && region.get(0) == (byte) 0xEF && region.get(1) == (byte) 0xBB && region.get(2) == (byte) 0xBF) {
+                i = 3;
+                lineStart = 3;
+            }
+            for (; i < length; i++) {
+                byte b = region.get(i);
+                if (b == '\n') {
+                    endLine(regionStart + i);
+                } else if (b == ' ' || b == '\t' || b == '\r') {
+                    if (digits > 0 || bad != null) trailingSpace = true;
+                } else if (comment) {
+                    continue;
+                } else if (!content && b == '#') {
+                    content = true;
+                    comment = true;
+                } else {
+                    content = true;
+                    if (bad != null) continue;
+                    if (trailingSpace || b < '0' || b > '9') {
+                        bad = Reason.NOT_A_DIGIT;
+                    } else if (++digits <= 15) {
+                        int digit = b - '0';
+                        value = value * 10 + digit;
+                        // 15 digits: the check digit is 15th from the left, so the even positions are doubled
+                        if ((digits & 1) == 0) digit = digit * 2 > 9 ? digit * 2 - 9 : digit * 2;
+                        luhnSum += digit;
+                    }
+                }
+            }
+        }
+
+        void finish(long size) throws IOException {
+            if (content) endLine(size);
+        }
+
+        private void endLine(long end) throws IOException {
+            if (content && !comment) {
+                Reason reason = bad != null ? bad : digits != 15 ? Reason.LENGTH : luhnSum % 10 != 0 ? Reason.CHECK_DIGIT : null;
+                if (reason == null) {
+                    imeis.accept(value);
+                } else {
+                    invalid.accept(new InvalidLine(lineNumber, reason, excerpt(lineStart, end)));
+                }
+            }
+            lineNumber++;
+            lineStart = end + 1;
+            digits = 0;
+            value = 0;
+            luhnSum = 0;
+            bad = null;
+            content = false;
+            comment = false;
+            trailingSpace = false;
+        }
+
+        private String excerpt(long start, long end) throws IOException {
+            ByteBuffer bytes = ByteBuffer.allocate((int) Math.min(EXCERPT_BYTES, end - start));
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes, start + bytes.position()) <= 0) break;
+            }
+            return new String(bytes.array(), 0, bytes.position(), StandardCharsets.UTF_8).strip();
+        }
+    }
+
+    /** Growable primitive array, so loading does not box. */
+    private static final class LongArray implements LongConsumer {
+        private long[] values = new long[1024];
+        private int size;
+
+        @Override
+        public void accept(long value) {
+            if (size == values.length) values = Arrays.copyOf(values, values.length * 2);
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
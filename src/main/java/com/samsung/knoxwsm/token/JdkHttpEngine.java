@@ -0,0 +1,167 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Pipe;
+
+/**
+ * {@link HttpEngine} on the JDK's {@link HttpClient}: HTTP/2 with HTTP/1.1 fallback, and virtual threads for
+ * the client's internal work. Request bodies up to {@value #BUFFERED_BODY_MAX} bytes are sent from memory;
+ * larger or unknown-length bodies (streamed uploads) are piped through a virtual thread without buffering.
+ * Cancelling the OkHttp call (call timeout, losing hedge) cancels the exchange. OkHttp's disk cache and
+ * transparent response gzip sit below the application interceptors and therefore do not apply.
+ */
+public class JdkHttpEngine implements HttpEngine {
+    private static final long BUFFERED_BODY_MAX = 1024 * 1024;
+    private static final long CANCEL_POLL_MILLIS = 50;
+    // Managed by HttpClient itself; setting them is rejected.
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    private final HttpClient client;
+
+    public JdkHttpEngine(HttpClient client) {
+        this.client = client;
+    }
+
+    /** Client with KNOX_HTTP_CONNECT_TIMEOUT_MS (10000) and HTTP/2 unless KNOX_HTTP_PROTOCOLS omits {@code h2}. */
+    public static JdkHttpEngine fromConfig() {
+        boolean h2 = Config.get("KNOX_HTTP_PROTOCOLS", "h2,http/1.1").toLowerCase().contains("h2");
+        return new JdkHttpEngine(HttpClient.newBuilder()
+                .version(h2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(Config.getLong("KNOX_HTTP_CONNECT_TIMEOUT_MS", 10_000)))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build());
+    }
+
+    public HttpClient httpClient() { return client; }
+
+    @Override
+    public Response execute(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(request.url().toString()))
+                .method(request.method(), publisher(request.body()));
+        if (chain.readTimeoutMillis() > 0) builder.timeout(Duration.ofMillis(chain.readTimeoutMillis()));
+        for (String name : request.headers().names()) {
+            if (RESTRICTED_HEADERS.contains(name.toLowerCase())) continue;
+            for (String value : request.headers(name)) builder.header(name, value);
+        }
+        RequestBody body = request.body();
+        if (body != null && body.contentType() != null && request.header("Content-Type") == null) {
+            builder.header("Content-Type", body.contentType().toString());
+        }
+        long sentAt = System.currentTimeMillis();
+        HttpResponse<InputStream> response = await(chain, client.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofInputStream()));
+        return toResponse(request, response, sentAt, System.currentTimeMillis());
+    }
+
+    private static HttpRequest.BodyPublisher publisher(RequestBody body) throws IOException {
+        if (body == null) return HttpRequest.BodyPublishers.noBody();
+        long length = body.contentLength();
+        if (length >= 0 && length <= BUFFERED_BODY_MAX && !body.isOneShot()) {
+            Buffer buffer = new Buffer();
+            body.writeTo(buffer);
+            return HttpRequest.BodyPublishers.ofByteArray(buffer.readByteArray());
+        }
+        Pipe pipe = new Pipe(64 * 1024);
+        Thread.ofVirtual().name("knox-jdk-body").start(() -> {
+            try (BufferedSink sink = Okio.buffer(pipe.sink())) {
+                body.writeTo(sink);
+            } catch (IOException e) {
+                // fail the read side rather than sending a truncated body
+                pipe.cancel();
+            }
+        });
+        HttpRequest.BodyPublisher stream = HttpRequest.BodyPublishers.ofInputStream(() -> Okio.buffer(pipe.source()).inputStream());
+        return length >= 0 ? HttpRequest.BodyPublishers.fromPublisher(stream, length) : stream;
+    }
+
+    private static HttpResponse<InputStream> await(Interceptor.Chain chain, CompletableFuture<HttpResponse<InputStream>> pending) throws IOException {
+        while (true) {
+            try {
+                return pending.get(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (chain.call().isCanceled()) {
+                    pending.cancel(true);
+                    throw new IOException("Canceled");
+                }
+            } catch (InterruptedException e) {
+                pending.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for response");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) throw io;
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    private static Response toResponse(Request request, HttpResponse<InputStream> response, long sentAt, long receivedAt) {
+        Headers.Builder headers = new Headers.Builder();
+        HttpHeaders jdkHeaders = response.headers();
+        for (Map.Entry<String, List<String>> header : jdkHeaders.map().entrySet()) {
+            if (header.getKey().startsWith(":")) continue;
+            for (String value : header.getValue()) headers.addUnsafeNonAscii(header.getKey(), value);
+        }
+        String contentType = jdkHeaders.firstValue("Content-Type").orElse(null);
+        long contentLength = jdkHeaders.firstValueAsLong("Content-Length").orElse(-1);
+        ResponseBody body = ResponseBody.create(Okio.buffer(Okio.source(response.body())),
+                contentType == null ? null : MediaType.parse(contentType), contentLength);
+        return new Response.Builder()
+                .request(request)
+                .protocol(response.version() == HttpClient.Version.HTTP_2 ? Protocol.HTTP_2 : Protocol.HTTP_1_1)
+                .code(response.statusCode())
+                .message("")
+                .headers(headers.build())
+                .body(body)
+                .sentRequestAtMillis(sentAt)
+                .receivedResponseAtMillis(receivedAt)
+                .build();
+    }
+}
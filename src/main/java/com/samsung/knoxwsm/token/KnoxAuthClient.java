@@ -1,12 +1,12 @@
 /*
  * Copyright 2025 Samsung
- *
+ * 
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
- *
+ * 
  *     http://www.apache.org/licenses/LICENSE-2.0
- *
+ * 
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -36,7 +36,7 @@ package com.samsung.knoxwsm.token;
  */
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import okhttp3.OkHttpClient;
+import okhttp3.HttpUrl;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.RequestBody;
@@ -44,8 +44,14 @@ import okhttp3.MediaType;
 // Removed unused Headers import
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -82,10 +88,20 @@ public class KnoxAuthClient {
             default -> "https://" + region + "-kcs-api.samsungknox.com/kcs/v1.1/kg";
         };
     }
+    // KNOX_API_BASE_URLS / KNOX_GUARD_FUNCTION_BASE_URLS: comma-separated equivalent URLs, primary first
+    private static List<String> baseUrlsFromConfig(String key, String fallback) {
+        List<String> urls = new ArrayList<>();
+        for (String url : Config.get(key, "").split(",")) {
+            if (!url.isBlank()) urls.add(url.trim());
+        }
+        return urls.isEmpty() ? List.of(fallback) : urls;
+    }
     // Desired API version (header + path injection only if not already present in base URL)
     protected static final String API_VERSION = System.getenv().getOrDefault("KNOX_API_VERSION", "v1");
     private final String apiBaseUrl;
     private final String guardFunctionBaseUrl; // for /devices/uploads etc.
+    private final BaseUrlPool apiPool; // null with a single URL
+    private final BaseUrlPool guardPool;
     // Build full URL ensuring we don't duplicate version segment when apiBaseUrl already ends with /vX or /vX.Y
     private String buildUrl(String relativePath) {
         String base = apiBaseUrl;
@@ -97,31 +113,51 @@ public class KnoxAuthClient {
     }
     private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
     private static final Logger log = LoggerFactory.getLogger(KnoxAuthClient.class);
-    private final OkHttpClient client;
+    private final KnoxTransport transport;
     private final ObjectMapper mapper;
 
     public KnoxAuthClient() {
-        this(resolveRegionalBaseUrl(), resolveGuardFunctionBaseUrl());
+        this(baseUrlsFromConfig("KNOX_API_BASE_URLS", resolveRegionalBaseUrl()),
+                baseUrlsFromConfig("KNOX_GUARD_FUNCTION_BASE_URLS", resolveGuardFunctionBaseUrl()), KnoxTransport.fromConfig());
     }
 
     public KnoxAuthClient(String apiBaseUrl) {
-        this(apiBaseUrl, resolveGuardFunctionBaseUrl());
+        this(List.of(apiBaseUrl), baseUrlsFromConfig("KNOX_GUARD_FUNCTION_BASE_URLS", resolveGuardFunctionBaseUrl()), KnoxTransport.fromConfig());
     }
 
     public KnoxAuthClient(String apiBaseUrl, String guardFunctionBaseUrl) {
-        this.client = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .writeTimeout(30, TimeUnit.SECONDS)
-            .build();
+        this(apiBaseUrl, guardFunctionBaseUrl, KnoxTransport.fromConfig());
+    }
+
+    /** Construct with an explicit (possibly shared) transport carrying retry and connection settings. */
+    public KnoxAuthClient(String apiBaseUrl, String guardFunctionBaseUrl, KnoxTransport transport) {
+        this(List.of(apiBaseUrl), List.of(guardFunctionBaseUrl), transport);
+    }
+
+    /**
+     * Construct with ordered lists of equivalent base URLs (primary first). With more than one URL per list,
+     * calls go to the healthiest one and fail over automatically (see {@link BaseUrlPool}).
+     */
+    public KnoxAuthClient(List<String> apiBaseUrls, List<String> guardFunctionBaseUrls, KnoxTransport transport) {
+        if (transport == null) throw new IllegalArgumentException("transport required");
+        if (apiBaseUrls.isEmpty() || guardFunctionBaseUrls.isEmpty()) throw new IllegalArgumentException("base URL required");
+        this.transport = transport;
         this.mapper = new ObjectMapper();
         // normalize remove trailing slash
-        this.apiBaseUrl = apiBaseUrl.replaceAll("/+$$", "");
-        this.guardFunctionBaseUrl = guardFunctionBaseUrl.replaceAll("/+$$", "");
+        this.apiBaseUrl = apiBaseUrls.get(0).replaceAll("/+$$", "");
+        this.guardFunctionBaseUrl = guardFunctionBaseUrls.get(0).replaceAll("/+$$", "");
+        this.apiPool = pool("api", apiBaseUrls);
+        this.guardPool = pool("guard", guardFunctionBaseUrls);
+    }
+
+    private BaseUrlPool pool(String name, List<String> baseUrls) {
+        return baseUrls.size() < 2 ? null : new BaseUrlPool(name, baseUrls, transport.failoverSettings(), transport.metrics());
     }
 
     /**
      * Request an access token using a client identifier JWT.
+     * Concurrent calls for the same client, public key and validity (e.g. workers starting together) share one
+     * request to {@code /ses/token}; the JWT of the first caller is used. The client is the JWT's subject.
      *
      * @param publicKey Base64-encoded public key
      * @param clientIdentifierJwt JWT token containing client identity claims
@@ -134,6 +170,17 @@ public class KnoxAuthClient {
             String clientIdentifierJwt,
             int validityMinutes
     ) throws IOException {
+        return coalesced(List.of("token", apiBaseUrl, clientIdentity(clientIdentifierJwt), publicKey, validityMinutes, Map.class), () -> send(tokenRequest(publicKey, clientIdentifierJwt, validityMinutes),
+                KnoxOperation.REQUEST_TOKEN, "request access token", KnoxAuthClient::tokenSuggestion, Map.class));
+    }
+
+    /** Typed variant of {@link #requestAccessToken(String, String, int)}, parsed directly from the response stream. */
+    public AccessToken requestToken(String publicKey, String clientIdentifierJwt, int validityMinutes) throws IOException {
+        return coalesced(List.of("token", apiBaseUrl, clientIdentity(clientIdentifierJwt), publicKey, validityMinutes, AccessToken.class), () -> send(tokenRequest(publicKey, clientIdentifierJwt, validityMinutes),
+                KnoxOperation.REQUEST_TOKEN, "request access token", KnoxAuthClient::tokenSuggestion, AccessToken.class));
+    }
+
+    private Request tokenRequest(String publicKey, String clientIdentifierJwt, int validityMinutes) throws IOException {
         if (validityMinutes < 15 || validityMinutes > 60) {
             throw new IllegalArgumentException("Validity period must be between 15 and 60 minutes");
         }
@@ -143,7 +190,8 @@ public class KnoxAuthClient {
             "validityForAccessTokenInMinutes", validityMinutes
         ));
 
-        Request request = new Request.Builder()
+        log.debug("Requesting access token validityMinutes={}", validityMinutes);
+        return new Request.Builder()
             .url(buildUrl("/ses/token"))
             .header("Content-Type", "application/json")
             .header("Accept", "application/json")
@@ -151,23 +199,29 @@ public class KnoxAuthClient {
             .header("X-KNOX-API-VERSION", API_VERSION)
             .post(RequestBody.create(requestBody, JSON))
             .build();
+    }
 
-        log.debug("Requesting access token validityMinutes={}", validityMinutes);
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                log.warn("Access token request failed status={} url={}", response.code(), request.url());
-                throw buildApiException(response, "request access token",
-                        "401".equals(String.valueOf(response.code())) ?
-                            "Verify the JWT signature, client ID, and that the public key is registered in the Knox portal." : null);
+    /** Subject (client identifier) of a client identity JWT, read without verifying it; the whole JWT if it has none. */
+    private String clientIdentity(String clientIdentifierJwt) {
+        String[] parts = String.valueOf(clientIdentifierJwt).split("\\.");
+        if (parts.length >= 2) {
+            try {
+                Object subject = mapper.readValue(Base64.getUrlDecoder().decode(parts[1]), Map.class).get("sub");
+                if (subject != null) return subject.toString();
+            } catch (IllegalArgumentException | IOException e) {
+                log.debug("Client identifier JWT payload not readable, coalescing on the whole JWT");
             }
-            String responseBody = safeBodyString(response);
-            log.debug("Access token response length={}", responseBody.length());
-            return mapper.readValue(responseBody, Map.class);
         }
+        return String.valueOf(clientIdentifierJwt);
+    }
+
+    private static String tokenSuggestion(int code) {
+        return code == 401 ? "Verify the JWT signature, client ID, and that the public key is registered in the Knox portal." : null;
     }
 
     /**
      * Refresh an access token using a refresh token.
+     * Concurrent refreshes with the same refresh token (e.g. after a shared 401) share one request.
      *
      * @param publicKey Base64-encoded public key
      * @param refreshToken The refresh token from a previous token response
@@ -180,6 +234,17 @@ public class KnoxAuthClient {
             String refreshToken,
             int validityMinutes
     ) throws IOException {
+        return coalesced(List.of("refresh", apiBaseUrl, publicKey, refreshToken, validityMinutes, Map.class), () -> send(refreshRequest(publicKey, refreshToken, validityMinutes),
+                KnoxOperation.REFRESH_TOKEN, "refresh access token", code -> null, Map.class));
+    }
+
+    /** Typed variant of {@link #refreshAccessToken(String, String, int)}. */
+    public AccessToken refreshToken(String publicKey, String refreshToken, int validityMinutes) throws IOException {
+        return coalesced(List.of("refresh", apiBaseUrl, publicKey, refreshToken, validityMinutes, AccessToken.class), () -> send(refreshRequest(publicKey, refreshToken, validityMinutes),
+                KnoxOperation.REFRESH_TOKEN, "refresh access token", code -> null, AccessToken.class));
+    }
+
+    private Request refreshRequest(String publicKey, String refreshToken, int validityMinutes) throws IOException {
         if (validityMinutes < 15 || validityMinutes > 60) {
             throw new IllegalArgumentException("Validity period must be between 15 and 60 minutes");
         }
@@ -190,21 +255,12 @@ public class KnoxAuthClient {
             "validityForAccessTokenInMinutes", validityMinutes
         ));
 
-        Request request = new Request.Builder()
+        log.debug("Refreshing access token validityMinutes={}", validityMinutes);
+        return new Request.Builder()
             .url(buildUrl("/ses/token/refresh"))
             .header("X-KNOX-API-VERSION", API_VERSION)
             .post(RequestBody.create(requestBody, JSON))
             .build();
-
-        log.debug("Refreshing access token validityMinutes={}", validityMinutes);
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                log.warn("Refresh access token failed status={} url={}", response.code(), request.url());
-                throw buildApiException(response, "refresh access token", null);
-            }
-            String responseBody = safeBodyString(response);
-            return mapper.readValue(responseBody, Map.class);
-        }
     }
 
     /**
@@ -223,14 +279,7 @@ public class KnoxAuthClient {
             .build();
 
         log.debug("Validating access token");
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                log.warn("Validate access token failed status={} url={}", response.code(), request.url());
-                throw buildApiException(response, "validate access token", null);
-            }
-            String responseBody = safeBodyString(response);
-            return mapper.readValue(responseBody, Map.class);
-        }
+        return send(request, KnoxOperation.VALIDATE_TOKEN, "validate access token", code -> null, Map.class);
     }
 
     /**
@@ -261,15 +310,8 @@ public class KnoxAuthClient {
             .build();
 
         log.debug("Enrolling device clientId={} imei={}", clientId, deviceImei);
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                log.warn("Device enrollment failed status={} url={}", response.code(), request.url());
-                throw buildApiException(response, "enroll device in Knox Guard",
-                        response.code() == 400 ? "Check IMEI format and clientId correctness." : null);
-            }
-            String responseBody = safeBodyString(response);
-            return mapper.readValue(responseBody, Map.class);
-        }
+        return send(request, KnoxOperation.ENROLL_DEVICE, "enroll device in Knox Guard",
+                code -> code == 400 ? "Check IMEI format and clientId correctness." : null, Map.class);
     }
 
     /**
@@ -279,59 +321,99 @@ public class KnoxAuthClient {
      * @return parsed response map
      */
     public Map<String,Object> uploadDevices(String accessToken, String uploadPayload) throws IOException {
+        return uploadDevices(accessToken, payloadBody(uploadPayload));
+    }
+
+    /**
+     * Upload with a caller-supplied body, e.g. {@link JsonFileRequestBody} or {@link DeviceListRequestBody},
+     * streamed to the connection without buffering the payload in memory.
+     */
+    public Map<String,Object> uploadDevices(String accessToken, RequestBody uploadBody) throws IOException {
+        return send(uploadRequest(accessToken, uploadBody), KnoxOperation.UPLOAD_DEVICES, "upload devices", code -> null, Map.class);
+    }
+
+    /** Typed variant of {@link #uploadDevices(String, String)}; the summary carries the new uploadId. */
+    public UploadSummary submitUpload(String accessToken, String uploadPayload) throws IOException {
+        return submitUpload(accessToken, payloadBody(uploadPayload));
+    }
+
+    /** Typed variant of {@link #uploadDevices(String, RequestBody)}. */
+    public UploadSummary submitUpload(String accessToken, RequestBody uploadBody) throws IOException {
+        return send(uploadRequest(accessToken, uploadBody), KnoxOperation.UPLOAD_DEVICES, "upload devices", code -> null, UploadSummary.class);
+    }
+
+    private static RequestBody payloadBody(String uploadPayload) {
         if (uploadPayload == null || uploadPayload.isBlank()) throw new IllegalArgumentException("uploadPayload required");
+        return RequestBody.create(uploadPayload, JSON);
+    }
+
+    private Request uploadRequest(String accessToken, RequestBody uploadBody) throws IOException {
+        if (uploadBody == null) throw new IllegalArgumentException("uploadBody required");
         String url = guardFunctionBaseUrl + "/devices/uploads";
-        Request request = new Request.Builder()
+        log.debug("Uploading devices payloadSize={}", uploadBody.contentLength());
+        return new Request.Builder()
             .url(url)
             .header("x-knox-apitoken", accessToken)
             .header("X-KNOX-API-VERSION", API_VERSION)
-            .post(RequestBody.create(uploadPayload, JSON))
+            .post(uploadBody)
             .build();
-        log.debug("Uploading devices payloadSize={}", uploadPayload.length());
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                log.warn("Device upload failed status={} url={}", response.code(), request.url());
-                throw buildApiException(response, "upload devices", null);
-            }
-            return mapper.readValue(safeBodyString(response), Map.class);
-        }
     }
 
     /** List device uploads (last 1000). */
     public Map<String,Object> listDeviceUploads(String accessToken) throws IOException {
+        return send(listUploadsRequest(accessToken), KnoxOperation.LIST_UPLOADS, "list device uploads", code -> null, Map.class);
+    }
+
+    /** Typed variant of {@link #listDeviceUploads(String)}. */
+    public UploadPage listUploadPage(String accessToken) throws IOException {
+        return send(listUploadsRequest(accessToken), KnoxOperation.LIST_UPLOADS, "list device uploads", code -> null, UploadPage.class);
+    }
+
+    private Request listUploadsRequest(String accessToken) {
         String url = guardFunctionBaseUrl + "/devices/uploads";
-        Request request = new Request.Builder()
+        log.debug("Listing device uploads");
+        return new Request.Builder()
             .url(url)
             .header("x-knox-apitoken", accessToken)
             .header("X-KNOX-API-VERSION", API_VERSION)
             .get().build();
-        log.debug("Listing device uploads");
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                log.warn("List uploads failed status={} url={}", response.code(), request.url());
-                throw buildApiException(response, "list device uploads", null);
-            }
-            return mapper.readValue(safeBodyString(response), Map.class);
-        }
+    }
+
+    /**
+     * Lazily page through the upload history matching {@code query}. Pages are fetched on demand (the next
+     * one prefetched in the background) and parsed with a streaming parser, so memory stays bounded by the
+     * page size. Close the stream (try-with-resources) when stopping early. Page failures surface as
+     * {@link java.io.UncheckedIOException} wrapping the {@link KnoxApiException}.
+     */
+    public Stream<UploadSummary> streamUploads(String accessToken, UploadQuery query) {
+        HttpUrl url = HttpUrl.get(guardFunctionBaseUrl + "/devices/uploads");
+        log.debug("Streaming device uploads {}", query);
+        return UploadPager.stream(transport, mapper, query, pageNum -> routed(new Request.Builder()
+            .url(query.applyTo(url.newBuilder(), pageNum).build())
+            .header("x-knox-apitoken", accessToken)
+            .header("X-KNOX-API-VERSION", API_VERSION)
+            .get().build()));
     }
 
     /** Get upload details by uploadId. */
     public Map<String,Object> getUploadById(String accessToken, String uploadId) throws IOException {
+        return send(uploadDetailRequest(accessToken, uploadId), KnoxOperation.GET_UPLOAD, "get upload details", code -> null, Map.class);
+    }
+
+    /** Typed variant of {@link #getUploadById(String, String)} including per-device status. */
+    public UploadDetail getUploadDetail(String accessToken, String uploadId) throws IOException {
+        return send(uploadDetailRequest(accessToken, uploadId), KnoxOperation.GET_UPLOAD, "get upload details", code -> null, UploadDetail.class);
+    }
+
+    private Request uploadDetailRequest(String accessToken, String uploadId) {
         if (uploadId == null || uploadId.isBlank()) throw new IllegalArgumentException("uploadId required");
         String url = guardFunctionBaseUrl + "/devices/uploads/" + uploadId;
-        Request request = new Request.Builder()
+        log.debug("Fetching uploadId={}", uploadId);
+        return new Request.Builder()
             .url(url)
             .header("x-knox-apitoken", accessToken)
             .header("X-KNOX-API-VERSION", API_VERSION)
             .get().build();
-        log.debug("Fetching uploadId={}", uploadId);
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                log.warn("Get upload failed status={} id={} url={}", response.code(), uploadId, request.url());
-                throw buildApiException(response, "get upload details", null);
-            }
-            return mapper.readValue(safeBodyString(response), Map.class);
-        }
     }
 
     /**
@@ -357,13 +439,7 @@ public class KnoxAuthClient {
             .post(RequestBody.create(requestBody, JSON))
             .build();
         log.debug("Unlocking device imei={}", deviceImei);
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                log.warn("Unlock device failed status={} url={}", response.code(), request.url());
-                throw buildApiException(response, "unlock device", null);
-            }
-            return mapper.readValue(safeBodyString(response), Map.class);
-        }
+        return send(request, KnoxOperation.UNLOCK_DEVICE, "unlock device", code -> null, Map.class);
     }
 
     /**
@@ -379,6 +455,37 @@ public class KnoxAuthClient {
         return combined;
     }
 
+    /**
+     * Execute through the transport and bind a successful body to {@code type}, reading straight from the
+     * response stream (no intermediate String). Error bodies are still buffered for {@link KnoxApiException}.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T send(Request request, KnoxOperation operation, String action, IntFunction<String> suggestion, Class<?> type) throws IOException {
+        try (Response response = transport.execute(routed(request), operation)) {
+            if (!response.isSuccessful()) {
+                log.warn("Failed to {} status={} url={}", action, response.code(), request.url());
+                throw buildApiException(response, action, suggestion.apply(response.code()));
+            }
+            okhttp3.ResponseBody body = response.body();
+            if (body == null) throw new IOException("Empty response body while attempting to " + action);
+            try (InputStream in = body.byteStream()) {
+                return (T) mapper.readValue(in, type);
+            }
+        }
+    }
+
+    // Tag requests built against a pool's primary URL so the transport can route and fail over per attempt.
+    private Request routed(Request request) {
+        BaseUrlPool pool = guardPool != null && guardPool.covers(request.url()) ? guardPool
+                : apiPool != null && apiPool.covers(request.url()) ? apiPool : null;
+        return pool == null ? request : request.newBuilder().tag(BaseUrlPool.class, pool).build();
+    }
+
+    // Key includes the result type: the Map and record variants must not hand each other's result out.
+    private <T> T coalesced(List<Object> key, SingleFlight.IOCall<T> call) throws IOException {
+        return transport.singleFlight().execute(key, call);
+    }
+
     // Helper to read body safely without NPE.
     private String safeBodyString(Response response) throws IOException {
         if (response == null) {
@@ -398,6 +505,7 @@ public class KnoxAuthClient {
                 case 401 -> suggestion = "Unauthorized while attempting to " + action + ". Confirm JWT validity, time skew, and public key registration.";
                 case 403 -> suggestion = "Forbidden while attempting to " + action + ". Check that the account/service has Knox Guard permissions.";
                 case 404 -> suggestion = "Endpoint not found; confirm base URL (" + apiBaseUrl + ") is correct.";
+                case 429 -> suggestion = "Rate limited while attempting to " + action + " (retries exhausted). Lower concurrency or raise KNOX_RETRY_MAX_ATTEMPTS.";
                 default -> {
                     if (code >= 500) suggestion = "Server error (" + code + ") while attempting to " + action + ". Retry later or contact Samsung support.";
                     else suggestion = "HTTP " + code + " returned while attempting to " + action + ".";
@@ -407,4 +515,27 @@ public class KnoxAuthClient {
         return new KnoxApiException(code, body, suggestion);
     }
 
+    /** Base URL of the Guard functional API (device uploads), e.g. for a {@link KnoxGuardClient} sharing this transport. */
+    public String getGuardFunctionBaseUrl() { return guardFunctionBaseUrl; }
+
+    /** Failover pool of the token/enroll API URLs, or null when only one is configured. */
+    public BaseUrlPool getApiBaseUrlPool() { return apiPool; }
+
+    /** Failover pool of the Guard functional API URLs, or null when only one is configured. */
+    public BaseUrlPool getGuardBaseUrlPool() { return guardPool; }
+
+    /** Transport used by this client; pass it to other clients or bulk helpers to share connections and policies. */
+    public KnoxTransport getTransport() { return transport; }
+
+    /**
+     * Start connecting to the token and Guard API hosts in the background (see {@link KnoxTransport#prewarm}),
+     * e.g. while keys are loaded and the client JWT is signed. Callers need not wait on the result.
+     */
+    public CompletableFuture<Void> prewarm() {
+        List<String> baseUrls = new ArrayList<>();
+        baseUrls.addAll(apiPool != null ? apiPool.baseUrls() : List.of(apiBaseUrl));
+        baseUrls.addAll(guardPool != null ? guardPool.baseUrls() : List.of(guardFunctionBaseUrl));
+        return transport.prewarm(baseUrls.toArray(new String[0]));
+    }
+
 }
@@ -24,17 +24,18 @@ package com.samsung.knoxwsm.token;
  * #L%
  */
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 import okhttp3.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 /**
  * Knox Guard domain client (device upload & related queries) leveraging existing region logic.
@@ -42,8 +43,9 @@ import java.util.concurrent.TimeUnit;
  */
 public class KnoxGuardClient {
     private static final Logger log = LoggerFactory.getLogger(KnoxGuardClient.class);
-    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
-    private final OkHttpClient http;
+    private static final JavaType MAP_TYPE =
+            TypeFactory.defaultInstance().constructMapType(Map.class, String.class, Object.class);
+    private final KnoxTransport transport;
     private final ObjectMapper mapper;
     // Expected to be like https://us-api.samsungknox.com/kcs/v1 OR v1.1
     private final String base;
@@ -53,11 +55,15 @@ public class KnoxGuardClient {
     }
 
     public KnoxGuardClient(String baseUrl) {
-        this.http = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
+        this(baseUrl, KnoxTransport.fromConfig());
+    }
+
+    /** Construct with an explicit (possibly shared) transport carrying retry and connection settings. */
+    public KnoxGuardClient(String baseUrl, KnoxTransport transport) {
+        if (transport == null) {
+            throw new IllegalArgumentException("transport required");
+        }
+        this.transport = transport;
         this.mapper = new ObjectMapper();
         this.base = baseUrl.replaceAll("/+$$", "");
     }
@@ -79,6 +85,11 @@ public class KnoxGuardClient {
         }
     }
 
+    /** Transport used by this client; share it with other clients to pool connections and policies. */
+    public KnoxTransport getTransport() {
+        return transport;
+    }
+
     private String buildUrl(String relativePath) {
         String path = relativePath.startsWith("/") ? relativePath : "/" + relativePath;
         // base already includes version selection outside (we keep same heuristic as auth)
@@ -94,72 +105,132 @@ public class KnoxGuardClient {
             String accessToken,
             List<Map<String, Object>> deviceList,
             Map<String, Object> policyFlags) throws IOException {
+        return send(uploadRequest(accessToken, deviceList, policyFlags), KnoxOperation.UPLOAD_DEVICES,
+                "Upload devices failed", MAP_TYPE);
+    }
+
+    /** Typed variant of {@link #uploadDevices(String, List, Map)}; the summary carries the new uploadId. */
+    public UploadSummary submitUpload(
+            String accessToken,
+            List<Map<String, Object>> deviceList,
+            Map<String, Object> policyFlags) throws IOException {
+        return send(uploadRequest(accessToken, deviceList, policyFlags), KnoxOperation.UPLOAD_DEVICES,
+                "Upload devices failed", mapper.constructType(UploadSummary.class));
+    }
+
+    /**
+     * Upload with a caller-supplied body, e.g. {@link DeviceListRequestBody#ofImeiFile} or
+     * {@link JsonFileRequestBody}, streamed to the connection without buffering the payload.
+     */
+    public Map<String, Object> uploadDevices(String accessToken, RequestBody uploadBody) throws IOException {
+        return send(uploadRequest(accessToken, uploadBody), KnoxOperation.UPLOAD_DEVICES, "Upload devices failed", MAP_TYPE);
+    }
+
+    /** Typed variant of {@link #uploadDevices(String, RequestBody)}. */
+    public UploadSummary submitUpload(String accessToken, RequestBody uploadBody) throws IOException {
+        return send(uploadRequest(accessToken, uploadBody), KnoxOperation.UPLOAD_DEVICES, "Upload devices failed",
+                mapper.constructType(UploadSummary.class));
+    }
+
+    private Request uploadRequest(
+            String accessToken,
+            List<Map<String, Object>> deviceList,
+            Map<String, Object> policyFlags) {
         if (deviceList == null || deviceList.isEmpty()) {
             throw new IllegalArgumentException("deviceList required");
         }
-        Map<String, Object> payload = new HashMap<>();
-        payload.put("deviceList", deviceList);
-        if (policyFlags != null) {
-            payload.putAll(policyFlags);
+        // Generated into the sink on write; replayable because the list can be iterated again.
+        return uploadRequest(accessToken, DeviceListRequestBody.of(deviceList, policyFlags));
+    }
+
+    private Request uploadRequest(String accessToken, RequestBody uploadBody) {
+        if (uploadBody == null) {
+            throw new IllegalArgumentException("uploadBody required");
         }
-        String body = mapper.writeValueAsString(payload);
-        Request req = new Request.Builder()
+        return new Request.Builder()
                 .url(buildUrl("/devices/uploads"))
                 .header("x-knox-apitoken", accessToken)
                 .header("X-KNOX-API-VERSION", apiVersionHeader())
-                .post(RequestBody.create(body, JSON))
+                .post(uploadBody)
                 .build();
-        try (Response resp = http.newCall(req).execute()) {
-            String raw = resp.body() == null ? "" : resp.body().string();
-            if (!resp.isSuccessful()) {
-                log.warn("Upload devices failed status={} bodySize={}", resp.code(), raw.length());
-                throw new KnoxApiException(resp.code(), raw, "Upload devices failed");
-            }
-            return mapper.readValue(raw, new TypeReference<Map<String, Object>>() { });
-        }
     }
 
     /** List recent uploads (last 1000). */
     public Map<String, Object> listUploads(String accessToken) throws IOException {
+        return send(listUploadsRequest(accessToken), KnoxOperation.LIST_UPLOADS, "List uploads failed", MAP_TYPE);
+    }
+
+    /** Typed variant of {@link #listUploads(String)}. */
+    public UploadPage listUploadPage(String accessToken) throws IOException {
+        return send(listUploadsRequest(accessToken), KnoxOperation.LIST_UPLOADS, "List uploads failed",
+                mapper.constructType(UploadPage.class));
+    }
+
+    private Request listUploadsRequest(String accessToken) {
         HttpUrl url = HttpUrl.parse(buildUrl("/devices/uploads"));
-        Request req = new Request.Builder()
+        return new Request.Builder()
                 .url(url)
                 .header("x-knox-apitoken", accessToken)
                 .header("X-KNOX-API-VERSION", apiVersionHeader())
                 .get()
                 .build();
-        try (Response resp = http.newCall(req).execute()) {
-            String raw = resp.body() == null ? "" : resp.body().string();
-            if (!resp.isSuccessful()) {
-                log.warn("List uploads failed status={} bodySize={}", resp.code(), raw.length());
-                throw new KnoxApiException(resp.code(), raw, "List uploads failed");
-            }
-            return mapper.readValue(raw, new TypeReference<Map<String, Object>>() { });
-        }
+    }
+
+    /**
+     * Lazily page through uploads matching {@code query}; see {@link KnoxAuthClient#streamUploads(String, UploadQuery)}.
+     * Close the stream when stopping early.
+     */
+    public Stream<UploadSummary> streamUploads(String accessToken, UploadQuery query) {
+        HttpUrl url = HttpUrl.get(buildUrl("/devices/uploads"));
+        return UploadPager.stream(transport, mapper, query, pageNum -> new Request.Builder()
+                .url(query.applyTo(url.newBuilder(), pageNum).build())
+                .header("x-knox-apitoken", accessToken)
+                .header("X-KNOX-API-VERSION", apiVersionHeader())
+                .get()
+                .build());
     }
 
     /** Get upload detail by uploadId (device statuses). */
     public Map<String, Object> getUploadById(String accessToken, String uploadId) throws IOException {
+        return send(uploadDetailRequest(accessToken, uploadId), KnoxOperation.GET_UPLOAD,
+                "Get upload failed", MAP_TYPE);
+    }
+
+    /** Typed variant of {@link #getUploadById(String, String)}. */
+    public UploadDetail getUploadDetail(String accessToken, String uploadId) throws IOException {
+        return send(uploadDetailRequest(accessToken, uploadId), KnoxOperation.GET_UPLOAD,
+                "Get upload failed", mapper.constructType(UploadDetail.class));
+    }
+
+    private Request uploadDetailRequest(String accessToken, String uploadId) {
         if (uploadId == null || uploadId.isBlank()) {
             throw new IllegalArgumentException("uploadId required");
         }
-        Request req = new Request.Builder()
+        return new Request.Builder()
                 .url(buildUrl("/devices/uploads/" + uploadId))
                 .header("x-knox-apitoken", accessToken)
                 .header("X-KNOX-API-VERSION", apiVersionHeader())
                 .get()
                 .build();
-        try (Response resp = http.newCall(req).execute()) {
-            String raw = resp.body() == null ? "" : resp.body().string();
+    }
+
+    /**
+     * Execute and bind a successful body to {@code type} straight from the response stream. Only error
+     * bodies are buffered as a String (for {@link KnoxApiException}).
+     */
+    private <T> T send(Request req, KnoxOperation operation, String failure, JavaType type) throws IOException {
+        try (Response resp = transport.execute(req, operation)) {
             if (!resp.isSuccessful()) {
-                log.warn(
-                        "Get upload {} failed status={} bodySize={}",
-                        uploadId,
-                        resp.code(),
-                        raw.length());
-                throw new KnoxApiException(resp.code(), raw, "Get upload failed");
+                String raw = resp.body() == null ? "" : resp.body().string();
+                log.warn("{} status={} url={} bodySize={}", failure, resp.code(), req.url(), raw.length());
+                throw new KnoxApiException(resp.code(), raw, failure);
+            }
+            if (resp.body() == null) {
+                throw new IOException(failure + ": empty response body");
+            }
+            try (InputStream in = resp.body().byteStream()) {
+                return mapper.readValue(in, type);
             }
-            return mapper.readValue(raw, new TypeReference<Map<String, Object>>() { });
         }
     }
 }
@@ -0,0 +1,64 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Minimal in-process metrics registry (counters + gauges) owned by a {@link KnoxTransport}.
+ * Names are dotted, e.g. {@code breaker.us-api.samsungknox.com/ses/token.state}.
+ * No external metrics library is required; {@link #snapshot()} can be logged, printed or bridged.
+ */
+public class KnoxMetrics {
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<?>> gauges = new ConcurrentHashMap<>();
+
+    /** Add {@code delta} to a counter, creating it on first use. */
+    public void increment(String name, long delta) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    public void increment(String name) {
+        increment(name, 1);
+    }
+
+    public long counter(String name) {
+        LongAdder adder = counters.get(name);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    /** Register (or replace) a gauge evaluated lazily on every snapshot. */
+    public void gauge(String name, Supplier<?> value) {
+        gauges.put(name, value);
+    }
+
+    /** Current value of every counter and gauge, sorted by name. */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> out = new TreeMap<>();
+        counters.forEach((k, v) -> out.put(k, v.sum()));
+        gauges.forEach((k, v) -> out.put(k, v.get()));
+        return out;
+    }
+}
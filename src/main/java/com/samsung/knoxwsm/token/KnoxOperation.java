@@ -0,0 +1,65 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Every Knox API call issued through {@link KnoxTransport}, with the endpoint it targets and whether
+ * repeating it is safe. Idempotency is declared here explicitly rather than inferred from the HTTP method:
+ * token issuance and unlock are POSTs but can be repeated without side effects, whereas enrollment,
+ * refresh (consumes the refresh token) and uploads (creates a new upload) cannot.
+ * Bulk operations (issued per device or per upload in large runs) are additionally admitted through the
+ * transport's {@link AdaptiveConcurrencyLimiter} and {@link RateLimiter}. Each operation has its own call
+ * timeout: token calls fail fast, uploads get minutes.
+ */
+public enum KnoxOperation {
+    REQUEST_TOKEN("/ses/token", true, false, 10_000),
+    REFRESH_TOKEN("/ses/token", false, false, 10_000),
+    VALIDATE_TOKEN("/ses/token", true, false, 10_000),
+    ENROLL_DEVICE("/kguard/devices", false, true, 30_000),
+    UNLOCK_DEVICE("/kguard/devices/unlock", true, true, 30_000),
+    UPLOAD_DEVICES("/devices/uploads", false, true, 300_000),
+    LIST_UPLOADS("/devices/uploads", true, false, 60_000),
+    GET_UPLOAD("/devices/uploads", true, true, 30_000);
+
+    private final String endpoint;
+    private final boolean idempotent;
+    private final boolean bulk;
+    private final long defaultTimeoutMillis;
+
+    KnoxOperation(String endpoint, boolean idempotent, boolean bulk, long defaultTimeoutMillis) {
+        this.endpoint = endpoint;
+        this.idempotent = idempotent;
+        this.bulk = bulk;
+        this.defaultTimeoutMillis = defaultTimeoutMillis;
+    }
+
+    /** Logical endpoint group (used for per-endpoint policies and metrics). */
+    public String endpoint() { return endpoint; }
+
+    /** True when the call may be re-sent after an ambiguous failure (timeout, 5xx). */
+    public boolean isIdempotent() { return idempotent; }
+
+    /** True for high-volume calls (enroll, unlock, upload, upload status) that are subject to admission control. */
+    public boolean isBulk() { return bulk; }
+
+    /** Whole-call timeout (connect, send, wait, read) per attempt, unless overridden by KNOX_TIMEOUT_&lt;NAME&gt;_MS. */
+    public long defaultTimeoutMillis() { return defaultTimeoutMillis; }
+}
@@ -29,13 +29,13 @@ import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
-import java.time.Instant;
 import java.util.Base64;
 import java.util.Date;
 import java.util.stream.Collectors;
 
 /**
  * Utility class for handling JWT token generation and key management for Knox Guard.
+ * JWT timestamps use {@link ServerClock#shared()}, i.e. local time corrected by the skew observed in Knox responses.
  */
 public class KnoxTokenUtility {
   private static final long TEN_YEARS_IN_MILLIS = 315_532_800_000L; // ~10 years
@@ -56,7 +56,7 @@ public class KnoxTokenUtility {
         .header().add("kid", clientId).and()
         .subject(clientId)
         .audience().add("kpe_v2").and()
-        .issuedAt(new Date())
+        .issuedAt(new Date(ServerClock.shared().currentTimeMillis()))
         .claim("imei", deviceImei)
         .signWith(loadPrivateKeyFromPem(bais), SignatureAlgorithm.ES256)
         .compact();
@@ -75,7 +75,7 @@ public class KnoxTokenUtility {
         .header().add("kid", clientId).and()
         .subject(clientId)
         .audience().add("kpe_v2").and()
-        .issuedAt(Date.from(Instant.now()))
+        .issuedAt(new Date(ServerClock.shared().currentTimeMillis()))
         .claim("imei", imei);
       if (publicKeyBase64 != null && !publicKeyBase64.isBlank()) {
         builder = builder.header().add("x5c", new String[]{publicKeyBase64}).and();
@@ -88,7 +88,7 @@ public class KnoxTokenUtility {
 
   public static String generateSignedClientIdentifierJWTWithIdpAccessToken(InputStream certificateJson, String clientIdentifier, String idpAccessToken) {
     KnoxCertificateParser.ParsedCertificate cert = KnoxCertificateParser.parse(certificateJson);
-    long now = System.currentTimeMillis();
+    long now = ServerClock.shared().currentTimeMillis();
     String atHash = (idpAccessToken == null ? null : Integer.toHexString(idpAccessToken.hashCode()));
     return Jwts.builder()
       .header().add("typ", "JWT").and()
@@ -105,7 +105,7 @@ public class KnoxTokenUtility {
 
   public static String generateSignedSessionTokenJWT(InputStream certificateJson, String sessionToken) {
     KnoxCertificateParser.ParsedCertificate cert = KnoxCertificateParser.parse(certificateJson);
-    long now = System.currentTimeMillis();
+    long now = ServerClock.shared().currentTimeMillis();
     return Jwts.builder()
       .header().add("typ", "JWT").and()
       .subject("session")
@@ -119,7 +119,7 @@ public class KnoxTokenUtility {
 
   public static String generateSignedAccessTokenJWT(InputStream certificateJson, String accessToken) {
     KnoxCertificateParser.ParsedCertificate cert = KnoxCertificateParser.parse(certificateJson);
-    long now = System.currentTimeMillis();
+    long now = ServerClock.shared().currentTimeMillis();
     return Jwts.builder()
       .header().add("typ", "JWT").and()
       .subject("access")
@@ -141,7 +141,7 @@ public class KnoxTokenUtility {
   public static String generateSignedClientIdentifierJWT(InputStream privateKeyInputStream, String clientId, String password) {
     try (InputStream is = privateKeyInputStream) {
       PrivateKey privateKey = loadPrivateKeyFromPem(is);
-      long now = System.currentTimeMillis();
+      long now = ServerClock.shared().currentTimeMillis();
       return Jwts.builder()
         .header().add("typ", "JWT").and()
         .subject(clientId)
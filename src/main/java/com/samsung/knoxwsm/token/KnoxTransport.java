@@ -0,0 +1,496 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HTTP execution layer shared by {@link KnoxAuthClient} and {@link KnoxGuardClient}.
+ * Every API call goes through {@link #execute(Request, KnoxOperation)}, which applies the configured
+ * {@link RetryPolicy} and a {@link CircuitBreaker} per host + endpoint. {@link KnoxOperation#isBulk() Bulk}
+ * operations are also admitted through one {@link AdaptiveConcurrencyLimiter} and an optional {@link RateLimiter};
+ * request bodies of selected operations can be gzip-compressed ({@link GzipRequestInterceptor}) and upload
+ * lookups can be served from a short-lived {@link ResponseCache}; an optional on-disk OkHttp {@link Cache}
+ * revalidates unchanged GET responses with conditional requests. Slow read-only calls can be hedged ({@link RequestHedger}).
+ * Every attempt runs under its operation's call timeout, trimmed to the thread's {@link Deadline} if one is set.
+ * Requests tagged with a {@link BaseUrlPool} are routed to its healthiest base URL and fail over to another one
+ * straight away, without backoff or retry budget.
+ * The network exchange itself is done by a pluggable {@link HttpEngine} (OkHttp or the JDK client).
+ * Clients constructed with the same transport share its connection pool, policies, limits and {@link KnoxMetrics}.
+ */
+public class KnoxTransport {
+    private static final Logger log = LoggerFactory.getLogger(KnoxTransport.class);
+
+    private final OkHttpClient http;
+    private final RetryPolicy retryPolicy;
+    private final KnoxMetrics metrics;
+    private final CircuitBreaker.Settings breakerSettings;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final RateLimiter rateLimiter;
+    private final SingleFlight singleFlight;
+    private final ResponseCache cache;
+    private final ServerClock clock;
+    private final RequestHedger hedger;
+    private final Map<KnoxOperation, Long> callTimeouts = new EnumMap<>(KnoxOperation.class);
+    private final BaseUrlPool.Settings failoverSettings;
+    private final HttpEngine engine;
+
+    private KnoxTransport(Builder builder) {
+        this.retryPolicy = builder.retryPolicy != null ? builder.retryPolicy : RetryPolicy.fromConfig();
+        this.metrics = builder.metrics != null ? builder.metrics : new KnoxMetrics();
+        OkHttpClient base = builder.http != null ? builder.http : defaultHttpClient();
+        Cache diskCache = builder.httpCacheDir != null ? new Cache(builder.httpCacheDir.toFile(), builder.httpCacheMaxBytes)
+                : builder.http == null ? diskCacheFromConfig() : null;
+        if (diskCache != null) base = base.newBuilder().cache(diskCache).build();
+        GzipRequestInterceptor.Settings gzip = builder.gzipSettings != null ? builder.gzipSettings : GzipRequestInterceptor.Settings.fromConfig();
+        for (KnoxOperation op : KnoxOperation.values()) {
+            Long override = builder.callTimeouts.get(op);
+            callTimeouts.put(op, override != null ? override : Config.getLong("KNOX_TIMEOUT_" + op.name() + "_MS", op.defaultTimeoutMillis()));
+        }
+        OkHttpClient.Builder client = base.newBuilder().addInterceptor(this::applyOperationTimeouts);
+        if (gzip.isEnabled()) client.addInterceptor(new GzipRequestInterceptor(gzip, metrics));
+        this.engine = builder.engine != null ? builder.engine : HttpEngine.fromConfig();
+        // last application interceptor: everything above still sees OkHttp requests and responses
+        if (engine != HttpEngine.OKHTTP) client.addInterceptor(engine::execute);
+        this.http = client.build();
+        this.breakerSettings = builder.breakerSettings != null ? builder.breakerSettings : CircuitBreaker.Settings.fromConfig();
+        this.limiter = builder.limiterSet ? builder.limiter : AdaptiveConcurrencyLimiter.fromConfig();
+        this.rateLimiter = builder.rateLimiterSet ? builder.rateLimiter : RateLimiter.fromConfig();
+        this.singleFlight = new SingleFlight(metrics);
+        this.clock = builder.clock != null ? builder.clock : ServerClock.shared();
+        this.failoverSettings = builder.failoverSettings != null ? builder.failoverSettings : BaseUrlPool.Settings.fromConfig();
+        RequestHedger.Settings hedgeSettings = builder.hedgeSettings != null ? builder.hedgeSettings : RequestHedger.Settings.fromConfig();
+        this.hedger = hedgeSettings.isEnabled() ? new RequestHedger(hedgeSettings, metrics) : null;
+        metrics.gauge("clock.offsetMillis", clock::offsetMillis);
+        ResponseCache.Settings cacheSettings = builder.cacheSettings != null ? builder.cacheSettings : ResponseCache.Settings.fromConfig();
+        this.cache = cacheSettings.isEnabled() ? new ResponseCache(cacheSettings, singleFlight, metrics) : null;
+        Cache httpCache = http.cache();
+        if (httpCache != null) {
+            metrics.gauge("http.cache.requests", httpCache::requestCount);
+            metrics.gauge("http.cache.network", httpCache::networkCount);
+            metrics.gauge("http.cache.hits", httpCache::hitCount);
+        }
+        metrics.gauge("http.connections", () -> http.connectionPool().connectionCount());
+        metrics.gauge("http.idleConnections", () -> http.connectionPool().idleConnectionCount());
+        if (limiter != null) {
+            metrics.gauge("limiter.limit", limiter::getLimit);
+            metrics.gauge("limiter.inFlight", limiter::getInFlight);
+        }
+    }
+
+    /** Transport with every setting taken from env/.env (see {@link RetryPolicy#fromConfig()}). */
+    public static KnoxTransport fromConfig() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Socket read/write inactivity limits follow the operation's call timeout, so a slow upload or a long
+     * server-side upload parse is not cut off by the client-wide 30 s while token calls still fail fast.
+     */
+    private Response applyOperationTimeouts(Interceptor.Chain chain) throws IOException {
+        KnoxOperation operation = chain.request().tag(KnoxOperation.class);
+        if (operation == null) return chain.proceed(chain.request());
+        int millis = (int) Math.min(Integer.MAX_VALUE, callTimeouts.get(operation));
+        return chain.withReadTimeout(millis, TimeUnit.MILLISECONDS).withWriteTimeout(millis, TimeUnit.MILLISECONDS).proceed(chain.request());
+    }
+
+    /**
+     * KNOX_HTTP_CONNECT_TIMEOUT_MS (10000),
+     * KNOX_HTTP_PROTOCOLS ({@code h2,http/1.1}: HTTP/2 negotiated via ALPN, so concurrent calls to a host
+     * multiplex over one connection; {@code http/1.1} opts out), KNOX_HTTP_MAX_IDLE_CONNECTIONS (5) and
+     * KNOX_HTTP_KEEP_ALIVE_SEC (300) for the connection pool.
+     */
+    private static OkHttpClient defaultHttpClient() {
+        return new OkHttpClient.Builder()
+            .connectTimeout(Config.getLong("KNOX_HTTP_CONNECT_TIMEOUT_MS", 10_000), TimeUnit.MILLISECONDS)
+            .readTimeout(30, TimeUnit.SECONDS)
+            .writeTimeout(30, TimeUnit.SECONDS)
+            .dispatcher(new Dispatcher(Executors.newCachedThreadPool(r -> {
+                // async calls (pre-warm) must not keep the JVM alive after the CLI returns
+                Thread t = new Thread(r, "knox-http-async");
+                t.setDaemon(true);
+                return t;
+            })))
+            .protocols(protocols(Config.get("KNOX_HTTP_PROTOCOLS", "h2,http/1.1")))
+            .connectionPool(new ConnectionPool((int) Config.getLong("KNOX_HTTP_MAX_IDLE_CONNECTIONS", 5),
+                    Config.getLong("KNOX_HTTP_KEEP_ALIVE_SEC", 300), TimeUnit.SECONDS))
+            .build();
+    }
+
+    /**
+     * Persistent HTTP cache from KNOX_HTTP_CACHE_DIR (unset: none) and KNOX_HTTP_CACHE_MAX_BYTES (50 MiB).
+     * Entries are keyed by URL only, so use one directory per Knox tenant.
+     */
+    private static Cache diskCacheFromConfig() {
+        String dir = Config.get("KNOX_HTTP_CACHE_DIR", "");
+        if (dir.isBlank()) return null;
+        return new Cache(Paths.get(dir).toFile(), Config.getLong("KNOX_HTTP_CACHE_MAX_BYTES", 50L * 1024 * 1024));
+    }
+
+    static List<Protocol> protocols(String spec) {
+        List<Protocol> out = new ArrayList<>();
+        for (String name : spec.split(",")) {
+            if (name.isBlank()) continue;
+            try {
+                out.add(Protocol.get(name.trim().toLowerCase()));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("KNOX_HTTP_PROTOCOLS: " + e.getMessage());
+            }
+        }
+        // h2 over TLS is negotiated, so HTTP/1.1 must stay available as the fallback
+        if (!out.contains(Protocol.H2_PRIOR_KNOWLEDGE) && !out.contains(Protocol.HTTP_1_1)) out.add(Protocol.HTTP_1_1);
+        return out;
+    }
+
+    public OkHttpClient httpClient() { return http; }
+    /** Network implementation under the OkHttp interceptor chain. */
+    public HttpEngine engine() { return engine; }
+    public RetryPolicy retryPolicy() { return retryPolicy; }
+    public KnoxMetrics metrics() { return metrics; }
+    /** Coalescing of concurrent identical calls, shared by every client on this transport. */
+    public SingleFlight singleFlight() { return singleFlight; }
+    /** Short-lived GET response cache, or null when disabled. */
+    public ResponseCache responseCache() { return cache; }
+    /** Concurrency limiter for bulk operations, or null when disabled. */
+    public AdaptiveConcurrencyLimiter concurrencyLimiter() { return limiter; }
+    /** Scoring settings for the {@link BaseUrlPool}s of clients on this transport. */
+    public BaseUrlPool.Settings failoverSettings() { return failoverSettings; }
+
+    /**
+     * Open connections to the hosts of {@code baseUrls} in the background so DNS, TCP and TLS (and HTTP/2
+     * negotiation) are done before the first real call. One unauthenticated {@code HEAD /} per distinct host;
+     * the response is discarded and the connection stays pooled. Bypasses retries, breakers and limits; a
+     * failure only completes the returned future exceptionally.
+     */
+    public CompletableFuture<Void> prewarm(String... baseUrls) {
+        Map<String, HttpUrl> roots = new LinkedHashMap<>();
+        for (String baseUrl : baseUrls) {
+            HttpUrl url = baseUrl == null ? null : HttpUrl.parse(baseUrl);
+            if (url != null) roots.putIfAbsent(url.scheme() + "://" + url.host() + ":" + url.port(), url.resolve("/"));
+        }
+        long started = System.nanoTime();
+        List<CompletableFuture<Void>> calls = new ArrayList<>();
+        for (HttpUrl root : roots.values()) {
+            CompletableFuture<Void> call = new CompletableFuture<>();
+            http.newCall(new Request.Builder().head().url(root).build()).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call c, IOException e) {
+                    log.debug("Pre-warm {} failed: {}", root.host(), e.toString());
+                    call.completeExceptionally(e);
+                }
+
+                @Override
+                public void onResponse(Call c, Response response) {
+                    clock.observe(response);
+                    response.close();
+                    metrics.increment("http.prewarmed");
+                    log.debug("Pre-warmed {} ({}) in {} ms", root.host(), response.protocol(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                    call.complete(null);
+                }
+            });
+            calls.add(call);
+        }
+        return CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /** Breakers created so far, keyed by {@code host + endpoint}. */
+    public Map<String, CircuitBreaker> circuitBreakers() { return Collections.unmodifiableMap(breakers); }
+
+    private CircuitBreaker breakerFor(Request request, KnoxOperation operation) {
+        String key = request.url().host() + operation.endpoint();
+        return breakers.computeIfAbsent(key, k -> new CircuitBreaker(k, breakerSettings, metrics));
+    }
+
+    /**
+     * Execute a request, retrying per policy. The returned response may be unsuccessful (retries exhausted
+     * or not retryable); the caller owns it and must close it. One-shot request bodies are never re-sent.
+     */
+    public Response execute(Request request, KnoxOperation operation) throws IOException {
+        Request tagged = request.newBuilder().tag(KnoxOperation.class, operation).build();
+        if (cache != null && cache.isCacheable(tagged, operation)) return cache.fetch(tagged, operation, () -> executeWithRetries(tagged, operation));
+        Response response = executeWithRetries(tagged, operation);
+        // a new upload makes cached upload lists stale
+        if (cache != null && operation == KnoxOperation.UPLOAD_DEVICES && response.isSuccessful()) cache.invalidate(KnoxOperation.LIST_UPLOADS);
+        return response;
+    }
+
+    private Response executeWithRetries(Request tagged, KnoxOperation operation) throws IOException {
+        boolean replayable = tagged.body() == null || !tagged.body().isOneShot();
+        BaseUrlPool pool = tagged.tag(BaseUrlPool.class);
+        Deadline deadline = Deadline.current();
+        retryPolicy.onCall();
+        int attempt = 1;
+        int failovers = 0;
+        while (true) {
+            if (deadline != null && deadline.isExpired()) throw deadlineExceeded(operation, null);
+            Response response;
+            try {
+                response = attempt(tagged, operation, pool, deadline);
+            } catch (IOException e) {
+                if (e instanceof DeadlineExceededException) throw e;
+                if (deadline != null && deadline.remainingMillis() == 0) throw deadlineExceeded(operation, e);
+                if (replayable && canFailOver(pool, failovers, operation, e)) {
+                    failovers++;
+                    metrics.increment("failovers." + operation.name().toLowerCase());
+                    log.info("Failing over {} after {}", operation, e.toString());
+                    continue;
+                }
+                long delay = replayable ? retryPolicy.retryDelayMillis(operation, e, attempt) : -1;
+                if (delay < 0 || !fits(deadline, delay)) throw e;
+                metrics.increment("retries." + operation.name().toLowerCase());
+                log.info("Retrying {} after {} attempt={} delayMs={}", operation, e.toString(), attempt, delay);
+                sleep(delay);
+                attempt++;
+                continue;
+            }
+            if (response.isSuccessful() || !replayable) return response;
+            if (canFailOver(pool, failovers, operation, response.code())) {
+                failovers++;
+                metrics.increment("failovers." + operation.name().toLowerCase());
+                log.info("Failing over {} after status={}", operation, response.code());
+                response.close();
+                continue;
+            }
+            long delay = retryPolicy.retryDelayMillis(operation, response.code(), response.header("Retry-After"), attempt);
+            if (delay < 0 || !fits(deadline, delay)) return response;
+            metrics.increment("retries." + operation.name().toLowerCase());
+            log.info("Retrying {} after status={} attempt={} delayMs={}", operation, response.code(), attempt, delay);
+            response.close();
+            sleep(delay);
+            attempt++;
+        }
+    }
+
+    /**
+     * Whether a failed attempt may go straight to another base URL of the pool: each URL is tried at most once
+     * per call, and only when the failure is the URL's fault and re-sending is safe for the operation.
+     */
+    private static boolean canFailOver(BaseUrlPool pool, int failovers, KnoxOperation operation, IOException error) {
+        if (pool == null || failovers >= pool.size() - 1) return false;
+        if (error instanceof KnoxApiException || Thread.currentThread().isInterrupted()) return false;
+        // nothing reached the server
+        if (error instanceof CircuitOpenException || error instanceof ConnectException || error instanceof UnknownHostException) return true;
+        return operation.isIdempotent();
+    }
+
+    private static boolean canFailOver(BaseUrlPool pool, int failovers, KnoxOperation operation, int statusCode) {
+        if (pool == null || failovers >= pool.size() - 1) return false;
+        // gateway-level failures; 500 and 429 come from the API itself and would repeat on any URL
+        return statusCode == 503 || (operation.isIdempotent() && (statusCode == 502 || statusCode == 504));
+    }
+
+    /** A retry is only worth it if there is still time left after waiting. */
+    private static boolean fits(Deadline deadline, long delayMillis) {
+        return deadline == null || delayMillis < deadline.remainingMillis();
+    }
+
+    private DeadlineExceededException deadlineExceeded(KnoxOperation operation, IOException cause) {
+        metrics.increment("deadline.exceeded");
+        return new DeadlineExceededException(operation, cause);
+    }
+
+    /**
+     * One network attempt: base URL selection, admission (rate, concurrency, breaker), the call, and feedback to
+     * each of them. Breakers are per actual host, so an open one on a failed gateway does not block the others.
+     * Waiting for admission is bounded by the deadline, and the call timeout is taken from what is left after it.
+     * A call cut short by the caller's deadline says nothing about the upstream, so it is not fed back.
+     */
+    private Response attempt(Request request, KnoxOperation operation, BaseUrlPool pool, Deadline deadline) throws IOException {
+        BaseUrlPool.Endpoint endpoint = pool != null ? pool.select() : null;
+        if (endpoint != null) request = pool.rewrite(request, endpoint);
+        CircuitBreaker breaker = breakerFor(request, operation);
+        boolean limited = operation.isBulk();
+        if (limited && rateLimiter != null) {
+            if (deadline == null) rateLimiter.acquire();
+            else if (!rateLimiter.tryAcquire(deadline.remainingMillis())) throw deadlineExceeded(operation, null);
+        }
+        if (limited && limiter != null) acquireSlot(operation, deadline);
+        AdaptiveConcurrencyLimiter.Outcome outcome = AdaptiveConcurrencyLimiter.Outcome.IGNORE;
+        long started = System.nanoTime();
+        try {
+            long timeoutMillis = callTimeouts.get(operation);
+            boolean trimmed = false;
+            if (deadline != null) {
+                long remaining = deadline.remainingMillis();
+                if (remaining <= 0) throw deadlineExceeded(operation, null);
+                if (remaining < timeoutMillis) {
+                    timeoutMillis = remaining;
+                    trimmed = true;
+                }
+            }
+            try {
+                breaker.acquirePermission();
+            } catch (CircuitOpenException e) {
+                if (endpoint != null) pool.record(endpoint, 0, BaseUrlPool.Outcome.ERROR);
+                throw e;
+            }
+            started = System.nanoTime();
+            try {
+                Response response;
+                if (hedger != null && hedger.applies(request, operation)) {
+                    response = hedger.execute(http, request, operation, timeoutMillis);
+                } else {
+                    Call call = http.newCall(request);
+                    call.timeout().timeout(timeoutMillis, TimeUnit.MILLISECONDS);
+                    response = call.execute();
+                }
+                clock.observe(response);
+                breaker.onResult(elapsedMillis(started), response.code() >= 500);
+                if (endpoint != null) pool.record(endpoint, elapsedMillis(started), poolOutcome(response.code()));
+                int code = response.code();
+                outcome = code == 429 || code >= 500
+                        ? AdaptiveConcurrencyLimiter.Outcome.OVERLOAD : AdaptiveConcurrencyLimiter.Outcome.SUCCESS;
+                return response;
+            } catch (IOException e) {
+                if (trimmed && deadline.remainingMillis() == 0) {
+                    breaker.onIgnored();
+                    throw e;
+                }
+                breaker.onResult(elapsedMillis(started), true);
+                if (endpoint != null && !Thread.currentThread().isInterrupted()) pool.record(endpoint, elapsedMillis(started), poolOutcome(e));
+                outcome = AdaptiveConcurrencyLimiter.Outcome.OVERLOAD;
+                throw e;
+            }
+        } finally {
+            if (limited && limiter != null) limiter.release(operation, System.nanoTime() - started, outcome);
+        }
+    }
+
+    /** Only gateway-level failures eject a base URL; errors from the API behind it would repeat on any URL. */
+    private static BaseUrlPool.Outcome poolOutcome(int statusCode) {
+        if (statusCode == 502 || statusCode == 503 || statusCode == 504) return BaseUrlPool.Outcome.GATEWAY_FAILURE;
+        return statusCode >= 500 ? BaseUrlPool.Outcome.ERROR : BaseUrlPool.Outcome.SUCCESS;
+    }
+
+    private static BaseUrlPool.Outcome poolOutcome(IOException error) {
+        return error instanceof ConnectException || error instanceof NoRouteToHostException || error instanceof UnknownHostException
+                ? BaseUrlPool.Outcome.GATEWAY_FAILURE : BaseUrlPool.Outcome.ERROR;
+    }
+
+    private void acquireSlot(KnoxOperation operation, Deadline deadline) throws InterruptedIOException {
+        long waitStarted = System.nanoTime();
+        boolean admitted = true;
+        if (deadline == null) limiter.acquire();
+        else admitted = limiter.tryAcquire(deadline.remainingMillis());
+        long waitedMillis = elapsedMillis(waitStarted);
+        if (waitedMillis > 0) metrics.increment("limiter.waitMillis", waitedMillis);
+        if (!admitted) throw deadlineExceeded(operation, null);
+    }
+
+    private static long elapsedMillis(long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000;
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+
+    /** Builder; unset fields fall back to env/.env configuration. */
+    public static final class Builder {
+        private OkHttpClient http;
+        private RetryPolicy retryPolicy;
+        private KnoxMetrics metrics;
+        private CircuitBreaker.Settings breakerSettings;
+        private AdaptiveConcurrencyLimiter limiter;
+        private boolean limiterSet;
+        private RateLimiter rateLimiter;
+        private boolean rateLimiterSet;
+        private GzipRequestInterceptor.Settings gzipSettings;
+        private ResponseCache.Settings cacheSettings;
+        private Path httpCacheDir;
+        private ServerClock clock;
+        private RequestHedger.Settings hedgeSettings;
+        private BaseUrlPool.Settings failoverSettings;
+        private HttpEngine engine;
+        private final Map<KnoxOperation, Long> callTimeouts = new EnumMap<>(KnoxOperation.class);
+        private long httpCacheMaxBytes;
+
+        private Builder() { }
+
+        public Builder httpClient(OkHttpClient http) { this.http = http; return this; }
+        public Builder retryPolicy(RetryPolicy retryPolicy) { this.retryPolicy = retryPolicy; return this; }
+        public Builder metrics(KnoxMetrics metrics) { this.metrics = metrics; return this; }
+        public Builder circuitBreaker(CircuitBreaker.Settings breakerSettings) { this.breakerSettings = breakerSettings; return this; }
+        /** Concurrency limiter for bulk operations; {@code null} disables it. */
+        public Builder concurrencyLimiter(AdaptiveConcurrencyLimiter limiter) { this.limiter = limiter; this.limiterSet = true; return this; }
+        /** Request-rate cap for bulk operations; {@code null} disables it. */
+        public Builder rateLimiter(RateLimiter rateLimiter) { this.rateLimiter = rateLimiter; this.rateLimiterSet = true; return this; }
+        /** Request body compression per operation (off unless configured). */
+        public Builder gzip(GzipRequestInterceptor.Settings gzipSettings) { this.gzipSettings = gzipSettings; return this; }
+        /** GET response cache (off unless configured). */
+        public Builder responseCache(ResponseCache.Settings cacheSettings) { this.cacheSettings = cacheSettings; return this; }
+        /** Whole-call timeout per attempt for {@code operation} (default {@link KnoxOperation#defaultTimeoutMillis()}). */
+        public Builder callTimeout(KnoxOperation operation, Duration timeout) { callTimeouts.put(operation, timeout.toMillis()); return this; }
+        /** Hedging of slow read-only calls (off unless configured). */
+        public Builder hedging(RequestHedger.Settings hedgeSettings) { this.hedgeSettings = hedgeSettings; return this; }
+        /** Network implementation (default from KNOX_HTTP_ENGINE, i.e. OkHttp). */
+        public Builder engine(HttpEngine engine) { this.engine = engine; return this; }
+        /** Scoring of multiple base URLs per client (see {@link BaseUrlPool}). */
+        public Builder failover(BaseUrlPool.Settings failoverSettings) { this.failoverSettings = failoverSettings; return this; }
+        /** Clock-skew estimate fed from response {@code Date} headers (default {@link ServerClock#shared()}). */
+        public Builder serverClock(ServerClock clock) { this.clock = clock; return this; }
+        /** Persistent HTTP cache honouring Cache-Control and revalidating with ETag / Last-Modified (also applied to a custom client). */
+        public Builder httpCache(Path directory, long maxBytes) { this.httpCacheDir = directory; this.httpCacheMaxBytes = maxBytes; return this; }
+
+        public KnoxTransport build() { return new KnoxTransport(this); }
+    }
+}
@@ -0,0 +1,250 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Open-addressing hash set of primitive {@code long}s (linear probing, power-of-two table, load factor 0.75)
+ * for IMEI-scale membership tests: 8 bytes per slot instead of 100+ bytes per {@code String} in a
+ * {@code HashSet}. 50M IMEIs fit in a 512 MiB table. The table can live off-heap in direct buffers
+ * ({@code offHeap = true}), so large sets do not count against {@code -Xmx}; that memory is released when the
+ * set is garbage collected. Not thread-safe.
+ */
+public final class LongHashSet {
+    private static final double MAX_LOAD = 0.75;
+    private static final int MAX_CAPACITY = 1 << 30;
+    // Slot value meaning "empty"; a real 0 is tracked separately.
+    private static final long EMPTY = 0;
+
+    private final boolean offHeap;
+    private Slots slots;
+    private int mask;
+    private int size;
+    private boolean containsZero;
+
+    public LongHashSet() {
+        this(16, false);
+    }
+
+    /** Pre-size for {@code expectedSize} elements so the table never has to grow. */
+    public LongHashSet(int expectedSize, boolean offHeap) {
+        this.offHeap = offHeap;
+        allocate(capacityFor(expectedSize));
+    }
+
+    /** Distinct values of {@code values}, in first-occurrence order. */
+    public static long[] distinct(long[] values) {
+        LongHashSet seen = new LongHashSet(values.length, false);
+        long[] out = new long[values.length];
+        int n = 0;
+        for (long value : values) {
+            if (seen.add(value)) out[n++] = value;
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / MAX_LOAD);
+        if (needed > MAX_CAPACITY) throw new IllegalArgumentException("too many elements: " + expectedSize);
+        return Math.max(16, Integer.highestOneBit((int) needed - 1) << 1);
+    }
+
+    private void allocate(int capacity) {
+        slots = offHeap ? new DirectSlots(capacity) : new HeapSlots(capacity);
+        mask = capacity - 1;
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    public boolean isOffHeap() { return offHeap; }
+    /** Bytes held by the table (on- or off-heap). */
+    public long tableBytes() { return (mask + 1L) * Long.BYTES; }
+
+    /** Add {@code value}; true if it was not present. */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsZero) return false;
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int i = index(value);
+        while (true) {
+            long current = slots.get(i);
+            if (current == EMPTY) break;
+            if (current == value) return false;
+            i = (i + 1) & mask;
+        }
+        slots.set(i, value);
+        if (++size > (mask + 1) * MAX_LOAD) grow();
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) return containsZero;
+        int i = index(value);
+        while (true) {
+            long current = slots.get(i);
+            if (current == EMPTY) return false;
+            if (current == value) return true;
+            i = (i + 1) & mask;
+        }
+    }
+
+    /** Remove {@code value}; true if it was present. Uses backward-shift deletion, so no tombstones build up. */
+    public boolean remove(long value) {
+        if (value == EMPTY) {
+            if (!containsZero) return false;
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int i = index(value);
+        while (true) {
+            long current = slots.get(i);
+            if (current == EMPTY) return false;
+            if (current == value) break;
+            i = (i + 1) & mask;
+        }
+        // pull later entries of the probe run back into the gap unless that would move them before their home slot
+        int gap = i;
+        int j = (i + 1) & mask;
+        while (true) {
+            long current = slots.get(j);
+            if (current == EMPTY) break;
+            int home = index(current);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                slots.set(gap, current);
+                gap = j;
+            }
+            j = (j + 1) & mask;
+        }
+        slots.set(gap, EMPTY);
+        size--;
+        return true;
+    }
+
+    /** Add every element of {@code other} (set union in place). */
+    public void addAll(LongHashSet other) {
+        other.forEach(this::add);
+    }
+
+    /** Remove every element of {@code other} (set difference in place). */
+    public void removeAll(LongHashSet other) {
+        other.forEach(this::remove);
+    }
+
+    /** New set with the elements of this set that are not in {@code other}. */
+    public LongHashSet difference(LongHashSet other) {
+        LongHashSet out = new LongHashSet(size, offHeap);
+        forEach(v -> {
+            if (!other.contains(v)) out.add(v);
+        });
+        return out;
+    }
+
+    /** New set with the elements of both sets. */
+    public LongHashSet union(LongHashSet other) {
+        LongHashSet out = new LongHashSet(size + other.size, offHeap);
+        out.addAll(this);
+        out.addAll(other);
+        return out;
+    }
+
+    /** Visit every element, in no particular order. */
+    public void forEach(LongConsumer action) {
+        if (containsZero) action.accept(EMPTY);
+        for (int i = 0; i <= mask; i++) {
+            long value = slots.get(i);
+            if (value != EMPTY) action.accept(value);
+        }
+    }
+
+    public long[] toArray() {
+        long[] out = new long[size];
+        int[] n = {0};
+        forEach(v -> out[n[0]++] = v);
+        return out;
+    }
+
+    private int index(long value) {
+        // murmur3 finalizer: IMEIs share long TAC prefixes, so the low bits alone cluster badly
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    private void grow() {
+        Slots old = slots;
+        int oldCapacity = mask + 1;
+        if (oldCapacity >= MAX_CAPACITY) throw new IllegalStateException("LongHashSet is full");
+        allocate(oldCapacity << 1);
+        for (int i = 0; i < oldCapacity; i++) {
+            long value = old.get(i);
+            if (value == EMPTY) continue;
+            int j = index(value);
+            while (slots.get(j) != EMPTY) j = (j + 1) & mask;
+            slots.set(j, value);
+        }
+    }
+
+    private interface Slots {
+        long get(int index);
+        void set(int index, long value);
+    }
+
+    private static final class HeapSlots implements Slots {
+        private final long[] table;
+
+        HeapSlots(int capacity) { table = new long[capacity]; }
+
+        @Override public long get(int index) { return table[index]; }
+        @Override public void set(int index, long value) { table[index] = value; }
+    }
+
+    /** Direct buffers of at most 2^24 slots (128 MiB) each, since a single buffer is limited to 2 GiB. */
+    private static final class DirectSlots implements Slots {
+        private static final int SEGMENT_BITS = 24;
+        private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+        private final LongBuffer[] segments;
+
+        DirectSlots(int capacity) {
+            int segmentSlots = Math.min(capacity, 1 << SEGMENT_BITS);
+            segments = new LongBuffer[capacity / segmentSlots];
+            for (int s = 0; s < segments.length; s++) {
+                // allocateDirect zero-fills, i.e. every slot starts EMPTY
+                segments[s] = ByteBuffer.allocateDirect(segmentSlots * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+            }
+        }
+
+        @Override public long get(int index) { return segments[index >>> SEGMENT_BITS].get(index & SEGMENT_MASK); }
+        @Override public void set(int index, long value) { segments[index >>> SEGMENT_BITS].put(index & SEGMENT_MASK, value); }
+    }
+}
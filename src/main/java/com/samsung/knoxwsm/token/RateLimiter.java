@@ -0,0 +1,94 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket capping the overall request rate of a {@link KnoxTransport}, independent of concurrency.
+ * Callers reserve a permit and sleep outside the lock until it becomes valid.
+ */
+public class RateLimiter {
+    private final double permitsPerNano;
+    private final double burst;
+    private double stored;
+    private long lastRefillNanos = System.nanoTime();
+
+    public RateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) throw new IllegalArgumentException("permitsPerSecond must be > 0");
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.stored = this.burst;
+    }
+
+    /** From env/.env, or null when KNOX_RATE_LIMIT_PER_SEC is unset/0. Burst: KNOX_RATE_LIMIT_BURST (default = rate). */
+    public static RateLimiter fromConfig() {
+        long rate = Config.getLong("KNOX_RATE_LIMIT_PER_SEC", 0);
+        if (rate <= 0) return null;
+        return new RateLimiter(rate, (int) Config.getLong("KNOX_RATE_LIMIT_BURST", rate));
+    }
+
+    /** Block until one permit is available. */
+    public void acquire() throws InterruptedIOException {
+        long waitNanos = reserve();
+        if (waitNanos <= 0) return;
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for rate limit permit");
+        }
+    }
+
+    /**
+     * Block until one permit is available, or return false without taking one if that would be later than
+     * {@code timeoutMillis} from now.
+     */
+    public boolean tryAcquire(long timeoutMillis) throws InterruptedIOException {
+        long waitNanos = reserve(TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis)));
+        if (waitNanos < 0) return false;
+        if (waitNanos == 0) return true;
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for rate limit permit");
+        }
+        return true;
+    }
+
+    /** Take one permit (possibly going into debt) and return how long the caller must wait before using it. */
+    long reserve() {
+        return reserve(Long.MAX_VALUE);
+    }
+
+    /** As {@link #reserve()}, but takes nothing and returns -1 if the wait would exceed {@code maxWaitNanos}. */
+    synchronized long reserve(long maxWaitNanos) {
+        long now = System.nanoTime();
+        stored = Math.min(burst, stored + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+        long waitNanos = stored >= 1 ? 0 : (long) ((1 - stored) / permitsPerNano);
+        if (waitNanos > maxWaitNanos) return -1;
+        stored -= 1;
+        return waitNanos;
+    }
+}
@@ -0,0 +1,251 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opt-in request hedging for read-only {@link KnoxOperation}s: if the first call has not answered within the
+ * operation's recent latency percentile, an identical second call is sent and whichever answers first wins
+ * (the other is cancelled). Extra load is capped by a budget that earns {@code budgetRatio} hedges per call,
+ * so at most that share of calls is ever duplicated. Used by {@link KnoxTransport} for one network attempt;
+ * admission control and breakers see the hedged pair as a single call. Both calls run synchronously on the
+ * hedger's own threads rather than through OkHttp's {@code Dispatcher}, whose per-host cap of 5 would queue
+ * them, inflate the measured latency and delay the start of their call timeouts.
+ * Metrics: {@code hedge.sent}, {@code hedge.wins}, {@code hedge.budgetExhausted}.
+ */
+public class RequestHedger {
+    private static final Logger log = LoggerFactory.getLogger(RequestHedger.class);
+    private static final int WINDOW = 256;
+    private static final int MIN_SAMPLES = 20;
+    private static final double MAX_BUDGET = 10;
+
+    /** Which operations to hedge and when. */
+    public static final class Settings {
+        final Set<KnoxOperation> operations;
+        final double percentile;
+        final long minDelayMillis;
+        final long initialDelayMillis;
+        final double budgetRatio;
+
+        /**
+         * @param percentile latency percentile (0-100) after which a hedge is sent
+         * @param minDelayMillis lower bound for the hedge delay
+         * @param initialDelayMillis delay used until enough latencies were observed
+         * @param budgetRatio hedges allowed per call, e.g. 0.1 for at most 10% extra requests
+         */
+        public Settings(Set<KnoxOperation> operations, double percentile, long minDelayMillis, long initialDelayMillis, double budgetRatio) {
+            if (percentile <= 0 || percentile >= 100) throw new IllegalArgumentException("percentile must be in (0,100)");
+            this.operations = operations.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(EnumSet.copyOf(operations));
+            this.percentile = percentile;
+            this.minDelayMillis = Math.max(1, minDelayMillis);
+            this.initialDelayMillis = Math.max(this.minDelayMillis, initialDelayMillis);
+            this.budgetRatio = Math.max(0, budgetRatio);
+        }
+
+        /**
+         * From env/.env: KNOX_HEDGE_ENABLED (false), KNOX_HEDGE_OPERATIONS (VALIDATE_TOKEN,LIST_UPLOADS,GET_UPLOAD),
+         * KNOX_HEDGE_PERCENTILE (95), KNOX_HEDGE_MIN_DELAY_MS (50), KNOX_HEDGE_INITIAL_DELAY_MS (1000),
+         * KNOX_HEDGE_BUDGET_PERCENT (10).
+         */
+        public static Settings fromConfig() {
+            if (!Boolean.parseBoolean(Config.get("KNOX_HEDGE_ENABLED", "false"))) return disabled();
+            Set<KnoxOperation> operations = EnumSet.noneOf(KnoxOperation.class);
+            for (String name : Config.get("KNOX_HEDGE_OPERATIONS", "VALIDATE_TOKEN,LIST_UPLOADS,GET_UPLOAD").split(",")) {
+                if (name.isBlank()) continue;
+                KnoxOperation op = KnoxOperation.valueOf(name.trim().toUpperCase());
+                if (!op.isIdempotent()) throw new IllegalArgumentException("KNOX_HEDGE_OPERATIONS: " + op + " is not idempotent");
+                operations.add(op);
+            }
+            return new Settings(operations, Config.getLong("KNOX_HEDGE_PERCENTILE", 95),
+                    Config.getLong("KNOX_HEDGE_MIN_DELAY_MS", 50), Config.getLong("KNOX_HEDGE_INITIAL_DELAY_MS", 1000),
+                    Config.getLong("KNOX_HEDGE_BUDGET_PERCENT", 10) / 100.0);
+        }
+
+        public static Settings disabled() {
+            return new Settings(EnumSet.noneOf(KnoxOperation.class), 95, 1, 1, 0);
+        }
+
+        public boolean isEnabled() { return !operations.isEmpty(); }
+    }
+
+    /** Recent latencies of one operation; the percentile is recomputed every few samples. */
+    private final class Latencies {
+        private final long[] window = new long[WINDOW];
+        private int count;
+        private long delayMillis = settings.initialDelayMillis;
+
+        synchronized void record(long millis) {
+            window[count++ % WINDOW] = millis;
+            if (count >= MIN_SAMPLES && count % 8 == 0) {
+                long[] sorted = Arrays.copyOf(window, Math.min(count, WINDOW));
+                Arrays.sort(sorted);
+                int index = (int) Math.ceil(settings.percentile / 100.0 * sorted.length) - 1;
+                delayMillis = Math.max(settings.minDelayMillis, sorted[Math.max(0, index)]);
+            }
+        }
+
+        synchronized long delayMillis() { return delayMillis; }
+    }
+
+    private final Settings settings;
+    private final KnoxMetrics metrics;
+    private final Map<KnoxOperation, Latencies> latencies = new ConcurrentHashMap<>();
+    private final ExecutorService calls = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "knox-hedge");
+        t.setDaemon(true);
+        return t;
+    });
+    private double budget = MAX_BUDGET;
+
+    public RequestHedger(Settings settings, KnoxMetrics metrics) {
+        this.settings = settings;
+        this.metrics = metrics;
+    }
+
+    boolean applies(Request request, KnoxOperation operation) {
+        return settings.operations.contains(operation) && (request.body() == null || !request.body().isOneShot());
+    }
+
+    /** Current hedge delay for {@code operation} (the configured initial delay until enough samples exist). */
+    public long hedgeDelayMillis(KnoxOperation operation) {
+        return latencies(operation).delayMillis();
+    }
+
+    private Latencies latencies(KnoxOperation operation) {
+        return latencies.computeIfAbsent(operation, k -> new Latencies());
+    }
+
+    /** Execute {@code request}, hedging once if it is slower than the operation's percentile. */
+    Response execute(OkHttpClient http, Request request, KnoxOperation operation, long timeoutMillis) throws IOException {
+        Latencies stats = latencies(operation);
+        earnBudget();
+        long started = System.nanoTime();
+        Race race = new Race();
+        Call primary = http.newCall(request);
+        primary.timeout().timeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        Call hedge = null;
+        race.start(primary, false);
+        try {
+            try {
+                return finish(race.winner.get(stats.delayMillis(), TimeUnit.MILLISECONDS), stats, started);
+            } catch (TimeoutException slow) {
+                race.pending.incrementAndGet();
+                if (!race.winner.isDone() && spendBudget()) {
+                    metrics.increment("hedge.sent");
+                    log.debug("Hedging {} after {} ms", operation, stats.delayMillis());
+                    hedge = http.newCall(request);
+                    hedge.timeout().timeout(Math.max(1, timeoutMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)), TimeUnit.MILLISECONDS);
+                    race.start(hedge, true);
+                } else {
+                    race.fail(null);
+                }
+                return finish(race.winner.get(), stats, started);
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for hedged request");
+        } finally {
+            // cancelling the winner would break reading its body
+            if (race.wonBy.get() != primary) primary.cancel();
+            if (hedge != null && race.wonBy.get() != hedge) hedge.cancel();
+        }
+    }
+
+    private Response finish(Response response, Latencies stats, long startedNanos) {
+        stats.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos));
+        return response;
+    }
+
+    private synchronized void earnBudget() {
+        budget = Math.min(MAX_BUDGET, budget + settings.budgetRatio);
+    }
+
+    private synchronized boolean spendBudget() {
+        if (budget < 1) {
+            metrics.increment("hedge.budgetExhausted");
+            return false;
+        }
+        budget -= 1;
+        return true;
+    }
+
+    /** First response wins; late responses are closed; the race fails only once every call sent has failed. */
+    private final class Race {
+        final CompletableFuture<Response> winner = new CompletableFuture<>();
+        final AtomicInteger pending = new AtomicInteger(1);
+        final AtomicReference<IOException> failure = new AtomicReference<>();
+        final AtomicReference<Call> wonBy = new AtomicReference<>();
+
+        void start(Call call, boolean hedge) {
+            calls.execute(() -> {
+                Response response;
+                try {
+                    response = call.execute();
+                } catch (IOException e) {
+                    fail(e);
+                    return;
+                } catch (RuntimeException e) {
+                    fail(new IOException(e));
+                    return;
+                }
+                // claim the win before completing, so the caller never cancels the winning call
+                if (wonBy.compareAndSet(null, call)) {
+                    if (hedge) metrics.increment("hedge.wins");
+                    winner.complete(response);
+                } else {
+                    response.close();
+                }
+            });
+        }
+
+        /** One call failed (or, with {@code null}, a reserved hedge was not sent). */
+        void fail(IOException e) {
+            if (e != null) failure.set(e);
+            if (pending.decrementAndGet() == 0) winner.completeExceptionally(failure.get());
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opt-in, short-lived in-memory cache for idempotent GETs ({@link KnoxOperation#LIST_UPLOADS},
+ * {@link KnoxOperation#GET_UPLOAD}) in front of {@link KnoxTransport}'s retry/admission path. Entries are keyed
+ * by URL and API token, expire after a per-operation TTL (longer once an upload reports a terminal status,
+ * see {@link UploadSummary#isTerminalStatus}) and are evicted least-recently-used beyond {@code maxEntries}.
+ * Concurrent misses for the same key are coalesced through the transport's {@link SingleFlight}; error
+ * responses are shared with the waiting callers but never stored. A successful upload submission drops
+ * cached upload lists. Metrics: {@code cache.hits}, {@code cache.misses}, {@code cache.evictions}, {@code cache.size}.
+ */
+public class ResponseCache {
+    private static final Logger log = LoggerFactory.getLogger(ResponseCache.class);
+    private static final JsonFactory JSON = new JsonFactory();
+
+    /** TTLs per operation, the TTL for terminal upload states, and the entry bound. */
+    public static final class Settings {
+        final Map<KnoxOperation, Long> ttlMillis;
+        final long terminalTtlMillis;
+        final int maxEntries;
+
+        public Settings(Map<KnoxOperation, Long> ttlMillis, long terminalTtlMillis, int maxEntries) {
+            Map<KnoxOperation, Long> ttls = new EnumMap<>(KnoxOperation.class);
+            ttlMillis.forEach((op, ttl) -> { if (ttl != null && ttl > 0) ttls.put(op, ttl); });
+            this.ttlMillis = Collections.unmodifiableMap(ttls);
+            this.terminalTtlMillis = terminalTtlMillis;
+            this.maxEntries = Math.max(1, maxEntries);
+        }
+
+        /**
+         * From env/.env: KNOX_CACHE_ENABLED (false), KNOX_CACHE_LIST_UPLOADS_TTL_MS (5000),
+         * KNOX_CACHE_GET_UPLOAD_TTL_MS (2000), KNOX_CACHE_TERMINAL_TTL_MS (300000), KNOX_CACHE_MAX_ENTRIES (1000).
+         */
+        public static Settings fromConfig() {
+            if (!Boolean.parseBoolean(Config.get("KNOX_CACHE_ENABLED", "false"))) return disabled();
+            Map<KnoxOperation, Long> ttls = new EnumMap<>(KnoxOperation.class);
+            ttls.put(KnoxOperation.LIST_UPLOADS, Config.getLong("KNOX_CACHE_LIST_UPLOADS_TTL_MS", 5_000));
+            ttls.put(KnoxOperation.GET_UPLOAD, Config.getLong("KNOX_CACHE_GET_UPLOAD_TTL_MS", 2_000));
+            return new Settings(ttls, Config.getLong("KNOX_CACHE_TERMINAL_TTL_MS", 300_000),
+                    (int) Config.getLong("KNOX_CACHE_MAX_ENTRIES", 1_000));
+        }
+
+        public static Settings disabled() {
+            return new Settings(Map.of(), 0, 1);
+        }
+
+        public boolean isEnabled() { return !ttlMillis.isEmpty(); }
+    }
+
+    /** A fully buffered response that can be replayed to any number of callers. */
+    private record Entry(KnoxOperation operation, Protocol protocol, int code, String message, Headers headers,
+                         MediaType contentType, byte[] body, long expiresAtNanos) {
+        Response toResponse(Request request) {
+            return new Response.Builder().request(request).protocol(protocol).code(code).message(message)
+                    .headers(headers).body(ResponseBody.create(body, contentType)).build();
+        }
+    }
+
+    private final Settings settings;
+    private final SingleFlight singleFlight;
+    private final KnoxMetrics metrics;
+    private final LinkedHashMap<List<String>, Entry> entries;
+
+    public ResponseCache(Settings settings, SingleFlight singleFlight, KnoxMetrics metrics) {
+        this.settings = settings;
+        this.singleFlight = singleFlight;
+        this.metrics = metrics;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<String>, Entry> eldest) {
+                if (size() <= settings.maxEntries) return false;
+                metrics.increment("cache.evictions");
+                return true;
+            }
+        };
+        metrics.gauge("cache.size", this::size);
+    }
+
+    boolean isCacheable(Request request, KnoxOperation operation) {
+        return "GET".equals(request.method()) && settings.ttlMillis.containsKey(operation);
+    }
+
+    /** Serve {@code request} from the cache, or load it once via {@code loader} for all concurrent callers. */
+    Response fetch(Request request, KnoxOperation operation, SingleFlight.IOCall<Response> loader) throws IOException {
+        List<String> key = List.of(operation.name(), request.url().toString(),
+                String.valueOf(request.header("x-knox-apitoken")), String.valueOf(request.header("Authorization")));
+        Entry cached = lookup(key);
+        if (cached != null) {
+            metrics.increment("cache.hits");
+            return cached.toResponse(request);
+        }
+        metrics.increment("cache.misses");
+        Entry loaded = singleFlight.execute(key, () -> load(key, operation, loader));
+        return loaded.toResponse(request);
+    }
+
+    private Entry load(List<String> key, KnoxOperation operation, SingleFlight.IOCall<Response> loader) throws IOException {
+        try (Response response = loader.call()) {
+            ResponseBody body = response.body();
+            byte[] bytes = body == null ? new byte[0] : body.bytes();
+            MediaType contentType = body == null ? null : body.contentType();
+            long ttl = response.isSuccessful() ? ttlFor(operation, bytes) : 0;
+            Entry entry = new Entry(operation, response.protocol(), response.code(), response.message(), response.headers(),
+                    contentType, bytes, System.nanoTime() + ttl * 1_000_000);
+            if (ttl > 0) {
+                synchronized (entries) { entries.put(key, entry); }
+            }
+            return entry;
+        }
+    }
+
+    private long ttlFor(KnoxOperation operation, byte[] body) {
+        long ttl = settings.ttlMillis.get(operation);
+        if (operation == KnoxOperation.GET_UPLOAD && UploadSummary.isTerminalStatus(topLevelStatus(body))) {
+            return Math.max(ttl, settings.terminalTtlMillis);
+        }
+        return ttl;
+    }
+
+    /** Value of the top-level {@code status} field, scanning only until it is found. */
+    private static String topLevelStatus(byte[] body) {
+        try (JsonParser p = JSON.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) return null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                if ("status".equals(field)) return value == JsonToken.VALUE_STRING ? p.getText() : null;
+                p.skipChildren();
+            }
+        } catch (IOException e) {
+            log.debug("Could not read upload status for cache TTL: {}", e.toString());
+        }
+        return null;
+    }
+
+    private Entry lookup(List<String> key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) return null;
+            if (entry.expiresAtNanos() - System.nanoTime() <= 0) {
+                entries.remove(key);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    /** Drop every cached response of {@code operation}. */
+    public void invalidate(KnoxOperation operation) {
+        synchronized (entries) {
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+                if (it.next().operation() == operation) it.remove();
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) { entries.clear(); }
+    }
+
+    public int size() {
+        synchronized (entries) { return entries.size(); }
+    }
+}
@@ -0,0 +1,157 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a failed Knox call is re-sent and how long to wait first.
+ * <p>
+ * Classification: idempotent operations are retried on I/O errors and on 408/429/500/502/503/504.
+ * Non-idempotent operations are only retried when the server cannot have processed the request:
+ * 429, 503, or a failure to establish the connection.
+ * <p>
+ * Delay: exponential backoff with full jitter ({@code random(0, min(maxDelay, baseDelay * 2^retry))}),
+ * replaced by the server's {@code Retry-After} when present. A Retry-After longer than
+ * {@code maxRetryAfterMillis} is not waited out; the response is surfaced to the caller instead.
+ * <p>
+ * Limits: {@code maxAttempts} per call (1 disables retries) and a shared retry budget: every call deposits
+ * {@code budgetRatio} tokens, every retry spends one, so a sick upstream cannot multiply total traffic.
+ * <p>
+ * Subclass and override the {@code protected} hooks to plug in a different classification.
+ */
+public class RetryPolicy {
+    private static final double BUDGET_INITIAL_TOKENS = 10;
+    private static final double BUDGET_CAPACITY = 100;
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long maxRetryAfterMillis;
+    private final double budgetRatio;
+    private double budgetTokens = BUDGET_INITIAL_TOKENS;
+
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, long maxRetryAfterMillis, double budgetRatio) {
+        if (maxAttempts < 1) throw new IllegalArgumentException("maxAttempts must be >= 1");
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = Math.max(0, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+        this.maxRetryAfterMillis = maxRetryAfterMillis;
+        this.budgetRatio = budgetRatio;
+    }
+
+    /** Policy from env/.env: KNOX_RETRY_MAX_ATTEMPTS (3), KNOX_RETRY_BASE_DELAY_MS (200), KNOX_RETRY_MAX_DELAY_MS (10000), KNOX_RETRY_MAX_RETRY_AFTER_MS (60000), KNOX_RETRY_BUDGET_PERCENT (20). */
+    public static RetryPolicy fromConfig() {
+        return new RetryPolicy(
+                (int) Config.getLong("KNOX_RETRY_MAX_ATTEMPTS", 3),
+                Config.getLong("KNOX_RETRY_BASE_DELAY_MS", 200),
+                Config.getLong("KNOX_RETRY_MAX_DELAY_MS", 10_000),
+                Config.getLong("KNOX_RETRY_MAX_RETRY_AFTER_MS", 60_000),
+                Config.getLong("KNOX_RETRY_BUDGET_PERCENT", 20) / 100.0);
+    }
+
+    /** Policy that never retries. */
+    public static RetryPolicy none() {
+        return new RetryPolicy(1, 0, 0, 0, 0);
+    }
+
+    public int getMaxAttempts() { return maxAttempts; }
+
+    /** Record a first attempt; feeds the shared retry budget. */
+    synchronized void onCall() {
+        budgetTokens = Math.min(BUDGET_CAPACITY, budgetTokens + budgetRatio);
+    }
+
+    /** Spend one retry from the shared budget; false when it is exhausted. */
+    synchronized boolean tryAcquireRetry() {
+        if (budgetTokens < 1) return false;
+        budgetTokens -= 1;
+        return true;
+    }
+
+    /**
+     * Delay before retrying after an HTTP error response, or -1 to give up.
+     * @param attempt number of attempts already made (1 after the first failure)
+     */
+    long retryDelayMillis(KnoxOperation operation, int statusCode, String retryAfterHeader, int attempt) {
+        if (attempt >= maxAttempts || !isRetryableStatus(operation, statusCode)) return -1;
+        long delay = backoffMillis(attempt);
+        long retryAfter = parseRetryAfterMillis(retryAfterHeader, System.currentTimeMillis());
+        if (retryAfter >= 0) {
+            if (retryAfter > maxRetryAfterMillis) return -1;
+            delay = retryAfter;
+        }
+        return tryAcquireRetry() ? delay : -1;
+    }
+
+    /** Delay before retrying after an I/O failure, or -1 to give up. */
+    long retryDelayMillis(KnoxOperation operation, IOException error, int attempt) {
+        if (attempt >= maxAttempts || !isRetryableException(operation, error)) return -1;
+        return tryAcquireRetry() ? backoffMillis(attempt) : -1;
+    }
+
+    protected boolean isRetryableStatus(KnoxOperation operation, int statusCode) {
+        if (statusCode == 429 || statusCode == 503) return true;
+        if (!operation.isIdempotent()) return false;
+        return statusCode == 408 || statusCode == 500 || statusCode == 502 || statusCode == 504;
+    }
+
+    protected boolean isRetryableException(KnoxOperation operation, IOException error) {
+        if (error instanceof KnoxApiException || error instanceof CircuitOpenException) return false;
+        // Connection never established: nothing reached the server, safe for every operation.
+        if (error instanceof ConnectException || error instanceof UnknownHostException) return true;
+        if (!operation.isIdempotent()) return false;
+        // A plain InterruptedIOException is a call-level timeout: the caller's time budget is spent.
+        return !(error instanceof InterruptedIOException) || error instanceof SocketTimeoutException;
+    }
+
+    /** Full-jitter exponential backoff for the given retry number (1-based). */
+    protected long backoffMillis(int retry) {
+        long ceiling = baseDelayMillis << Math.min(retry - 1, 20);
+        if (ceiling <= 0 || ceiling > maxDelayMillis) ceiling = maxDelayMillis;
+        return ceiling == 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /** Parse a Retry-After header (delta-seconds or HTTP-date). Returns -1 when absent or unparseable. */
+    static long parseRetryAfterMillis(String header, long nowMillis) {
+        if (header == null || header.isBlank()) return -1;
+        String value = header.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException ignored) {
+            // fall through to HTTP-date
+        }
+        try {
+            long at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(0, at - nowMillis);
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Date;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Estimate of the offset between this host's clock and the Knox servers', learned from the {@code Date}
+ * header of network responses. {@link KnoxTokenUtility} stamps {@code iat}/{@code cdt}/{@code exp} with
+ * {@link #currentTimeMillis()}, so hosts with poor NTP stop getting 401s for "future" or expired JWTs.
+ * <p>
+ * Each sample compares the server date (1 s resolution, so taken as the middle of that second) with the
+ * midpoint of the request's round trip; samples are smoothed with an exponential moving average. Offsets
+ * below {@code minSkewMillis} are within the measurement error and are not applied.
+ */
+public final class ServerClock {
+    private static final Logger log = LoggerFactory.getLogger(ServerClock.class);
+    private static final double SMOOTHING = 0.2;
+    private static volatile ServerClock shared;
+
+    private final boolean enabled;
+    private final long minSkewMillis;
+    private double offsetMillis;
+    private long samples;
+
+    public ServerClock(boolean enabled, long minSkewMillis) {
+        this.enabled = enabled;
+        this.minSkewMillis = Math.max(0, minSkewMillis);
+    }
+
+    /** Process-wide clock fed by every {@link KnoxTransport}: KNOX_CLOCK_SKEW_ENABLED (true), KNOX_CLOCK_SKEW_MIN_MS (1000). */
+    public static ServerClock shared() {
+        ServerClock clock = shared;
+        if (clock == null) {
+            synchronized (ServerClock.class) {
+                if (shared == null) {
+                    shared = new ServerClock(Boolean.parseBoolean(Config.get("KNOX_CLOCK_SKEW_ENABLED", "true")),
+                            Config.getLong("KNOX_CLOCK_SKEW_MIN_MS", 1000));
+                }
+                clock = shared;
+            }
+        }
+        return clock;
+    }
+
+    /** Feed a response; only responses that actually came from the network (not a cache) are sampled. */
+    public void observe(Response response) {
+        Response network = response.networkResponse() != null ? response.networkResponse() : response;
+        if (!enabled || (response.cacheResponse() != null && response.networkResponse() == null)) return;
+        Date date = network.headers().getDate("Date");
+        if (date == null || network.sentRequestAtMillis() == 0) return;
+        observe(date.getTime(), network.sentRequestAtMillis(), network.receivedResponseAtMillis());
+    }
+
+    synchronized void observe(long serverDateMillis, long sentAtMillis, long receivedAtMillis) {
+        double sample = serverDateMillis + 500 - (sentAtMillis + receivedAtMillis) / 2.0;
+        double before = offsetMillis;
+        offsetMillis = samples++ == 0 ? sample : offsetMillis + SMOOTHING * (sample - offsetMillis);
+        if (Math.abs(offsetMillis) >= minSkewMillis && Math.abs(offsetMillis - before) >= minSkewMillis) {
+            log.info("Local clock differs from Knox server by {} ms; adjusting JWT timestamps", Math.round(offsetMillis));
+        }
+    }
+
+    /** True once a server {@code Date} has been sampled, or when disabled (then there is nothing to learn). */
+    public synchronized boolean isCalibrated() {
+        return !enabled || samples > 0;
+    }
+
+    /** Offset applied to JWT timestamps (server minus local), 0 when disabled or within measurement error. */
+    public synchronized long offsetMillis() {
+        return Math.abs(offsetMillis) >= minSkewMillis ? Math.round(offsetMillis) : 0;
+    }
+
+    /** Local time corrected towards server time. */
+    public long currentTimeMillis() {
+        return System.currentTimeMillis() + offsetMillis();
+    }
+}
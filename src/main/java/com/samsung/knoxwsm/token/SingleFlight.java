@@ -0,0 +1,89 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces concurrent identical calls: while a call for a key is in flight, further callers with an equal
+ * key wait for and share its result (or exception) instead of issuing their own request. Nothing is cached
+ * once the call finishes; the next caller starts a new one. Keys must capture everything that makes two
+ * requests equivalent (endpoint, credentials, parameters, result type). Shared results must be treated as
+ * read-only by callers.
+ */
+public class SingleFlight {
+    /** A call that may fail with an I/O error. */
+    @FunctionalInterface
+    public interface IOCall<V> {
+        V call() throws IOException;
+    }
+
+    private final ConcurrentHashMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final KnoxMetrics metrics;
+
+    public SingleFlight(KnoxMetrics metrics) {
+        this.metrics = metrics;
+        metrics.gauge("singleflight.inFlight", inFlight::size);
+    }
+
+    /** Run {@code call}, or join the in-flight call with an equal {@code key}. */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(Object key, IOCall<V> call) throws IOException {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            metrics.increment("singleflight.shared");
+            return (V) await(leader);
+        }
+        metrics.increment("singleflight.calls");
+        V result;
+        try {
+            result = call.call();
+        } catch (IOException | RuntimeException | Error e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        inFlight.remove(key, mine);
+        mine.complete(result);
+        return result;
+    }
+
+    private static Object await(CompletableFuture<Object> leader) throws IOException {
+        try {
+            return leader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a coalesced call");
+        } catch (ExecutionException e) {
+            // Rethrow the leader's exception as-is so callers can still inspect e.g. KnoxApiException status
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Immutable sorted, duplicate-free {@code long[]} of IMEIs: 8 bytes per IMEI with no per-entry overhead,
+ * binary-search membership, and linear-time merge for union, difference and intersection. Building from an
+ * unsorted array can sort in place, so deduplicating an IMEI list read by {@link ImeiFileReader} needs no
+ * memory beyond the array itself (50M IMEIs: 400 MB).
+ */
+public final class SortedLongIndex {
+    private static final SortedLongIndex EMPTY = new SortedLongIndex(new long[0], 0);
+
+    private final long[] values;
+    private final int size;
+
+    private SortedLongIndex(long[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    public static SortedLongIndex empty() { return EMPTY; }
+
+    /** Index of {@code values} (copied first). */
+    public static SortedLongIndex of(long... values) {
+        return ofUnsorted(values.clone(), true);
+    }
+
+    /**
+     * Index over {@code values}; with {@code inPlace} the array is sorted and compacted in place and becomes the
+     * index's storage, so the caller must not modify it afterwards.
+     */
+    public static SortedLongIndex ofUnsorted(long[] values, boolean inPlace) {
+        long[] sorted = inPlace ? values : values.clone();
+        Arrays.parallelSort(sorted);
+        return new SortedLongIndex(sorted, unique(sorted, sorted.length));
+    }
+
+    /** Index over the first {@code size} elements of {@code values}, which must already be strictly ascending. */
+    static SortedLongIndex ofSorted(long[] values, int size) {
+        for (int i = 1; i < size; i++) {
+            if (values[i] <= values[i - 1]) throw new IllegalArgumentException("values not strictly ascending at " + i);
+        }
+        return new SortedLongIndex(values, size);
+    }
+
+    private static int unique(long[] sorted, int length) {
+        if (length == 0) return 0;
+        int n = 1;
+        for (int i = 1; i < length; i++) {
+            if (sorted[i] != sorted[n - 1]) sorted[n++] = sorted[i];
+        }
+        return n;
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    public long get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        return values[index];
+    }
+
+    public boolean contains(long value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    /** Elements of this index that are not in {@code other}. */
+    public SortedLongIndex difference(SortedLongIndex other) {
+        long[] out = new long[size];
+        int n = 0, j = 0;
+        for (int i = 0; i < size; i++) {
+            long v = values[i];
+            while (j < other.size && other.values[j] < v) j++;
+            if (j >= other.size || other.values[j] != v) out[n++] = v;
+        }
+        return new SortedLongIndex(out, n);
+    }
+
+    /** Elements in either index. */
+    public SortedLongIndex union(SortedLongIndex other) {
+        long[] out = new long[size + other.size];
+        int n = 0, i = 0, j = 0;
+        while (i < size && j < other.size) {
+            long a = values[i], b = other.values[j];
+            if (a < b) { out[n++] = a; i++; }
+            else if (b < a) { out[n++] = b; j++; }
+            else { out[n++] = a; i++; j++; }
+        }
+        while (i < size) out[n++] = values[i++];
+        while (j < other.size) out[n++] = other.values[j++];
+        return new SortedLongIndex(out, n);
+    }
+
+    /** Elements in both indexes. */
+    public SortedLongIndex intersection(SortedLongIndex other) {
+        long[] out = new long[Math.min(size, other.size)];
+        int n = 0, i = 0, j = 0;
+        while (i < size && j < other.size) {
+            long a = values[i], b = other.values[j];
+            if (a < b) i++;
+            else if (b < a) j++;
+            else { out[n++] = a; i++; j++; }
+        }
+        return new SortedLongIndex(out, n);
+    }
+
+    /** Visit every element in ascending order. */
+    public void forEach(LongConsumer action) {
+        for (int i = 0; i < size; i++) action.accept(values[i]);
+    }
+
+    /** Copy of the elements, ascending. */
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof SortedLongIndex other && Arrays.equals(values, 0, size, other.values, 0, other.size);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 1;
+        for (int i = 0; i < size; i++) h = 31 * h + Long.hashCode(values[i]);
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "SortedLongIndex[size=" + size + "]";
+    }
+}
@@ -15,21 +15,38 @@
  */
 package com.samsung.knoxwsm.token;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.*;
 import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class TokenClient {
     private static final Logger log = LoggerFactory.getLogger(TokenClient.class);
+    // Modes that request an access token and call the Knox APIs
+    private static final Set<String> API_MODES = Set.of("request-token", "full-flow", "enroll-guard", "validate-token", "refresh-token",
+            "upload-devices", "list-uploads", "get-upload", "poll-uploads", "bulk-enroll-unlock");
 
     public static void main(String[] args) {
         try {
@@ -53,6 +70,14 @@ public class TokenClient {
             String rsaPlaintext = cli.get("plaintext");
             String uploadFile = cli.get("upload-file"); // path to JSON file for upload-devices
             String uploadId = cli.get("upload-id"); // for get-upload
+            String imeiFile = cli.get("imei-file"); // newline separated IMEIs for bulk modes
+
+            if (mode.equals("device-state")) { printDeviceStates(cli, imeiFile, outputJson, quiet); return; }
+
+            boolean apiMode = API_MODES.contains(mode);
+            KnoxAuthClient authClient = new KnoxAuthClient();
+            // Connect to both API hosts while keys are generated/loaded and the JWT is signed
+            CompletableFuture<Void> prewarm = apiMode && Boolean.parseBoolean(Config.get("KNOX_HTTP_PREWARM", "true")) ? authClient.prewarm() : null;
 
             if (certificatePath != null && !Files.exists(certificatePath)) {
                 throw new IllegalArgumentException("certificate file not found: " + certificatePath);
@@ -64,7 +89,6 @@ public class TokenClient {
                 generateKeyPair(privateKeyPath, publicKeyPath);
             }
 
-            KnoxAuthClient authClient = new KnoxAuthClient();
             String publicKey = KnoxTokenUtility.getPublicKeyBase64(publicKeyPath);
 
             if (mode.equals("generate-keys")) { if (!quiet) System.out.println("Key pair present at: " + privateKeyPath + " / " + publicKeyPath); log.debug("generate-keys mode completed"); return; }
@@ -108,29 +132,202 @@ public class TokenClient {
                 return;
             }
 
-            String jwt;
-            try (InputStream privateKeyStream = new FileInputStream(privateKeyPath.toFile())) {
-                jwt = KnoxTokenUtility.generateSignedClientIdentifierJWT(privateKeyStream, clientId, null);
+            String jwt = signClientJwt(privateKeyPath, clientId);
+            if (prewarm != null && !ServerClock.shared().isCalibrated()) {
+                // The pre-warm response carries the server Date; wait briefly for it and re-sign only if it shows skew
+                long waitMillis = Math.min(Config.getLong("KNOX_HTTP_PREWARM_WAIT_MS", 500), Config.getLong("KNOX_HTTP_CONNECT_TIMEOUT_MS", 10_000));
+                try { prewarm.get(waitMillis, TimeUnit.MILLISECONDS); } catch (Exception e) { log.debug("Pre-warm not completed: {}", e.toString()); }
+                if (ServerClock.shared().offsetMillis() != 0) jwt = signClientJwt(privateKeyPath, clientId);
             }
 
-            if (mode.equals("request-token") || mode.equals("full-flow") || mode.equals("enroll-guard") || mode.equals("validate-token") || mode.equals("refresh-token") || mode.equals("upload-devices") || mode.equals("list-uploads") || mode.equals("get-upload")) {
+            if (apiMode) {
+                String deadlineSec = firstNonBlank(cli.get("deadline"), Config.get("KNOX_DEADLINE_SEC", ""));
+                // Entered on the main thread for the rest of the run; bulk workers inherit it
+                if (deadlineSec != null) Deadline.after(Duration.ofSeconds(Long.parseLong(deadlineSec))).enter();
                 Map<String, Object> tokenResponse = authClient.requestAccessToken(publicKey, jwt, tokenValidity);
                 String accessToken = (String) tokenResponse.get("accessToken");
                 if (!quiet) emit("accessToken", accessToken, outputJson);
                 if (mode.equals("request-token")) return;
                 if (mode.equals("validate-token")) { emitMap("validateResult", authClient.validateAccessToken(accessToken), outputJson, quiet); return; }
-                if (mode.equals("enroll-guard") || mode.equals("full-flow")) { emitMap("enrollment", authClient.enrollDeviceInKnoxGuard(accessToken, deviceImei, clientId), outputJson, quiet); return; }
+                if (mode.equals("enroll-guard") || mode.equals("full-flow")) {
+                    try (DeviceStateStore stateStore = openStateStore(cli)) {
+                        long tracked = stateStore == null ? -1 : ImeiFileReader.parse(deviceImei);
+                        if (tracked >= 0 && stateStore.has(tracked, DeviceStateStore.Step.ENROLLED)) {
+                            emitMap("enrollment", Map.of("skipped", true, "enrolledAt", Instant.ofEpochMilli(stateStore.get(tracked).enrolledAt()).toString()), outputJson, quiet);
+                            return;
+                        }
+                        emitMap("enrollment", authClient.enrollDeviceInKnoxGuard(accessToken, deviceImei, clientId), outputJson, quiet);
+                        if (tracked >= 0) stateStore.record(tracked, DeviceStateStore.Step.ENROLLED, System.currentTimeMillis());
+                    }
+                    return;
+                }
+                if (mode.equals("upload-devices") && imeiFile != null) {
+                    KnoxGuardClient guardClient = new KnoxGuardClient(authClient.getGuardFunctionBaseUrl(), authClient.getTransport());
+                    UploadPlanner planner = new UploadPlanner(guardClient,
+                            Integer.parseInt(firstNonBlank(cli.get("batch-size"), Config.get("KNOX_UPLOAD_BATCH_DEVICES", "1000"))),
+                            Long.parseLong(firstNonBlank(cli.get("batch-bytes"), Config.get("KNOX_UPLOAD_BATCH_BYTES", "4194304"))),
+                            Integer.parseInt(firstNonBlank(cli.get("upload-concurrency"), Config.get("KNOX_UPLOAD_CONCURRENCY", "4"))),
+                            Integer.parseInt(Config.get("KNOX_UPLOAD_BATCH_ATTEMPTS", "3")));
+                    Map<String, Object> policyFlags = cli.containsKey("policy-flags")
+                            ? new ObjectMapper().readValue(cli.get("policy-flags"), new TypeReference<Map<String, Object>>() { }) : null;
+                    SortedLongIndex imeis = readImeiFile(Paths.get(imeiFile), outputJson, quiet);
+                    boolean failed;
+                    try (DeviceStateStore stateStore = openStateStore(cli)) {
+                        if (stateStore != null) {
+                            SortedLongIndex notUploaded = withoutStep(imeis, stateStore, DeviceStateStore.Step.UPLOADED);
+                            emitMap("deviceState", Map.of("alreadyUploaded", imeis.size() - notUploaded.size()), outputJson, quiet);
+                            imeis = notUploaded;
+                        }
+                        AcceptedImeiIndex acceptedIndex = null;
+                        Duration pollTimeout = Duration.ofSeconds(Long.parseLong(firstNonBlank(cli.get("poll-timeout"), Config.get("KNOX_POLL_TIMEOUT_SEC", "300"))));
+                        if (cli.containsKey("incremental")) {
+                            acceptedIndex = AcceptedImeiIndex.load(Paths.get(firstNonBlank(cli.get("accepted-index"), Config.get("KNOX_ACCEPTED_INDEX", ".knox/accepted-imeis.idx"))));
+                            // Uploads still processing at the end of the previous run must count before the delta is taken
+                            resolveUploads(acceptedIndex, stateStore, acceptedIndex.pendingUploadIds(), guardClient, accessToken, pollTimeout, outputJson, quiet);
+                            SortedLongIndex delta = acceptedIndex.delta(imeis);
+                            Map<String, Object> line = new LinkedHashMap<>();
+                            line.put("listed", imeis.size());
+                            line.put("alreadyAccepted", imeis.size() - delta.size());
+                            line.put("toUpload", delta.size());
+                            emitMap("incremental", line, outputJson, quiet);
+                            imeis = delta;
+                        }
+                        UploadPlanner.Summary summary = planner.run(accessToken,
+                                imeiStrings(imeis).map(UploadPlanner::deviceEntry).iterator(), policyFlags, (result, progress) -> {
+                            Map<String, Object> line = new LinkedHashMap<>();
+                            line.put("batch", result.getIndex());
+                            line.put("devices", result.getDeviceCount());
+                            line.put("uploadId", result.getUploadId());
+                            line.put("attempts", result.getAttempts());
+                            if (result.getError() != null) line.put("error", result.getError().getMessage());
+                            line.put("devicesUploaded", progress.getDevicesUploaded());
+                            emitMap("batch", line, outputJson, quiet);
+                        });
+                        Map<String, Object> totals = new LinkedHashMap<>();
+                        totals.put("batches", summary.getBatches());
+                        totals.put("devices", summary.getDevices());
+                        totals.put("uploadIds", summary.getUploadIds());
+                        totals.put("failedBatches", summary.getFailures().size());
+                        totals.put("elapsedMs", summary.getElapsedMillis());
+                        if (acceptedIndex != null) {
+                            // Persist the new upload IDs first so an interrupted poll is picked up by the next run
+                            summary.getUploadIds().forEach(acceptedIndex::addPending);
+                            acceptedIndex.save();
+                        }
+                        if (acceptedIndex != null || stateStore != null) {
+                            totals.put("devicesAccepted", resolveUploads(acceptedIndex, stateStore, summary.getUploadIds(), guardClient, accessToken, pollTimeout, outputJson, quiet));
+                            if (acceptedIndex != null) totals.put("pendingUploads", acceptedIndex.pendingUploadIds().size());
+                        }
+                        emitMap("summary", totals, outputJson, false);
+                        failed = !summary.getFailures().isEmpty();
+                    }
+                    if (failed) System.exit(2);
+                    return;
+                }
                 if (mode.equals("upload-devices")) {
-                    if (uploadFile == null) throw new IllegalArgumentException("--upload-file <path> required for upload-devices mode");
-                    String json = Files.readString(Paths.get(uploadFile));
-                    emitMap("uploadResult", authClient.uploadDevices(accessToken, json), outputJson, quiet);
+                    if (uploadFile == null) throw new IllegalArgumentException("--upload-file <path> or --imei-file <path> required for upload-devices mode");
+                    emitMap("uploadResult", authClient.uploadDevices(accessToken, new JsonFileRequestBody(Paths.get(uploadFile))), outputJson, quiet);
                     return;
                 }
                 if (mode.equals("list-uploads")) {
-                    emitMap("uploads", authClient.listDeviceUploads(accessToken), outputJson, quiet); return; }
+                    if (!cli.containsKey("from") && !cli.containsKey("to") && !cli.containsKey("status") && !cli.containsKey("page-size")) {
+                        emitMap("uploads", authClient.listDeviceUploads(accessToken), outputJson, quiet); return; }
+                    UploadQuery query = UploadQuery.builder()
+                            .from(parseInstant(cli.get("from"), false))
+                            .to(parseInstant(cli.get("to"), true))
+                            .status(cli.get("status"))
+                            .pageSize(Integer.parseInt(cli.getOrDefault("page-size", "0")))
+                            .build();
+                    long count = 0;
+                    try (Stream<UploadSummary> uploads = authClient.streamUploads(accessToken, query)) {
+                        for (UploadSummary u : (Iterable<UploadSummary>) uploads::iterator) {
+                            Map<String, Object> line = new LinkedHashMap<>();
+                            line.put("uploadId", u.uploadId());
+                            line.put("status", u.status());
+                            line.put("deviceCount", u.deviceCount());
+                            line.put("createdTime", u.createdTime());
+                            emitMap("upload", line, outputJson, quiet);
+                            count++;
+                        }
+                    } catch (UncheckedIOException e) {
+                        throw e.getCause();
+                    }
+                    emitMap("summary", Map.of("uploads", count), outputJson, false);
+                    return;
+                }
                 if (mode.equals("get-upload")) {
                     if (uploadId == null) throw new IllegalArgumentException("--upload-id <id> required for get-upload mode");
                     emitMap("upload", authClient.getUploadById(accessToken, uploadId), outputJson, quiet); return; }
+                if (mode.equals("poll-uploads")) {
+                    List<String> ids = new ArrayList<>();
+                    if (uploadId != null) for (String id : uploadId.split(",")) { if (!id.isBlank()) ids.add(id.trim()); }
+                    if (cli.containsKey("upload-ids-file")) {
+                        try (Stream<String> lines = listFileLines(Paths.get(cli.get("upload-ids-file")))) { lines.forEach(ids::add); }
+                    }
+                    if (ids.isEmpty()) throw new IllegalArgumentException("--upload-id <id[,id...]> or --upload-ids-file <path> required for poll-uploads mode");
+                    Duration timeout = Duration.ofSeconds(Long.parseLong(firstNonBlank(cli.get("poll-timeout"), Config.get("KNOX_POLL_TIMEOUT_SEC", "300"))));
+                    KnoxGuardClient guardClient = new KnoxGuardClient(authClient.getGuardFunctionBaseUrl(), authClient.getTransport());
+                    int finished = 0;
+                    int failed = 0;
+                    long started = System.nanoTime();
+                    try (UploadStatusPoller poller = UploadStatusPoller.fromConfig(guardClient, () -> accessToken)) {
+                        Map<String, CompletableFuture<UploadDetail>> futures = new LinkedHashMap<>();
+                        for (String id : ids) futures.put(id, poller.track(id, timeout));
+                        for (Map.Entry<String, CompletableFuture<UploadDetail>> e : futures.entrySet()) {
+                            Map<String, Object> line = new LinkedHashMap<>();
+                            line.put("uploadId", e.getKey());
+                            try {
+                                UploadDetail detail = e.getValue().join();
+                                line.put("status", detail.status());
+                                line.put("deviceCount", detail.deviceCount());
+                                finished++;
+                            } catch (CompletionException ce) {
+                                line.put("error", ce.getCause().getMessage());
+                                failed++;
+                            }
+                            emitMap("upload", line, outputJson, quiet);
+                        }
+                    }
+                    Map<String, Object> totals = new LinkedHashMap<>();
+                    totals.put("uploads", ids.size());
+                    totals.put("finished", finished);
+                    totals.put("failed", failed);
+                    totals.put("elapsedMs", (System.nanoTime() - started) / 1_000_000);
+                    emitMap("summary", totals, outputJson, false);
+                    if (failed > 0) System.exit(2);
+                    return;
+                }
+                if (mode.equals("bulk-enroll-unlock")) {
+                    if (imeiFile == null) throw new IllegalArgumentException("--imei-file <path> required for bulk-enroll-unlock mode");
+                    int enrollConcurrency = Integer.parseInt(firstNonBlank(cli.get("enroll-concurrency"), Config.get("KNOX_ENROLL_CONCURRENCY", "4")));
+                    int unlockConcurrency = Integer.parseInt(firstNonBlank(cli.get("unlock-concurrency"), Config.get("KNOX_UNLOCK_CONCURRENCY", "4")));
+                    SortedLongIndex imeis = readImeiFile(Paths.get(imeiFile), outputJson, quiet);
+                    BulkEnrollUnlockPipeline.Summary summary;
+                    long journalSyncs = -1;
+                    try (DeviceStateStore stateStore = openStateStore(cli); BulkJournal journal = openJournal(cli, outputJson, quiet)) {
+                        BulkEnrollUnlockPipeline pipeline = new BulkEnrollUnlockPipeline(authClient, enrollConcurrency, unlockConcurrency, stateStore, journal);
+                        summary = pipeline.run(accessToken, clientId, () -> imeiStrings(imeis).iterator(), result -> {
+                            Map<String, Object> line = new LinkedHashMap<>();
+                            line.put("imei", result.getImei());
+                            line.put("outcome", result.getOutcome().name());
+                            line.put("elapsedMs", result.getElapsedMillis());
+                            if (result.getError() != null) line.put("error", result.getError().getMessage());
+                            emitMap("device", line, outputJson, quiet);
+                        });
+                        if (journal != null) journalSyncs = journal.getSyncCount();
+                    }
+                    Map<String, Object> totals = new LinkedHashMap<>();
+                    totals.put("total", summary.getTotal());
+                    totals.put("unlocked", summary.getUnlocked());
+                    totals.put("skipped", summary.getSkipped());
+                    totals.put("enrollFailed", summary.getEnrollFailed());
+                    totals.put("unlockFailed", summary.getUnlockFailed());
+                    if (journalSyncs >= 0) totals.put("journalSyncs", journalSyncs);
+                    totals.put("elapsedMs", summary.getElapsedMillis());
+                    emitMap("summary", totals, outputJson, false);
+                    if (!summary.getFailures().isEmpty()) System.exit(2);
+                    return;
+                }
             }
             log.warn("Unsupported mode requested: {}", mode);
             System.err.println("Unsupported mode: " + mode);
@@ -150,6 +347,163 @@ public class TokenClient {
         }
     }
 
+    /** Lazily read IMEIs (one per line, blank and # lines skipped); close the stream when done. */
+    private static Stream<String> listFileLines(Path file) throws IOException {
+        if (!Files.exists(file)) throw new IllegalArgumentException("List file not found: " + file);
+        return Files.lines(file, StandardCharsets.UTF_8).map(String::trim).filter(l -> !l.isEmpty() && !l.startsWith("#"));
+    }
+
+    /**
+     * Distinct valid IMEIs of an IMEI list file, in ascending order. Rejected lines are reported (with line
+     * numbers) and skipped; duplicates are dropped and counted.
+     */
+    private static SortedLongIndex readImeiFile(Path file, boolean outputJson, boolean quiet) throws IOException {
+        if (!Files.exists(file)) throw new IllegalArgumentException("IMEI file not found: " + file);
+        ImeiFileReader.Result result = ImeiFileReader.read(file);
+        for (ImeiFileReader.InvalidLine invalid : result.invalidLines()) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("line", invalid.lineNumber());
+            line.put("reason", invalid.reason().name());
+            line.put("text", invalid.text());
+            emitMap("invalidImei", line, outputJson, quiet);
+        }
+        SortedLongIndex distinct = SortedLongIndex.ofUnsorted(result.imeis(), true);
+        if (distinct.size() < result.size()) emitMap("duplicateImeis", Map.of("count", result.size() - distinct.size()), outputJson, quiet);
+        return distinct;
+    }
+
+    /**
+     * Wait for {@code uploadIds} to finish and record their accepted devices in {@code index} (then saved) and/or
+     * as uploaded in {@code stateStore}; either may be null. Uploads that time out stay pending in the index.
+     * Returns the number of devices newly recorded as accepted.
+     */
+    private static long resolveUploads(AcceptedImeiIndex index, DeviceStateStore stateStore, List<String> uploadIds, KnoxGuardClient guardClient,
+                                       String accessToken, Duration timeout, boolean outputJson, boolean quiet) throws IOException {
+        if (uploadIds.isEmpty()) return 0;
+        long recorded = 0;
+        try (UploadStatusPoller poller = UploadStatusPoller.fromConfig(guardClient, () -> accessToken)) {
+            Map<String, CompletableFuture<UploadDetail>> futures = new LinkedHashMap<>();
+            for (String id : uploadIds) futures.put(id, poller.track(id, timeout));
+            for (Map.Entry<String, CompletableFuture<UploadDetail>> e : futures.entrySet()) {
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("uploadId", e.getKey());
+                try {
+                    UploadDetail detail = e.getValue().join();
+                    int accepted = index == null ? 0 : index.record(detail);
+                    if (stateStore != null && detail.isTerminal()) {
+                        int uploaded = 0;
+                        for (UploadDetail.DeviceStatus device : detail.devices()) {
+                            long imei = AcceptedImeiIndex.isAccepted(device) ? ImeiFileReader.parse(device.deviceId()) : -1;
+                            if (imei >= 0 && stateStore.record(imei, DeviceStateStore.Step.UPLOADED, System.currentTimeMillis())) uploaded++;
+                        }
+                        if (index == null) accepted = uploaded;
+                    }
+                    recorded += accepted;
+                    line.put("status", detail.status());
+                    line.put("accepted", accepted);
+                } catch (CompletionException ce) {
+                    line.put("error", ce.getCause().getMessage());
+                }
+                emitMap("acceptedUpload", line, outputJson, quiet);
+            }
+        }
+        if (index != null) index.save();
+        return recorded;
+    }
+
+    /** The store named by --state-store or KNOX_STATE_STORE, or null when neither is set. */
+    private static String signClientJwt(Path privateKeyPath, String clientId) throws IOException {
+        try (InputStream privateKeyStream = new FileInputStream(privateKeyPath.toFile())) {
+            return KnoxTokenUtility.generateSignedClientIdentifierJWT(privateKeyStream, clientId, null);
+        }
+    }
+
+    private static DeviceStateStore openStateStore(Map<String, String> cli) throws IOException {
+        String path = cli.get("state-store");
+        return path == null || path.isBlank() ? DeviceStateStore.fromConfig() : DeviceStateStore.open(Paths.get(path));
+    }
+
+    /** A journal resumed from --resume (replay reported as a {@code resume} line), a new one at --journal, or null. */
+    private static BulkJournal openJournal(Map<String, String> cli, boolean outputJson, boolean quiet) throws IOException {
+        if (cli.containsKey("resume")) {
+            BulkJournal journal = BulkJournal.resume(Paths.get(cli.get("resume")));
+            BulkJournal.Replay replay = journal.getReplay();
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("journal", journal.getFile().toString());
+            line.put("records", replay.records());
+            line.put("succeeded", replay.succeeded());
+            line.put("inFlight", replay.inFlight());
+            line.put("failed", replay.failed());
+            emitMap("resume", line, outputJson, quiet);
+            return journal;
+        }
+        return cli.containsKey("journal") ? BulkJournal.create(Paths.get(cli.get("journal"))) : null;
+    }
+
+    private static SortedLongIndex withoutStep(SortedLongIndex imeis, DeviceStateStore stateStore, DeviceStateStore.Step step) {
+        long[] out = new long[imeis.size()];
+        int n = 0;
+        for (int i = 0; i < imeis.size(); i++) {
+            if (!stateStore.has(imeis.get(i), step)) out[n++] = imeis.get(i);
+        }
+        return SortedLongIndex.ofSorted(out, n);
+    }
+
+    /**
+     * device-state mode: one line per tracked device (all, or those in --imei-file / --device-imei), optionally
+     * only those that reached --state; with --output-json the output is a JSON-lines export.
+     */
+    private static void printDeviceStates(Map<String, String> cli, String imeiFile, boolean outputJson, boolean quiet) throws IOException {
+        DeviceStateStore.Step step = cli.containsKey("state") ? DeviceStateStore.Step.valueOf(cli.get("state").trim().toUpperCase()) : null;
+        SortedLongIndex filter = null;
+        if (imeiFile != null) {
+            filter = readImeiFile(Paths.get(imeiFile), outputJson, quiet);
+        } else if (cli.containsKey("device-imei")) {
+            long imei = ImeiFileReader.parse(cli.get("device-imei"));
+            if (imei < 0) throw new IllegalArgumentException("Invalid IMEI: " + cli.get("device-imei"));
+            filter = SortedLongIndex.of(imei);
+        }
+        try (DeviceStateStore stateStore = openStateStore(cli)) {
+            if (stateStore == null) throw new IllegalArgumentException("--state-store <path> or KNOX_STATE_STORE required for device-state mode");
+            long[] counts = new long[2];
+            Consumer<DeviceStateStore.DeviceState> print = state -> {
+                if (step != null && !state.has(step)) return;
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("imei", ImeiFileReader.format(state.imei()));
+                for (DeviceStateStore.Step s : DeviceStateStore.Step.values()) {
+                    if (state.has(s)) line.put(s.name().toLowerCase() + "At", Instant.ofEpochMilli(state.at(s)).toString());
+                }
+                emitMap("device", line, outputJson, quiet);
+                counts[0]++;
+            };
+            if (filter == null) {
+                stateStore.forEach(print);
+            } else {
+                filter.forEach(imei -> {
+                    DeviceStateStore.DeviceState state = stateStore.get(imei);
+                    if (state == null) counts[1]++; else print.accept(state);
+                });
+            }
+            Map<String, Object> totals = new LinkedHashMap<>();
+            totals.put("devices", counts[0]);
+            if (filter != null) totals.put("untracked", counts[1]);
+            emitMap("summary", totals, outputJson, false);
+        }
+    }
+
+    /** IMEI strings created one at a time as the consumer pulls them. */
+    private static Stream<String> imeiStrings(SortedLongIndex imeis) {
+        return IntStream.range(0, imeis.size()).mapToObj(i -> ImeiFileReader.format(imeis.get(i)));
+    }
+
+    /** ISO-8601 instant, or a date (yyyy-MM-dd, UTC); a date used as an upper bound covers the whole day. */
+    private static Instant parseInstant(String value, boolean endOfDay) {
+        if (value == null || value.isBlank()) return null;
+        if (value.contains("T")) return Instant.parse(value);
+        LocalDate date = LocalDate.parse(value);
+        return (endOfDay ? date.plusDays(1) : date).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
     private static void requireCertificate(Path cert) {
         if (cert == null) throw new IllegalArgumentException("--certificate path is required for this mode");
         if (!Files.exists(cert)) throw new IllegalArgumentException("Certificate file not found: " + cert);
@@ -172,7 +526,7 @@ public class TokenClient {
             if (a.equals("--help") || a.equals("-h")) { map.put("help", "true"); continue; }
             if (a.startsWith("--")) {
                 String key = a.substring(2);
-                if (Arrays.asList("output-json","quiet").contains(key)) { map.put(key, "true"); continue; }
+                if (Arrays.asList("output-json","quiet","incremental").contains(key)) { map.put(key, "true"); continue; }
                 if (i + 1 < args.length) { map.put(key, args[++i]); }
             }
         }
@@ -187,9 +541,12 @@ public class TokenClient {
                 "  request-token          Obtain access token and print it\n" +
                 "  validate-token         Request token then validate it\n" +
                 "  enroll-guard           Request token then enroll device\n" +
-                "  upload-devices         Request token then upload devices batch (requires --upload-file)\n" +
-                "  list-uploads           Request token then list recent device uploads\n" +
+                "  upload-devices         Request token then upload devices (--upload-file payload, or --imei-file batched)\n" +
+                "  list-uploads           Request token then list device uploads (paged when filters/--page-size given)\n" +
                 "  get-upload             Request token then fetch a specific upload (requires --upload-id)\n" +
+                "  poll-uploads           Request token then wait until every upload in --upload-id/--upload-ids-file finishes\n" +
+                "  bulk-enroll-unlock     Request token then enroll+unlock every IMEI in --imei-file (pipelined)\n" +
+                "  device-state           List devices recorded in the --state-store (filter: --imei-file, --device-imei, --state)\n" +
                 "  full-flow              Keys -> JWT -> Token -> Enroll (default)\n" +
                 "  sign-client-idp        Sign client identifier JWT using certificate + optional IDP token hash\n" +
                 "  sign-session           Sign session token JWT using certificate\n" +
@@ -207,7 +564,26 @@ public class TokenClient {
                 "  --access-token-raw <t> Raw access token for sign-access\n" +
                 "  --plaintext <data>     Plaintext to RSA encrypt (encrypt mode)\n" +
                 "  --upload-file <path>   JSON file containing upload payload (upload-devices)\n" +
-                "  --upload-id <id>       Upload identifier (get-upload)\n" +
+                "  --upload-id <id>       Upload identifier (get-upload; comma separated for poll-uploads)\n" +
+                "  --upload-ids-file <p>  Newline separated upload IDs (poll-uploads)\n" +
+                "  --poll-timeout <sec>   Per-upload deadline (env KNOX_POLL_TIMEOUT_SEC, default 300)\n" +
+                "  --deadline <sec>       Overall time budget for all API calls of the run (env KNOX_DEADLINE_SEC)\n" +
+                "  --imei-file <path>     Newline separated IMEI list (bulk-enroll-unlock; upload-devices in batches)\n" +
+                "  --batch-size <n>       Max devices per upload batch (env KNOX_UPLOAD_BATCH_DEVICES, default 1000)\n" +
+                "  --batch-bytes <n>      Max payload bytes per upload batch (env KNOX_UPLOAD_BATCH_BYTES, default 4194304)\n" +
+                "  --upload-concurrency <n> Parallel upload batches (env KNOX_UPLOAD_CONCURRENCY, default 4)\n" +
+                "  --incremental          Upload only IMEIs not yet accepted per the local index (upload-devices --imei-file)\n" +
+                "  --accepted-index <p>   Accepted IMEI index file (env KNOX_ACCEPTED_INDEX, default .knox/accepted-imeis.idx)\n" +
+                "  --state-store <path>   Device state store; skips devices already uploaded/enrolled/unlocked (env KNOX_STATE_STORE)\n" +
+                "  --state <step>         uploaded|enrolled|unlocked filter (device-state)\n" +
+                "  --journal <path>       Write-ahead journal of every enroll/unlock (bulk-enroll-unlock)\n" +
+                "  --resume <path>        Resume an interrupted bulk-enroll-unlock from its journal\n" +
+                "  --policy-flags <json>  Root-level upload flags, e.g. '{\"autoAccept\":true}'\n" +
+                "  --enroll-concurrency <n> Parallel enrollments (env KNOX_ENROLL_CONCURRENCY, default 4)\n" +
+                "  --unlock-concurrency <n> Parallel unlocks (env KNOX_UNLOCK_CONCURRENCY, default 4)\n" +
+                "  --from / --to <date>   Upload date range, ISO instant or yyyy-MM-dd (list-uploads, paged)\n" +
+                "  --status <s>           Upload status filter (list-uploads, paged)\n" +
+                "  --page-size <n>        Uploads per page (env KNOX_UPLOAD_PAGE_SIZE, default 100)\n" +
                 "  --output-json          Emit JSON only payload values\n" +
                 "  --quiet                Suppress descriptive text\n" +
                 "  --help                 Show this help\n");
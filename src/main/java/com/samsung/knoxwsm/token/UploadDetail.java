@@ -0,0 +1,55 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.util.List;
+
+/**
+ * Detail of one Knox Guard device upload ({@code GET /devices/uploads/{id}}) including per-device status.
+ * {@code devices} is never null.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record UploadDetail(
+    @JsonAlias({"id", "uploadID"}) String uploadId,
+    String status,
+    @JsonAlias({"totalCount", "totalDevices"}) Integer deviceCount,
+    @JsonAlias({"deviceList", "deviceStatusList"}) List<DeviceStatus> devices
+) {
+    public UploadDetail {
+        devices = devices == null ? List.of() : List.copyOf(devices);
+    }
+
+    /** See {@link UploadSummary#isTerminalStatus(String)}. */
+    public boolean isTerminal() {
+        return UploadSummary.isTerminalStatus(status);
+    }
+
+    /** Outcome for a single device within an upload. */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record DeviceStatus(
+        @JsonAlias({"imei", "deviceUid"}) String deviceId,
+        String status,
+        String errorCode,
+        @JsonAlias("message") String errorMessage
+    ) { }
+}
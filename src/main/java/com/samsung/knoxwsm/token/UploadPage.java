@@ -0,0 +1,39 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.util.List;
+
+/**
+ * Upload listing ({@code GET /devices/uploads}). {@code total} is the server-side count when reported;
+ * {@code uploads} is never null.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record UploadPage(
+    @JsonAlias("totalCount") Integer total,
+    @JsonAlias({"uploadList", "items", "content"}) List<UploadSummary> uploads
+) {
+    public UploadPage {
+        uploads = uploads == null ? List.of() : List.copyOf(uploads);
+    }
+}
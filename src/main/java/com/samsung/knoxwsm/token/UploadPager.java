@@ -0,0 +1,186 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Lazy iterator over the upload history, one page at a time. Each page is parsed with a streaming
+ * {@link JsonParser} (only the upload array and total are bound) and the following page is fetched in the
+ * background while the caller consumes the current one, so at most two pages are held at once regardless of
+ * history length. Iteration stops on a short page, once the reported total is reached, or when the server
+ * ignores paging and returns more than a page.
+ */
+final class UploadPager implements Iterator<UploadSummary>, AutoCloseable {
+    private static final Set<String> LIST_FIELDS = Set.of("uploads", "uploadList", "items", "content");
+    private static final Set<String> TOTAL_FIELDS = Set.of("total", "totalCount");
+    private static final ExecutorService PREFETCH = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "knox-upload-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final KnoxTransport transport;
+    private final ObjectMapper mapper;
+    private final IntFunction<Request> pageRequest;
+    private final int pageSize;
+    private Iterator<UploadSummary> current = Collections.emptyIterator();
+    private CompletableFuture<Page> next;
+    private int pageNum;
+    private long seen;
+    private boolean exhausted;
+    private volatile boolean closed;
+
+    UploadPager(KnoxTransport transport, ObjectMapper mapper, int pageSize, IntFunction<Request> pageRequest) {
+        this.transport = transport;
+        this.mapper = mapper;
+        this.pageSize = pageSize;
+        this.pageRequest = pageRequest;
+    }
+
+    /** Stream view; closing the stream abandons any prefetch in progress. */
+    static Stream<UploadSummary> stream(KnoxTransport transport, ObjectMapper mapper, UploadQuery query, IntFunction<Request> pageRequest) {
+        UploadPager pager = new UploadPager(transport, mapper, query.getPageSize(), pageRequest);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pager, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(pager::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (closed || exhausted) return false;
+            if (next == null) next = fetchAsync(++pageNum);
+            Page page = await(next);
+            seen += page.items.size();
+            exhausted = page.items.size() != pageSize || (page.total != null && seen >= page.total);
+            next = exhausted ? null : fetchAsync(++pageNum);
+            current = page.items.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public UploadSummary next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return current.next();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (next != null) next.cancel(false);
+        current = Collections.emptyIterator();
+    }
+
+    private CompletableFuture<Page> fetchAsync(int page) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return fetch(page);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, PREFETCH);
+    }
+
+    private Page fetch(int page) throws IOException {
+        Request request = pageRequest.apply(page);
+        try (Response response = transport.execute(request, KnoxOperation.LIST_UPLOADS)) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful()) {
+                throw new KnoxApiException(response.code(), body == null ? "" : body.string(), "List uploads failed (page " + page + ")");
+            }
+            if (body == null) throw new IOException("List uploads: empty response body (page " + page + ")");
+            try (InputStream in = body.byteStream(); JsonParser parser = mapper.getFactory().createParser(in)) {
+                return parse(parser);
+            }
+        }
+    }
+
+    /** Bind only the upload array (top level or under a known field) and the total; skip everything else. */
+    private Page parse(JsonParser parser) throws IOException {
+        List<UploadSummary> items = new ArrayList<>();
+        Long total = null;
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_ARRAY) {
+            readItems(parser, items);
+        } else if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.START_ARRAY && LIST_FIELDS.contains(field)) {
+                    readItems(parser, items);
+                } else if (value == JsonToken.VALUE_NUMBER_INT && TOTAL_FIELDS.contains(field)) {
+                    total = parser.getLongValue();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new Page(items, total);
+    }
+
+    private void readItems(JsonParser parser, List<UploadSummary> items) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            items.add(mapper.readValue(parser, UploadSummary.class));
+        }
+    }
+
+    private static Page await(CompletableFuture<Page> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted waiting for upload page"));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw new UncheckedIOException(io);
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private record Page(List<UploadSummary> items, Long total) { }
+}
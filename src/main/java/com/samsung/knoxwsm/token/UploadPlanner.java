@@ -0,0 +1,304 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Splits an arbitrarily large device source into upload batches bounded by device count and serialized size,
+ * submits them concurrently through a (shared) {@link KnoxGuardClient} and collects the resulting upload IDs.
+ * The source is consumed lazily: at most {@code 2 x concurrency} batches exist at once. Uploads are not
+ * idempotent, so a failed batch is only resubmitted (as a whole, up to {@code maxAttempts} times) when it
+ * certainly never reached the server: a refused connection or an open circuit. Each resubmission is charged to
+ * the transport's shared retry budget. 429 and 503 are left to the transport's own retries. Any other failure,
+ * including 500/502/504 and timeouts, fails the batch; its devices may or may not have been accepted, so check
+ * the upload list before resubmitting them.
+ */
+public class UploadPlanner {
+    private static final Logger log = LoggerFactory.getLogger(UploadPlanner.class);
+    // {"deviceList":[...]} plus separators; policy flags are measured separately.
+    private static final int ENVELOPE_BYTES = 16;
+
+    /** Outcome of one batch. {@code uploadId} is null when the batch failed. */
+    public static final class BatchResult {
+        private final int index;
+        private final int deviceCount;
+        private final long bytes;
+        private final String uploadId;
+        private final int attempts;
+        private final Exception error;
+
+        BatchResult(int index, int deviceCount, long bytes, String uploadId, int attempts, Exception error) {
+            this.index = index;
+            this.deviceCount = deviceCount;
+            this.bytes = bytes;
+            this.uploadId = uploadId;
+            this.attempts = attempts;
+            this.error = error;
+        }
+
+        public int getIndex() { return index; }
+        public int getDeviceCount() { return deviceCount; }
+        public long getBytes() { return bytes; }
+        public String getUploadId() { return uploadId; }
+        public int getAttempts() { return attempts; }
+        public Exception getError() { return error; }
+        public boolean isSuccess() { return error == null; }
+    }
+
+    /** Aggregated progress, passed to the {@link Listener} after every batch. */
+    public static final class Progress {
+        private final int batchesCompleted;
+        private final int batchesFailed;
+        private final long devicesUploaded;
+        private final long devicesFailed;
+
+        Progress(int batchesCompleted, int batchesFailed, long devicesUploaded, long devicesFailed) {
+            this.batchesCompleted = batchesCompleted;
+            this.batchesFailed = batchesFailed;
+            this.devicesUploaded = devicesUploaded;
+            this.devicesFailed = devicesFailed;
+        }
+
+        public int getBatchesCompleted() { return batchesCompleted; }
+        public int getBatchesFailed() { return batchesFailed; }
+        public long getDevicesUploaded() { return devicesUploaded; }
+        public long getDevicesFailed() { return devicesFailed; }
+    }
+
+    /** Final result: upload IDs in batch order plus failed batches. */
+    public static final class Summary {
+        private final int batches;
+        private final long devices;
+        private final List<String> uploadIds;
+        private final List<BatchResult> failures;
+        private final long elapsedMillis;
+
+        Summary(int batches, long devices, List<String> uploadIds, List<BatchResult> failures, long elapsedMillis) {
+            this.batches = batches;
+            this.devices = devices;
+            this.uploadIds = Collections.unmodifiableList(uploadIds);
+            this.failures = Collections.unmodifiableList(failures);
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int getBatches() { return batches; }
+        public long getDevices() { return devices; }
+        public List<String> getUploadIds() { return uploadIds; }
+        public List<BatchResult> getFailures() { return failures; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        @Override
+        public String toString() {
+            return "batches=" + batches + " devices=" + devices + " uploads=" + uploadIds.size()
+                    + " failedBatches=" + failures.size() + " elapsedMs=" + elapsedMillis;
+        }
+    }
+
+    /** Progress callback. Invoked from worker threads, so implementations must be thread-safe. */
+    public interface Listener {
+        void onBatchCompleted(BatchResult result, Progress progress);
+    }
+
+    private final KnoxGuardClient client;
+    private final int maxDevicesPerBatch;
+    private final long maxBytesPerBatch;
+    private final int concurrency;
+    private final int maxAttempts;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public UploadPlanner(KnoxGuardClient client, int maxDevicesPerBatch, long maxBytesPerBatch, int concurrency, int maxAttempts) {
+        if (client == null) throw new IllegalArgumentException("client required");
+        if (maxDevicesPerBatch < 1 || maxBytesPerBatch < 1) throw new IllegalArgumentException("batch limits must be >= 1");
+        if (concurrency < 1 || maxAttempts < 1) throw new IllegalArgumentException("concurrency and maxAttempts must be >= 1");
+        this.client = client;
+        this.maxDevicesPerBatch = maxDevicesPerBatch;
+        this.maxBytesPerBatch = maxBytesPerBatch;
+        this.concurrency = concurrency;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Limits from env/.env: KNOX_UPLOAD_BATCH_DEVICES (1000), KNOX_UPLOAD_BATCH_BYTES (4194304),
+     * KNOX_UPLOAD_CONCURRENCY (4), KNOX_UPLOAD_BATCH_ATTEMPTS (3).
+     */
+    public static UploadPlanner fromConfig(KnoxGuardClient client) {
+        return new UploadPlanner(client,
+                (int) Config.getLong("KNOX_UPLOAD_BATCH_DEVICES", 1000),
+                Config.getLong("KNOX_UPLOAD_BATCH_BYTES", 4L * 1024 * 1024),
+                (int) Config.getLong("KNOX_UPLOAD_CONCURRENCY", 4),
+                (int) Config.getLong("KNOX_UPLOAD_BATCH_ATTEMPTS", 3));
+    }
+
+    /** Upload entry for an IMEI, as expected by the Knox Guard Upload API. */
+    public static Map<String, Object> deviceEntry(String imei) {
+        Map<String, Object> device = new LinkedHashMap<>();
+        device.put("deviceId", imei);
+        device.put("platform", "android");
+        return device;
+    }
+
+    /**
+     * Batch and upload every device. Blocks until all batches have completed (successfully or not).
+     * A {@link Deadline} current on the calling thread bounds every batch; no retry is started past it.
+     * @param policyFlags optional root-level flags (autoAccept, ...) sent with every batch
+     */
+    public Summary run(String accessToken, Iterator<Map<String, Object>> devices, Map<String, Object> policyFlags, Listener listener)
+            throws InterruptedException, IOException {
+        Listener sink = listener == null ? (r, p) -> { } : listener;
+        long flagBytes = policyFlags == null || policyFlags.isEmpty() ? 0 : mapper.writeValueAsBytes(policyFlags).length;
+        if (ENVELOPE_BYTES + flagBytes >= maxBytesPerBatch) throw new IllegalArgumentException("policy flags exceed maxBytesPerBatch");
+        int maxInFlight = 2 * concurrency;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        Map<Integer, String> uploadIds = Collections.synchronizedMap(new TreeMap<>());
+        List<BatchResult> failures = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicLong devicesUploaded = new AtomicLong();
+        AtomicLong devicesFailed = new AtomicLong();
+        int batchCount = 0;
+        long deviceCount = 0;
+        long start = System.currentTimeMillis();
+
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency, namedThreads("knox-upload"));
+        try {
+            List<Map<String, Object>> batch = new ArrayList<>();
+            long batchBytes = ENVELOPE_BYTES + flagBytes;
+            while (true) {
+                Map<String, Object> device = devices.hasNext() ? devices.next() : null;
+                long deviceBytes = device == null ? 0 : mapper.writeValueAsBytes(device).length + 1;
+                if (device != null && ENVELOPE_BYTES + flagBytes + deviceBytes > maxBytesPerBatch) {
+                    throw new IllegalArgumentException("single device entry exceeds maxBytesPerBatch: " + device);
+                }
+                boolean full = batch.size() >= maxDevicesPerBatch || batchBytes + deviceBytes > maxBytesPerBatch;
+                if (!batch.isEmpty() && (device == null || full)) {
+                    List<Map<String, Object>> sealed = batch;
+                    long sealedBytes = batchBytes;
+                    int index = batchCount++;
+                    inFlight.acquire();
+                    pool.execute(Deadline.propagate(() -> {
+                        try {
+                            BatchResult result;
+                            try {
+                                result = submit(accessToken, index, sealed, sealedBytes, policyFlags);
+                            } catch (Error e) {
+                                log.error("Batch {} failed devices={}", index, sealed.size(), e);
+                                result = new BatchResult(index, sealed.size(), sealedBytes, null, 1, new IllegalStateException("Batch upload failed: " + e, e));
+                            }
+                            if (result.isSuccess()) {
+                                uploadIds.put(index, result.getUploadId());
+                                devicesUploaded.addAndGet(result.getDeviceCount());
+                            } else {
+                                failures.add(result);
+                                failed.incrementAndGet();
+                                devicesFailed.addAndGet(result.getDeviceCount());
+                            }
+                            Progress progress = new Progress(completed.incrementAndGet(), failed.get(), devicesUploaded.get(), devicesFailed.get());
+                            sink.onBatchCompleted(result, progress);
+                        } catch (RuntimeException e) {
+                            log.warn("Listener threw for batch={} error={}", index, e.toString());
+                        } finally {
+                            inFlight.release();
+                        }
+                    }));
+                    batch = new ArrayList<>();
+                    batchBytes = ENVELOPE_BYTES + flagBytes;
+                }
+                if (device == null) break;
+                batch.add(device);
+                batchBytes += deviceBytes;
+                deviceCount++;
+            }
+            // Every batch returns its permit on completion, so reclaiming all permits means the run drained.
+            inFlight.acquire(maxInFlight);
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        failures.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+        Summary summary = new Summary(batchCount, deviceCount, new ArrayList<>(uploadIds.values()), failures, System.currentTimeMillis() - start);
+        log.info("Upload plan finished {}", summary);
+        return summary;
+    }
+
+    private BatchResult submit(String accessToken, int index, List<Map<String, Object>> batch, long bytes, Map<String, Object> policyFlags) {
+        RetryPolicy retryPolicy = client.getTransport().retryPolicy();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                UploadSummary accepted = client.submitUpload(accessToken, batch, policyFlags);
+                log.debug("Batch {} uploaded devices={} bytes={} uploadId={} attempt={}", index, batch.size(), bytes, accepted.uploadId(), attempt);
+                return new BatchResult(index, batch.size(), bytes, accepted.uploadId(), attempt, null);
+            } catch (Exception e) {
+                long delay = retryPolicy.backoffMillis(attempt);
+                if (e instanceof CircuitOpenException open) delay = Math.max(delay, open.getRetryInMillis());
+                Deadline deadline = Deadline.current();
+                if (attempt >= maxAttempts || !isRetryable(e) || (deadline != null && delay >= deadline.remainingMillis())
+                        || !retryPolicy.tryAcquireRetry()) {
+                    log.warn("Batch {} failed devices={} attempts={} error={}", index, batch.size(), attempt, e.toString());
+                    return new BatchResult(index, batch.size(), bytes, null, attempt, e);
+                }
+                log.info("Retrying batch {} after {} attempt={} delayMs={}", index, e.toString(), attempt, delay);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return new BatchResult(index, batch.size(), bytes, null, attempt, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Only failures where the batch certainly was not sent; anything else could duplicate the upload. 429 and 503
+     * are already retried by the transport, so resubmitting them here would multiply its attempts.
+     */
+    private static boolean isRetryable(Exception e) {
+        return e instanceof CircuitOpenException || e instanceof ConnectException || e instanceof UnknownHostException;
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
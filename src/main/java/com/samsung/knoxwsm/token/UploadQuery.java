@@ -0,0 +1,92 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Instant;
+import okhttp3.HttpUrl;
+
+/**
+ * Server-side filters and page size for {@link KnoxAuthClient#streamUploads(String, UploadQuery)} /
+ * {@link KnoxGuardClient#streamUploads(String, UploadQuery)}. Unset filters are not sent.
+ * Query parameters: {@code startDate}/{@code endDate} (ISO-8601 instants), {@code status}, {@code pageNum} (1-based),
+ * {@code pageSize}.
+ */
+public final class UploadQuery {
+    private final Instant from;
+    private final Instant to;
+    private final String status;
+    private final int pageSize;
+
+    private UploadQuery(Builder builder) {
+        this.from = builder.from;
+        this.to = builder.to;
+        this.status = builder.status;
+        this.pageSize = builder.pageSize > 0 ? builder.pageSize : (int) Config.getLong("KNOX_UPLOAD_PAGE_SIZE", 100);
+    }
+
+    /** Every upload, default page size. */
+    public static UploadQuery all() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Instant getFrom() { return from; }
+    public Instant getTo() { return to; }
+    public String getStatus() { return status; }
+    public int getPageSize() { return pageSize; }
+
+    /** Add filter and paging parameters for page {@code pageNum} (1-based). */
+    HttpUrl.Builder applyTo(HttpUrl.Builder url, int pageNum) {
+        if (from != null) url.setQueryParameter("startDate", from.toString());
+        if (to != null) url.setQueryParameter("endDate", to.toString());
+        if (status != null) url.setQueryParameter("status", status);
+        return url.setQueryParameter("pageNum", String.valueOf(pageNum))
+                .setQueryParameter("pageSize", String.valueOf(pageSize));
+    }
+
+    @Override
+    public String toString() {
+        return "UploadQuery[from=" + from + ", to=" + to + ", status=" + status + ", pageSize=" + pageSize + "]";
+    }
+
+    /** Builder; page size defaults to KNOX_UPLOAD_PAGE_SIZE (100). */
+    public static final class Builder {
+        private Instant from;
+        private Instant to;
+        private String status;
+        private int pageSize;
+
+        private Builder() { }
+
+        public Builder from(Instant from) { this.from = from; return this; }
+        public Builder to(Instant to) { this.to = to; return this; }
+        public Builder status(String status) { this.status = status == null || status.isBlank() ? null : status; return this; }
+        public Builder pageSize(int pageSize) { this.pageSize = pageSize; return this; }
+
+        public UploadQuery build() {
+            if (from != null && to != null && to.isBefore(from)) throw new IllegalArgumentException("to must not be before from");
+            return new UploadQuery(this);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks many uploads until they reach a terminal status. A single scheduler thread owns all timers; the
+ * blocking {@link KnoxGuardClient#getUploadDetail} calls run on a small fetch pool. Each upload is polled
+ * fast at first and then with a growing interval (reset whenever its status changes), until its deadline.
+ * Futures complete with the terminal {@link UploadDetail}, or exceptionally with a {@link TimeoutException}
+ * at the deadline, or with the {@link KnoxApiException} of a non-retryable 4xx (e.g. unknown upload ID).
+ * 5xx/429/I-O errors are logged and polling continues.
+ */
+public class UploadStatusPoller implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(UploadStatusPoller.class);
+
+    private final KnoxGuardClient client;
+    private final Supplier<String> accessToken;
+    private final long initialIntervalMillis;
+    private final long maxIntervalMillis;
+    private final double backoffMultiplier;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService fetchers;
+    private final Map<String, Tracked> tracked = new ConcurrentHashMap<>();
+
+    private static final class Tracked {
+        final String uploadId;
+        final long deadlineNanos;
+        final CompletableFuture<UploadDetail> future = new CompletableFuture<>();
+        long intervalMillis;
+        String lastStatus;
+        int polls;
+
+        Tracked(String uploadId, long deadlineNanos) {
+            this.uploadId = uploadId;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    /**
+     * @param accessToken queried before every poll, so a refreshing supplier keeps long waits authorized
+     */
+    public UploadStatusPoller(KnoxGuardClient client, Supplier<String> accessToken, long initialIntervalMillis,
+                              long maxIntervalMillis, double backoffMultiplier, int fetchConcurrency) {
+        if (client == null || accessToken == null) throw new IllegalArgumentException("client and accessToken required");
+        if (initialIntervalMillis < 1 || maxIntervalMillis < initialIntervalMillis) throw new IllegalArgumentException("require 1 <= initial <= max interval");
+        if (backoffMultiplier < 1 || fetchConcurrency < 1) throw new IllegalArgumentException("backoffMultiplier and fetchConcurrency must be >= 1");
+        this.client = client;
+        this.accessToken = accessToken;
+        this.initialIntervalMillis = initialIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+        this.backoffMultiplier = backoffMultiplier;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(namedThreads("knox-poll-scheduler"));
+        this.fetchers = Executors.newFixedThreadPool(fetchConcurrency, namedThreads("knox-poll"));
+    }
+
+    /** From env/.env: KNOX_POLL_INITIAL_MS (1000), KNOX_POLL_MAX_MS (30000), KNOX_POLL_BACKOFF_PERCENT (150), KNOX_POLL_CONCURRENCY (4). */
+    public static UploadStatusPoller fromConfig(KnoxGuardClient client, Supplier<String> accessToken) {
+        return new UploadStatusPoller(client, accessToken,
+                Config.getLong("KNOX_POLL_INITIAL_MS", 1000),
+                Config.getLong("KNOX_POLL_MAX_MS", 30_000),
+                Config.getLong("KNOX_POLL_BACKOFF_PERCENT", 150) / 100.0,
+                (int) Config.getLong("KNOX_POLL_CONCURRENCY", 4));
+    }
+
+    /**
+     * Start tracking {@code uploadId} (first poll immediately). Tracking an ID that is already being tracked
+     * returns the existing future.
+     */
+    public CompletableFuture<UploadDetail> track(String uploadId, Duration timeout) {
+        if (uploadId == null || uploadId.isBlank()) throw new IllegalArgumentException("uploadId required");
+        if (scheduler.isShutdown()) throw new IllegalStateException("poller closed");
+        return tracked.computeIfAbsent(uploadId, id -> {
+            Tracked t = new Tracked(id, System.nanoTime() + timeout.toNanos());
+            t.intervalMillis = initialIntervalMillis;
+            schedule(t, 0);
+            return t;
+        }).future;
+    }
+
+    /** Number of uploads still being polled. */
+    public int getTrackedCount() {
+        return tracked.size();
+    }
+
+    private void schedule(Tracked t, long delayMillis) {
+        scheduler.schedule(() -> fetchers.execute(() -> poll(t)), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll(Tracked t) {
+        if (t.future.isDone()) return;
+        t.polls++;
+        UploadDetail detail = null;
+        try {
+            detail = client.getUploadDetail(accessToken.get(), t.uploadId);
+        } catch (KnoxApiException e) {
+            int code = e.getStatusCode();
+            if (code >= 400 && code < 500 && code != 408 && code != 429) {
+                log.warn("Polling upload {} failed permanently status={}", t.uploadId, code);
+                fail(t, e);
+                return;
+            }
+            log.info("Polling upload {} got status={} (will retry)", t.uploadId, code);
+        } catch (IOException | RuntimeException e) {
+            log.info("Polling upload {} failed {} (will retry)", t.uploadId, e.toString());
+        }
+        if (detail != null && detail.isTerminal()) {
+            log.debug("Upload {} reached status={} after {} polls", t.uploadId, detail.status(), t.polls);
+            tracked.remove(t.uploadId, t);
+            t.future.complete(detail);
+            return;
+        }
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(t.deadlineNanos - System.nanoTime());
+        if (remainingMillis <= 0) {
+            fail(t, new TimeoutException("Upload " + t.uploadId + " not finished before deadline (last status="
+                    + t.lastStatus + ", polls=" + t.polls + ")"));
+            return;
+        }
+        if (detail != null && !Objects.equals(detail.status(), t.lastStatus)) {
+            t.lastStatus = detail.status();
+            t.intervalMillis = initialIntervalMillis;
+        } else {
+            t.intervalMillis = Math.min(maxIntervalMillis, (long) (t.intervalMillis * backoffMultiplier));
+        }
+        try {
+            schedule(t, Math.min(t.intervalMillis, remainingMillis));
+        } catch (RejectedExecutionException e) {
+            fail(t, new CancellationException("poller closed"));
+        }
+    }
+
+    // Untrack first so that callbacks chained on the future already see the poller without it.
+    private void fail(Tracked t, Throwable error) {
+        tracked.remove(t.uploadId, t);
+        t.future.completeExceptionally(error);
+    }
+
+    /** Stop polling; futures still pending complete exceptionally with {@link CancellationException}. */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        fetchers.shutdownNow();
+        for (Tracked t : tracked.values()) {
+            t.future.completeExceptionally(new CancellationException("poller closed"));
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * One Knox Guard device upload as returned when submitting an upload and in upload listings.
+ * Field names vary between API revisions, so the common spellings are accepted via {@link JsonAlias}.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record UploadSummary(
+    @JsonAlias({"id", "uploadID"}) String uploadId,
+    String status,
+    @JsonAlias({"totalCount", "totalDevices"}) Integer deviceCount,
+    Integer successCount,
+    @JsonAlias("failureCount") Integer failCount,
+    @JsonAlias({"createdAt", "requestTime"}) String createdTime
+) {
+    /** True once processing has finished (any reported status other than processing/pending/in_progress). */
+    public boolean isTerminal() {
+        return isTerminalStatus(status);
+    }
+
+    /** Same rule as scripts/poll-upload.sh: a missing status is not terminal. */
+    public static boolean isTerminalStatus(String status) {
+        if (status == null || status.isBlank()) return false;
+        return switch (status.trim().toLowerCase()) {
+            case "processing", "pending", "in_progress" -> false;
+            default -> true;
+        };
+    }
+}
@@ -0,0 +1,119 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests for {@link AcceptedImeiIndex} recording, delta computation and persistence. */
+public class AcceptedImeiIndexTest {
+    @TempDir
+    Path dir;
+
+    /** The Luhn-valid IMEI with body {@code body} (14 digits). */
+    private static long imei(long body) {
+        for (int check = 0; check < 10; check++) {
+            if (ImeiFileReader.isValid(body * 10 + check)) return body * 10 + check;
+        }
+        throw new AssertionError();
+    }
+
+    private static UploadDetail.DeviceStatus device(long imei, String status, String errorCode) {
+        return new UploadDetail.DeviceStatus(ImeiFileReader.format(imei), status, errorCode, null);
+    }
+
+    @Test
+    void recordsOnlyAcceptedDevices_andDeltaSkipsThem() throws Exception {
+        AcceptedImeiIndex index = AcceptedImeiIndex.load(dir.resolve("accepted.idx"));
+        long a = imei(35_000_000_000_001L), b = imei(35_000_000_000_002L), c = imei(35_000_000_000_003L), d = imei(35_000_000_000_004L);
+        int recorded = index.record(new UploadDetail("u1", "COMPLETED", 4, List.of(
+                device(a, "SUCCESS", null),
+                device(b, "FAILED", "4001"),
+                device(c, "Completed", ""),
+                new UploadDetail.DeviceStatus("not-an-imei", "SUCCESS", null, null))));
+        assertEquals(2, recorded);
+        assertEquals(0, index.record(new UploadDetail("u2", "COMPLETED", 1, List.of(device(a, "SUCCESS", null)))), "already accepted");
+
+        SortedLongIndex delta = index.delta(SortedLongIndex.of(a, b, c, d));
+        assertEquals(SortedLongIndex.of(b, d), delta);
+        assertTrue(index.pendingUploadIds().isEmpty());
+    }
+
+    @Test
+    void pendingUploadsAndAcceptedImeis_surviveSaveAndLoad() throws Exception {
+        Path file = dir.resolve("state/accepted.idx");
+        AcceptedImeiIndex index = AcceptedImeiIndex.load(file);
+        long[] accepted = new long[5_000];
+        for (int i = 0; i < accepted.length; i++) accepted[i] = imei(35_100_000_000_000L + i * 7L);
+        List<UploadDetail.DeviceStatus> devices = new java.util.ArrayList<>();
+        for (long imei : accepted) devices.add(device(imei, "SUCCESS", null));
+        index.record(new UploadDetail("done", "COMPLETED", devices.size(), devices));
+        index.record(new UploadDetail("slow", "PROCESSING", 10, List.of()));
+        index.addPending("queued");
+        index.save();
+        assertEquals(List.of(file.getFileName()), Files.list(file.getParent()).map(Path::getFileName).toList(), "no temp file left");
+
+        AcceptedImeiIndex reloaded = AcceptedImeiIndex.load(file);
+        assertEquals(SortedLongIndex.of(accepted), reloaded.accepted());
+        assertEquals(List.of("slow", "queued"), reloaded.pendingUploadIds());
+
+        long late = imei(35_200_000_000_000L);
+        reloaded.record(new UploadDetail("slow", "COMPLETED", 1, List.of(device(late, "ACCEPTED", null))));
+        assertEquals(List.of("queued"), reloaded.pendingUploadIds());
+        assertTrue(reloaded.accepted().contains(late));
+    }
+
+    @Test
+    void rejectsFilesThatAreNotAnIndex() throws Exception {
+        Path file = dir.resolve("bogus.idx");
+        Files.writeString(file, "356544761873907\n356544761873907\n");
+        assertThrows(IOException.class, () -> AcceptedImeiIndex.load(file));
+        assertTrue(AcceptedImeiIndex.load(dir.resolve("absent.idx")).accepted().isEmpty());
+    }
+
+    @Test
+    void recordsFromUploadDetailResponses() throws Exception {
+        long a = imei(35_300_000_000_001L), b = imei(35_300_000_000_002L);
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setHeader("Content-Type", "application/json").setBody(
+                    "{\"uploadId\":\"u9\",\"status\":\"COMPLETED\",\"deviceCount\":2,\"deviceList\":["
+                            + "{\"imei\":\"" + ImeiFileReader.format(a) + "\",\"status\":\"SUCCESS\"},"
+                            + "{\"imei\":\"" + ImeiFileReader.format(b) + "\",\"status\":\"FAILED\",\"errorCode\":\"DUPLICATE\"}]}"));
+            server.start();
+            KnoxTransport transport = KnoxTransport.builder().retryPolicy(RetryPolicy.none()).build();
+            KnoxGuardClient client = new KnoxGuardClient(server.url("/kg").toString(), transport);
+
+            AcceptedImeiIndex index = AcceptedImeiIndex.load(dir.resolve("accepted.idx"));
+            index.addPending("u9");
+            assertEquals(1, index.record(client.getUploadDetail("at", "u9")));
+            assertEquals(SortedLongIndex.of(b), index.delta(SortedLongIndex.of(a, b)));
+            assertTrue(index.pendingUploadIds().isEmpty());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link AdaptiveConcurrencyLimiter}, {@link RateLimiter} and their use in {@link KnoxTransport}. */
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void growsWhileSaturated_andBacksOffOnOverload() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 0.5, 2.0);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < limiter.getLimit(); i++) limiter.acquire();
+            int inFlight = limiter.getInFlight();
+            for (int i = 0; i < inFlight; i++) limiter.release(1_000, AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        }
+        int grown = limiter.getLimit();
+        assertTrue(grown > 10, "limit should grow under sustained successful load, was " + grown);
+
+        limiter.acquire();
+        limiter.release(1_000, AdaptiveConcurrencyLimiter.Outcome.OVERLOAD);
+        assertEquals(grown / 2, limiter.getLimit(), 1);
+    }
+
+    @Test
+    void latencyRiseStopsGrowthWithoutShrinking_andIgnoreLeavesLimitAlone() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 0.5, 2.0, 1);
+        limiter.acquire();
+        limiter.release(1_000_000_000, AdaptiveConcurrencyLimiter.Outcome.IGNORE);
+        assertEquals(10, limiter.getLimit());
+        saturatedRound(limiter, KnoxOperation.UNLOCK_DEVICE, 1_000_000);
+        int warmed = limiter.getLimit();
+        for (int round = 0; round < 5; round++) saturatedRound(limiter, KnoxOperation.UNLOCK_DEVICE, 20_000_000);
+        assertTrue(limiter.getLimit() >= warmed && limiter.getLimit() <= warmed + 1,
+                "queueing latency must hold the limit, was " + warmed + " -> " + limiter.getLimit());
+    }
+
+    @Test
+    void jitteryHealthyTraffic_keepsLimitStable() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 200, 0.7, 2.0);
+        Random random = new Random(42);
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < limiter.getLimit(); i++) limiter.acquire();
+            int inFlight = limiter.getInFlight();
+            for (int i = 0; i < inFlight; i++) {
+                // sub-millisecond calls with 30x jitter, plus slow but steady uploads on the same limiter
+                boolean upload = i % 4 == 0;
+                long rtt = upload ? 200_000_000 + random.nextInt(2_000_000) : 50_000 + random.nextInt(1_500_000);
+                limiter.release(upload ? KnoxOperation.UPLOAD_DEVICES : KnoxOperation.UNLOCK_DEVICE, rtt, AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+            }
+        }
+        assertTrue(limiter.getLimit() >= 20, "healthy traffic must never shrink the limit, was " + limiter.getLimit());
+    }
+
+    private static void saturatedRound(AdaptiveConcurrencyLimiter limiter, KnoxOperation operation, long rttNanos) throws Exception {
+        for (int i = 0; i < limiter.getLimit(); i++) limiter.acquire();
+        int inFlight = limiter.getInFlight();
+        for (int i = 0; i < inFlight; i++) limiter.release(operation, rttNanos, AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+    }
+
+    @Test
+    void acquireBlocksAtLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 0.5, 2.0);
+        limiter.acquire();
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> {
+            try { limiter.acquire(); } catch (Exception e) { throw new RuntimeException(e); }
+        });
+        assertThrows(TimeoutException.class, () -> second.get(100, TimeUnit.MILLISECONDS));
+        limiter.release(1_000, AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        second.get(2, TimeUnit.SECONDS);
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    void rateLimiter_spacesPermitsAfterBurst() {
+        RateLimiter rate = new RateLimiter(10, 1);
+        assertEquals(0, rate.reserve());
+        long second = TimeUnit.NANOSECONDS.toMillis(rate.reserve());
+        long third = TimeUnit.NANOSECONDS.toMillis(rate.reserve());
+        assertTrue(second > 80 && second <= 100, "second permit wait " + second);
+        assertTrue(third > 180 && third <= 200, "third permit wait " + third);
+    }
+
+    @Test
+    void transport_throttledBulkCallsShrinkLimit_tokenCallsUnaffected() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 50, 0.5, 100.0);
+            KnoxTransport transport = KnoxTransport.builder()
+                    .retryPolicy(RetryPolicy.none())
+                    .circuitBreaker(CircuitBreaker.Settings.disabled())
+                    .concurrencyLimiter(limiter)
+                    .rateLimiter(null)
+                    .build();
+            String base = server.url("/kcs/v1").toString().replaceAll("/+$$", "");
+            KnoxAuthClient client = new KnoxAuthClient(base, base, transport);
+
+            server.enqueue(new MockResponse().setResponseCode(500));
+            assertThrows(KnoxApiException.class, () -> client.validateAccessToken("at"));
+            assertEquals(8, limiter.getLimit(), "token validation is not a bulk operation");
+
+            server.enqueue(new MockResponse().setResponseCode(429).setBody("{\"message\":\"quota\"}"));
+            assertThrows(KnoxApiException.class, () -> client.unlockDevice("at", "356938035643809"));
+            assertEquals(4, limiter.getLimit());
+            assertEquals(0, limiter.getInFlight());
+            assertEquals(4, transport.metrics().snapshot().get("limiter.limit"));
+        }
+    }
+}
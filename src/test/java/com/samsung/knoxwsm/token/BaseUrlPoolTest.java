@@ -0,0 +1,195 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link BaseUrlPool} scoring and failover between several base URLs in {@link KnoxAuthClient}. */
+public class BaseUrlPoolTest {
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final KnoxMetrics metrics = new KnoxMetrics();
+
+    private BaseUrlPool pool(long probeIntervalMillis) {
+        return new BaseUrlPool("api", List.of("https://a/kcs/v1", "https://b/kcs/v1", "https://c/kcs/v1"),
+                new BaseUrlPool.Settings(10_000, probeIntervalMillis, 1.5), metrics, now::get);
+    }
+
+    @Test
+    void failureEjects_thenPrimaryComesBackAfterCooldown() {
+        BaseUrlPool pool = pool(60_000);
+        BaseUrlPool.Endpoint a = pool.select();
+        assertEquals("https://a/kcs/v1", a.baseUrl());
+        pool.record(a, 20, BaseUrlPool.Outcome.SUCCESS);
+        pool.record(a, 0, BaseUrlPool.Outcome.GATEWAY_FAILURE);
+
+        BaseUrlPool.Endpoint b = pool.select();
+        assertEquals("https://b/kcs/v1", b.baseUrl(), "next in order while a is ejected");
+        pool.record(b, 25, BaseUrlPool.Outcome.SUCCESS);
+        assertEquals(1L, metrics.counter("failover.api.switches"));
+        assertEquals("https://b/kcs/v1", metrics.snapshot().get("failover.api.active"));
+
+        now.addAndGet(10_000);
+        BaseUrlPool.Endpoint afterCooldown = pool.select();
+        assertEquals("https://b/kcs/v1", afterCooldown.baseUrl(), "a's error score still counts against it");
+        for (int i = 0; i < 5; i++) pool.record(a, 20, BaseUrlPool.Outcome.SUCCESS);
+        assertEquals("https://a/kcs/v1", pool.select().baseUrl(), "primary preferred again once healthy");
+    }
+
+    @Test
+    void apiErrorsRaiseErrorRateWithoutEjecting() {
+        BaseUrlPool pool = pool(60_000);
+        BaseUrlPool.Endpoint a = pool.select();
+        pool.record(a, 20, BaseUrlPool.Outcome.SUCCESS);
+        for (int i = 0; i < 3; i++) pool.record(a, 40, BaseUrlPool.Outcome.ERROR);
+        assertEquals("https://a/kcs/v1", pool.select().baseUrl(), "a 500 would repeat on every URL");
+        assertEquals(0L, metrics.counter("failover.api.ejections"));
+
+        pool.record(a, 0, BaseUrlPool.Outcome.GATEWAY_FAILURE);
+        assertEquals("https://b/kcs/v1", pool.select().baseUrl());
+        assertEquals(1L, metrics.counter("failover.api.ejections"));
+    }
+
+    @Test
+    void coversAndRewrite_compareNormalizedUrlsOnSegmentBoundaries() {
+        BaseUrlPool pool = new BaseUrlPool("api", List.of("HTTPS://Gateway-A.example:443/kcs/", "https://b.example:8443/proxy/kcs"),
+                new BaseUrlPool.Settings(10_000, 60_000, 1.5), metrics, now::get);
+        assertEquals("https://gateway-a.example/kcs", pool.primary());
+        assertTrue(pool.covers(HttpUrl.get("https://gateway-a.example/kcs/v1/devices")));
+        assertTrue(pool.covers(HttpUrl.get("https://GATEWAY-A.example:443/kcs")));
+        assertFalse(pool.covers(HttpUrl.get("https://gateway-a.example/kcs2/v1")), "prefix must end on a segment boundary");
+        assertFalse(pool.covers(HttpUrl.get("http://gateway-a.example/kcs/v1")));
+        assertFalse(pool.covers(HttpUrl.get("https://gateway-a.example:8443/kcs/v1")));
+
+        BaseUrlPool.Endpoint b = endpoint(pool, "https://b.example:8443/proxy/kcs");
+        Request request = new Request.Builder().url("https://gateway-a.example/kcs/v1/a%20b?x=1").build();
+        assertEquals("https://b.example:8443/proxy/kcs/v1/a%20b?x=1", pool.rewrite(request, b).url().toString());
+        Request other = new Request.Builder().url("https://gateway-a.example/kcs2/v1").build();
+        assertSame(other, pool.rewrite(other, b));
+    }
+
+    private BaseUrlPool.Endpoint endpoint(BaseUrlPool pool, String baseUrl) {
+        for (int i = 0; i < 10; i++) {
+            BaseUrlPool.Endpoint e = pool.select();
+            if (e.baseUrl().equals(baseUrl)) return e;
+            pool.record(e, 0, BaseUrlPool.Outcome.GATEWAY_FAILURE);
+        }
+        throw new AssertionError(baseUrl + " never selected");
+    }
+
+    @Test
+    void client_keepsUrlOnApiError() throws Exception {
+        try (MockWebServer a = new MockWebServer(); MockWebServer b = new MockWebServer()) {
+            a.start(); b.start();
+            a.enqueue(new MockResponse().setResponseCode(500));
+            a.enqueue(new MockResponse().setBody("{\"valid\":true}"));
+            KnoxTransport transport = KnoxTransport.builder().retryPolicy(RetryPolicy.none())
+                    .failover(new BaseUrlPool.Settings(60_000, 60_000, 1.5)).build();
+            List<String> urls = List.of(a.url("/kcs/v1").toString(), b.url("/kcs/v1").toString());
+            KnoxAuthClient client = new KnoxAuthClient(urls, urls, transport);
+
+            assertThrows(KnoxApiException.class, () -> client.validateAccessToken("at"));
+            assertEquals(Boolean.TRUE, client.validateAccessToken("at").get("valid"));
+            assertEquals(2, a.getRequestCount());
+            assertEquals(0, b.getRequestCount());
+        }
+    }
+
+    @Test
+    void prefersClearlyFasterUrl_andProbesOthersPeriodically() {
+        BaseUrlPool pool = pool(1_000);
+        BaseUrlPool.Endpoint a = pool.select();
+        pool.record(a, 300, BaseUrlPool.Outcome.SUCCESS);
+        now.addAndGet(1_000);
+        BaseUrlPool.Endpoint probe = pool.select();
+        assertEquals("https://b/kcs/v1", probe.baseUrl(), "least recently measured URL is probed");
+        pool.record(probe, 20, BaseUrlPool.Outcome.SUCCESS);
+        assertEquals("https://b/kcs/v1", pool.select().baseUrl());
+        assertEquals("https://b/kcs/v1", pool.select().baseUrl(), "no probe before the interval");
+
+        now.addAndGet(1_000);
+        assertEquals("https://c/kcs/v1", pool.select().baseUrl(), "never-measured c probed next");
+        assertEquals(2L, metrics.counter("failover.api.probes"));
+    }
+
+    @Test
+    void similarLatency_keepsListOrder() {
+        BaseUrlPool pool = pool(1_000);
+        pool.record(pool.select(), 30, BaseUrlPool.Outcome.SUCCESS);
+        now.addAndGet(1_000);
+        BaseUrlPool.Endpoint b = pool.select();
+        pool.record(b, 25, BaseUrlPool.Outcome.SUCCESS);
+        assertEquals("https://a/kcs/v1", pool.select().baseUrl(), "within tolerance of the best: list order wins");
+    }
+
+    @Test
+    void client_failsOverOnGatewayErrorAndConnectFailure() throws Exception {
+        try (MockWebServer a = new MockWebServer(); MockWebServer b = new MockWebServer(); MockWebServer c = new MockWebServer()) {
+            a.start(); b.start(); c.start();
+            a.enqueue(new MockResponse().setResponseCode(503));
+            b.enqueue(new MockResponse().setBody("{\"valid\":true}"));
+            b.enqueue(new MockResponse().setBody("{\"valid\":true}"));
+            KnoxTransport transport = KnoxTransport.builder().retryPolicy(RetryPolicy.none())
+                    .failover(new BaseUrlPool.Settings(60_000, 60_000, 1.5)).build();
+            List<String> urls = List.of(a.url("/kcs/v1").toString(), b.url("/kcs/v1").toString(), c.url("/kcs/v1").toString());
+            KnoxAuthClient client = new KnoxAuthClient(urls, urls, transport);
+
+            assertEquals(Boolean.TRUE, client.validateAccessToken("at").get("valid"));
+            assertEquals(Boolean.TRUE, client.validateAccessToken("at").get("valid"));
+            assertEquals(1, a.getRequestCount(), "ejected primary not retried");
+            assertEquals(2, b.getRequestCount());
+            assertEquals("/kcs/v1/ses/token/validate", b.takeRequest().getPath());
+            assertEquals(1L, transport.metrics().counter("failovers.validate_token"));
+
+            // a non-idempotent call still fails over when the connection cannot be made
+            b.shutdown();
+            c.enqueue(new MockResponse().setBody("{\"enrolled\":true}"));
+            assertEquals(Boolean.TRUE, client.enrollDeviceInKnoxGuard("at", "356938035643809", "client").get("enrolled"));
+            assertEquals(1, c.getRequestCount());
+        }
+    }
+
+    @Test
+    void client_movesTrafficToFasterUrl() throws Exception {
+        try (MockWebServer slow = new MockWebServer(); MockWebServer fast = new MockWebServer()) {
+            slow.start(); fast.start();
+            for (int i = 0; i < 8; i++) {
+                slow.enqueue(new MockResponse().setBody("{}").setHeadersDelay(1, TimeUnit.SECONDS));
+                fast.enqueue(new MockResponse().setBody("{}"));
+            }
+            KnoxTransport transport = KnoxTransport.builder().retryPolicy(RetryPolicy.none())
+                    .failover(new BaseUrlPool.Settings(60_000, 500, 1.5)).build();
+            List<String> urls = List.of(slow.url("/kcs/v1").toString(), fast.url("/kcs/v1").toString());
+            KnoxAuthClient client = new KnoxAuthClient(urls, List.of(fast.url("/kcs/v1.1/kg").toString()), transport);
+            for (int i = 0; i < 8; i++) client.validateAccessToken("at");
+            assertTrue(slow.getRequestCount() <= 2, "slow=" + slow.getRequestCount());
+            assertEquals(fast.url("/kcs/v1").toString().replaceAll("/+$", ""), client.getApiBaseUrlPool().current().baseUrl());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.*;
+
+/** Tests for the pipelined enroll -> unlock bulk runner. */
+public class BulkEnrollUnlockPipelineTest {
+    private static final String FAILING_IMEI = "359881234567892";
+
+    private MockWebServer server;
+    private KnoxAuthClient client;
+    private final ConcurrentLinkedQueue<String> unlockBodies = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String body = request.getBody().readUtf8();
+                if (request.getPath().endsWith("/kguard/devices/unlock")) {
+                    unlockBodies.add(body);
+                    return new MockResponse().setResponseCode(200).setBody("{\"unlocked\":true}");
+                }
+                if (body.contains(FAILING_IMEI)) {
+                    return new MockResponse().setResponseCode(400).setBody("{\"error\":\"INVALID_IMEI\"}");
+                }
+                return new MockResponse().setResponseCode(200).setBody("{\"enrolled\":true}");
+            }
+        });
+        server.start();
+        String base = server.url("/kcs/v1").toString().replaceAll("/+$$", "");
+        String guardBase = server.url("/kcs/v1.1/kg").toString().replaceAll("/+$$", "");
+        client = new KnoxAuthClient(base, guardBase);
+    }
+
+    @AfterEach
+    void stop() throws IOException { server.shutdown(); }
+
+    @Test
+    void run_unlocksEnrolledDevicesAndSkipsFailedEnrollments() throws Exception {
+        List<String> imeis = List.of("359881234567890", "359881234567891", FAILING_IMEI, "359881234567893");
+        ConcurrentLinkedQueue<BulkEnrollUnlockPipeline.DeviceResult> streamed = new ConcurrentLinkedQueue<>();
+        BulkEnrollUnlockPipeline pipeline = new BulkEnrollUnlockPipeline(client, 2, 2);
+
+        BulkEnrollUnlockPipeline.Summary summary = pipeline.run("at", "client-xyz", imeis, streamed::add);
+
+        assertEquals(4, summary.getTotal());
+        assertEquals(3, summary.getUnlocked());
+        assertEquals(1, summary.getEnrollFailed());
+        assertEquals(0, summary.getUnlockFailed());
+        assertEquals(4, streamed.size());
+        assertEquals(3, unlockBodies.size());
+        assertTrue(unlockBodies.stream().noneMatch(b -> b.contains(FAILING_IMEI)), "failed enrollment must not be unlocked");
+        BulkEnrollUnlockPipeline.DeviceResult failed = summary.getFailures().get(0);
+        assertEquals(FAILING_IMEI, failed.getImei());
+        assertEquals(BulkEnrollUnlockPipeline.Outcome.ENROLL_FAILED, failed.getOutcome());
+        assertEquals(400, ((KnoxApiException) failed.getError()).getStatusCode());
+    }
+
+    @Test
+    void run_errorInDeviceTask_reportsDeviceFailed_withoutHangingDrain() {
+        List<String> imeis = List.of("359881234567890", "359881234567891", "359881234567893", "359881234567894", "359881234567895");
+        BulkEnrollUnlockPipeline pipeline = new BulkEnrollUnlockPipeline(client, 1, 1);
+        ConcurrentLinkedQueue<BulkEnrollUnlockPipeline.DeviceResult> streamed = new ConcurrentLinkedQueue<>();
+        BulkEnrollUnlockPipeline.Listener listener = new BulkEnrollUnlockPipeline.Listener() {
+            @Override
+            public void onEnrolled(String imei) {
+                if (imei.equals("359881234567891")) throw new AssertionError("listener bug");
+            }
+
+            @Override
+            public void onDeviceCompleted(BulkEnrollUnlockPipeline.DeviceResult result) { streamed.add(result); }
+        };
+
+        BulkEnrollUnlockPipeline.Summary summary = assertTimeoutPreemptively(Duration.ofSeconds(20),
+                () -> pipeline.run("at", "client-xyz", imeis, listener));
+
+        assertEquals(5, summary.getTotal());
+        assertEquals(4, summary.getUnlocked());
+        assertEquals(1, summary.getEnrollFailed());
+        assertEquals(5, streamed.size(), "every device is reported exactly once");
+        BulkEnrollUnlockPipeline.DeviceResult failed = summary.getFailures().get(0);
+        assertEquals("359881234567891", failed.getImei());
+        assertEquals(BulkEnrollUnlockPipeline.Outcome.ENROLL_FAILED, failed.getOutcome());
+        assertInstanceOf(AssertionError.class, failed.getError().getCause());
+        assertFalse(unlockBodies.stream().anyMatch(b -> b.contains("359881234567891")));
+    }
+
+    @Test
+    void constructor_rejectsNonPositiveConcurrency() {
+        assertThrows(IllegalArgumentException.class, () -> new BulkEnrollUnlockPipeline(client, 0, 1));
+    }
+}
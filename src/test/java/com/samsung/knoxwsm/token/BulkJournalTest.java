@@ -0,0 +1,268 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests for {@link BulkJournal} group commit, crash recovery and resuming a bulk run. */
+public class BulkJournalTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void concurrentCommits_shareSyncs_andAllReplay() throws Exception {
+        Path file = dir.resolve("run.journal");
+        int threads = 16, perThread = 500;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (BulkJournal journal = BulkJournal.create(file)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long base = t * 1_000_000L;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) journal.commit(base + i, BulkJournal.Op.UNLOCK, BulkJournal.Event.SUCCEEDED);
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+            assertTrue(journal.getSyncCount() < threads * perThread, "group commit must batch fsyncs, got " + journal.getSyncCount());
+        } finally {
+            pool.shutdown();
+        }
+        try (BulkJournal resumed = BulkJournal.resume(file)) {
+            assertEquals(new BulkJournal.Replay(threads * perThread, threads * perThread, 0, 0), resumed.getReplay());
+            assertTrue(resumed.hasSucceeded(15_000_499L, BulkJournal.Op.UNLOCK));
+            assertFalse(resumed.hasSucceeded(15_000_499L, BulkJournal.Op.ENROLL));
+        }
+    }
+
+    @Test
+    void unclosedJournalWithTornTail_replaysDurableRecords() throws Exception {
+        Path file = dir.resolve("run.journal");
+        BulkJournal.create(file).close();
+        FileChannel crashedChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        crashedChannel.position(crashedChannel.size());
+        BulkJournal crashed = new BulkJournal(file, crashedChannel);
+        crashed.append(1, BulkJournal.Op.ENROLL, BulkJournal.Event.STARTED);
+        crashed.commit(1, BulkJournal.Op.ENROLL, BulkJournal.Event.SUCCEEDED);
+        crashed.commit(2, BulkJournal.Op.ENROLL, BulkJournal.Event.STARTED);
+        crashed.append(3, BulkJournal.Op.ENROLL, BulkJournal.Event.SUCCEEDED); // never synced: lost in the "crash"
+        crashedChannel.close(); // the process dies without closing the journal
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[13]));
+        }
+
+        try (BulkJournal resumed = BulkJournal.resume(file)) {
+            assertEquals(new BulkJournal.Replay(3, 1, 1, 0), resumed.getReplay());
+            assertTrue(resumed.hasSucceeded(1, BulkJournal.Op.ENROLL));
+            assertFalse(resumed.hasSucceeded(3, BulkJournal.Op.ENROLL));
+            assertEquals(8 + 3 * 24, Files.size(file));
+            resumed.commit(2, BulkJournal.Op.ENROLL, BulkJournal.Event.SUCCEEDED);
+        }
+        try (BulkJournal again = BulkJournal.resume(file)) {
+            assertEquals(new BulkJournal.Replay(4, 2, 0, 0), again.getReplay());
+        }
+        assertThrows(IllegalArgumentException.class, () -> BulkJournal.create(file), "existing journal must be resumed");
+    }
+
+    @Test
+    void journalInUse_cannotBeCreatedOrResumedByAnotherRun() throws Exception {
+        Path file = dir.resolve("run.journal");
+        try (BulkJournal journal = BulkJournal.create(file)) {
+            journal.commit(1, BulkJournal.Op.ENROLL, BulkJournal.Event.SUCCEEDED);
+            IOException e = assertThrows(IOException.class, () -> BulkJournal.resume(file));
+            assertTrue(e.getMessage().contains("in use by another run"), e.getMessage());
+        }
+        try (BulkJournal journal = BulkJournal.resume(file)) {
+            assertEquals(new BulkJournal.Replay(1, 1, 0, 0), journal.getReplay(), "lock released on close");
+        }
+
+        Path fresh = dir.resolve("fresh.journal");
+        try (BulkJournal journal = BulkJournal.create(fresh)) {
+            assertThrows(IOException.class, () -> BulkJournal.create(fresh), "header-only journal is not truncated under its owner");
+            journal.commit(2, BulkJournal.Op.UNLOCK, BulkJournal.Event.SUCCEEDED);
+        }
+        try (BulkJournal resumed = BulkJournal.resume(fresh)) {
+            assertTrue(resumed.hasSucceeded(2, BulkJournal.Op.UNLOCK));
+        }
+    }
+
+    @Test
+    void failedWrite_failsLaterCommits_andKeepsEarlierRecords() throws Exception {
+        Path file = dir.resolve("run.journal");
+        BulkJournal.create(file).close();
+        FailingChannel channel = new FailingChannel(FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        channel.position(channel.size());
+        BulkJournal journal = new BulkJournal(file, channel);
+        journal.commit(1, BulkJournal.Op.ENROLL, BulkJournal.Event.SUCCEEDED);
+
+        channel.failWrites = true;
+        assertThrows(IOException.class, () -> journal.commit(2, BulkJournal.Op.ENROLL, BulkJournal.Event.SUCCEEDED));
+        channel.failWrites = false;
+        assertThrows(IOException.class, () -> journal.commit(3, BulkJournal.Op.ENROLL, BulkJournal.Event.SUCCEEDED),
+                "a later sync must not mark the lost batch durable");
+        assertThrows(IOException.class, journal::close);
+        assertEquals(8 + 24 + 10, Files.size(file), "nothing written after the torn record");
+
+        try (BulkJournal resumed = BulkJournal.resume(file)) {
+            assertEquals(new BulkJournal.Replay(1, 1, 0, 0), resumed.getReplay());
+            assertTrue(resumed.hasSucceeded(1, BulkJournal.Op.ENROLL));
+            assertFalse(resumed.hasSucceeded(2, BulkJournal.Op.ENROLL));
+            assertFalse(resumed.hasSucceeded(3, BulkJournal.Op.ENROLL));
+        }
+    }
+
+    @Test
+    void resumedPipeline_skipsCompletedAndRetriesInFlight() throws Exception {
+        AtomicInteger enrolls = new AtomicInteger();
+        AtomicInteger unlocks = new AtomicInteger();
+        try (MockWebServer server = new MockWebServer()) {
+            server.setDispatcher(new Dispatcher() {
+                @Override
+                public MockResponse dispatch(RecordedRequest request) {
+                    (request.getPath().endsWith("/devices/unlock") ? unlocks : enrolls).incrementAndGet();
+                    return new MockResponse().setBody("{}");
+                }
+            });
+            server.start();
+            String base = server.url("/kcs/v1").toString().replaceAll("/+$$", "");
+            KnoxAuthClient client = new KnoxAuthClient(base, base);
+            String done = "356544761873907", midUnlock = "490154203237518", untouched = "356938035643809";
+            Path file = dir.resolve("run.journal");
+            try (BulkJournal journal = BulkJournal.create(file)) {
+                journal.commit(ImeiFileReader.parse(done), BulkJournal.Op.ENROLL, BulkJournal.Event.SUCCEEDED);
+                journal.commit(ImeiFileReader.parse(done), BulkJournal.Op.UNLOCK, BulkJournal.Event.SUCCEEDED);
+                journal.commit(ImeiFileReader.parse(midUnlock), BulkJournal.Op.ENROLL, BulkJournal.Event.SUCCEEDED);
+                journal.commit(ImeiFileReader.parse(midUnlock), BulkJournal.Op.UNLOCK, BulkJournal.Event.STARTED);
+            }
+            List<String> imeis = List.of(done, midUnlock, untouched);
+
+            try (BulkJournal journal = BulkJournal.resume(file)) {
+                assertEquals(1, journal.getReplay().inFlight());
+                BulkEnrollUnlockPipeline.Summary summary = new BulkEnrollUnlockPipeline(client, 2, 2, null, journal).run("at", "client", imeis, r -> { });
+                assertEquals(1, summary.getSkipped());
+                assertEquals(2, summary.getUnlocked());
+            }
+            assertEquals(1, enrolls.get(), "only the untouched device is enrolled");
+            assertEquals(2, unlocks.get(), "the in-flight unlock is retried");
+
+            try (BulkJournal journal = BulkJournal.resume(file)) {
+                assertEquals(3, new BulkEnrollUnlockPipeline(client, 2, 2, null, journal).run("at", "client", imeis, r -> { }).getSkipped());
+            }
+            assertEquals(3, server.getRequestCount());
+        }
+    }
+
+    @Test
+    void failedJournal_stopsPipeline_andReportsNothingUnlocked() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        try (MockWebServer server = new MockWebServer()) {
+            server.setDispatcher(new Dispatcher() {
+                @Override
+                public MockResponse dispatch(RecordedRequest request) {
+                    calls.incrementAndGet();
+                    return new MockResponse().setBody("{}");
+                }
+            });
+            server.start();
+            String base = server.url("/kcs/v1").toString().replaceAll("/+$$", "");
+            KnoxAuthClient client = new KnoxAuthClient(base, base);
+            Path file = dir.resolve("run.journal");
+            BulkJournal.create(file).close();
+            FailingChannel channel = new FailingChannel(FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            channel.position(channel.size());
+            channel.failWrites = true;
+            List<String> imeis = new ArrayList<>();
+            for (long imei = 356938035600000L; imeis.size() < 40; imei++) {
+                String candidate = String.valueOf(imei);
+                if (ImeiFileReader.parse(candidate) >= 0) imeis.add(candidate);
+            }
+
+            List<BulkEnrollUnlockPipeline.DeviceResult> reported = Collections.synchronizedList(new ArrayList<>());
+            try (BulkJournal journal = new BulkJournal(file, channel)) {
+                IOException e = assertThrows(IOException.class,
+                        () -> new BulkEnrollUnlockPipeline(client, 1, 1, null, journal).run("at", "client", imeis, reported::add));
+                assertTrue(e.getMessage().contains("resume"), e.getMessage());
+            } catch (IOException closeAfterFailure) {
+                // expected: buffered records cannot be made durable either
+            }
+            assertFalse(reported.isEmpty());
+            assertTrue(reported.stream().noneMatch(BulkEnrollUnlockPipeline.DeviceResult::isSuccess), "nothing is durable, so nothing succeeded");
+            assertTrue(reported.size() < imeis.size(), "no new devices are started after the failure");
+            assertTrue(calls.get() <= 8, "calls after the failure: " + calls.get());
+        }
+    }
+
+    /** Delegates to a real channel; while {@code failWrites} is set, writes a few bytes and then fails like a full disk. */
+    private static final class FailingChannel extends FileChannel {
+        private final FileChannel delegate;
+        volatile boolean failWrites;
+
+        FailingChannel(FileChannel delegate) { this.delegate = delegate; }
+
+        @Override public int write(ByteBuffer src) throws IOException {
+            if (!failWrites) return delegate.write(src);
+            int torn = Math.min(10, src.remaining());
+            delegate.write(src.slice().limit(torn));
+            src.position(src.position() + torn);
+            throw new IOException("No space left on device");
+        }
+        @Override public int read(ByteBuffer dst) throws IOException { return delegate.read(dst); }
+        @Override public long read(ByteBuffer[] dsts, int offset, int length) throws IOException { return delegate.read(dsts, offset, length); }
+        @Override public long write(ByteBuffer[] srcs, int offset, int length) throws IOException { return delegate.write(srcs, offset, length); }
+        @Override public long position() throws IOException { return delegate.position(); }
+        @Override public FileChannel position(long newPosition) throws IOException { delegate.position(newPosition); return this; }
+        @Override public long size() throws IOException { return delegate.size(); }
+        @Override public FileChannel truncate(long size) throws IOException { delegate.truncate(size); return this; }
+        @Override public void force(boolean metaData) throws IOException { delegate.force(metaData); }
+        @Override public long transferTo(long position, long count, WritableByteChannel target) throws IOException { return delegate.transferTo(position, count, target); }
+        @Override public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException { return delegate.transferFrom(src, position, count); }
+        @Override public int read(ByteBuffer dst, long position) throws IOException { return delegate.read(dst, position); }
+        @Override public int write(ByteBuffer src, long position) throws IOException { return delegate.write(src, position); }
+        @Override public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException { return delegate.map(mode, position, size); }
+        @Override public FileLock lock(long position, long size, boolean shared) throws IOException { return delegate.lock(position, size, shared); }
+        @Override public FileLock tryLock(long position, long size, boolean shared) throws IOException { return delegate.tryLock(position, size, shared); }
+        @Override protected void implCloseChannel() throws IOException { delegate.close(); }
+    }
+}
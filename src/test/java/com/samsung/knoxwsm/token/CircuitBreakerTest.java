@@ -0,0 +1,99 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link CircuitBreaker} state transitions and fail-fast behaviour in {@link KnoxTransport}. */
+public class CircuitBreakerTest {
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final KnoxMetrics metrics = new KnoxMetrics();
+
+    private CircuitBreaker breaker(long slowCallMillis) {
+        CircuitBreaker.Settings settings = new CircuitBreaker.Settings(true, 4, 4, 0.5, 0.5, slowCallMillis, 5_000, 2);
+        return new CircuitBreaker("host/ses/token", settings, metrics, now::get);
+    }
+
+    @Test
+    void opensOnFailureRate_thenHalfOpensAndCloses() throws Exception {
+        CircuitBreaker cb = breaker(10_000);
+        for (int i = 0; i < 2; i++) { cb.acquirePermission(); cb.onResult(5, false); }
+        for (int i = 0; i < 2; i++) { cb.acquirePermission(); cb.onResult(5, true); }
+        assertEquals(CircuitBreaker.State.OPEN, cb.getState());
+        assertThrows(CircuitOpenException.class, cb::acquirePermission);
+        assertEquals(1L, metrics.counter("breaker.host/ses/token.rejected"));
+
+        now.addAndGet(5_000);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, cb.getState());
+        cb.acquirePermission();
+        cb.acquirePermission();
+        assertThrows(CircuitOpenException.class, cb::acquirePermission, "only halfOpenCalls trial calls admitted");
+        cb.onResult(5, false);
+        cb.onResult(5, false);
+        assertEquals(CircuitBreaker.State.CLOSED, cb.getState());
+        assertEquals("CLOSED", metrics.snapshot().get("breaker.host/ses/token.state"));
+    }
+
+    @Test
+    void opensOnSlowCallRate_andReopensOnFailedTrial() throws Exception {
+        CircuitBreaker cb = breaker(100);
+        for (int i = 0; i < 4; i++) { cb.acquirePermission(); cb.onResult(i < 2 ? 500 : 5, false); }
+        assertEquals(CircuitBreaker.State.OPEN, cb.getState());
+        now.addAndGet(5_000);
+        cb.acquirePermission();
+        cb.onResult(5, true);
+        assertEquals(CircuitBreaker.State.OPEN, cb.getState());
+    }
+
+    @Test
+    void staysClosedBelowMinimumCalls() throws Exception {
+        CircuitBreaker cb = breaker(10_000);
+        for (int i = 0; i < 3; i++) { cb.acquirePermission(); cb.onResult(5, true); }
+        assertEquals(CircuitBreaker.State.CLOSED, cb.getState());
+    }
+
+    @Test
+    void transport_failsFastWhileOpen() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            KnoxTransport transport = KnoxTransport.builder()
+                    .retryPolicy(RetryPolicy.none())
+                    .circuitBreaker(new CircuitBreaker.Settings(true, 2, 2, 0.5, 1.0, 10_000, 60_000, 1))
+                    .build();
+            String base = server.url("/kcs/v1").toString().replaceAll("/+$$", "");
+            KnoxAuthClient client = new KnoxAuthClient(base, base, transport);
+            server.enqueue(new MockResponse().setResponseCode(500));
+            server.enqueue(new MockResponse().setResponseCode(502));
+            assertThrows(KnoxApiException.class, () -> client.validateAccessToken("at"));
+            assertThrows(KnoxApiException.class, () -> client.validateAccessToken("at"));
+
+            CircuitOpenException open = assertThrows(CircuitOpenException.class, () -> client.validateAccessToken("at"));
+            assertTrue(open.getCircuit().endsWith("/ses/token"));
+            assertEquals(2, server.getRequestCount(), "open circuit must not reach the server");
+            assertEquals("OPEN", transport.metrics().snapshot().get("breaker." + open.getCircuit() + ".state"));
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+/** Tests for per-operation call timeouts and {@link Deadline} propagation through {@link KnoxTransport}. */
+public class DeadlineTest {
+
+    private static KnoxAuthClient client(MockWebServer server, KnoxTransport transport) {
+        String base = server.url("/kcs/v1").toString();
+        return new KnoxAuthClient(base, base, transport);
+    }
+
+    @Test
+    void operationTimeout_failsFast() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setBody("{}").setHeadersDelay(2, TimeUnit.SECONDS));
+            KnoxTransport transport = KnoxTransport.builder().retryPolicy(RetryPolicy.none())
+                    .callTimeout(KnoxOperation.VALIDATE_TOKEN, Duration.ofMillis(200)).build();
+            long started = System.nanoTime();
+            assertThrows(InterruptedIOException.class, () -> client(server, transport).validateAccessToken("at"));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 1500);
+        }
+    }
+
+    @Test
+    void multiStepFlow_laterStepsGetRemainingBudget() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setBody("{\"enrolled\":true}").setHeadersDelay(600, TimeUnit.MILLISECONDS));
+            server.enqueue(new MockResponse().setBody("{\"unlocked\":true}").setHeadersDelay(3, TimeUnit.SECONDS));
+            KnoxTransport transport = KnoxTransport.builder().retryPolicy(RetryPolicy.none()).build();
+            long started = System.nanoTime();
+            try (Deadline.Scope scope = Deadline.after(Duration.ofSeconds(1)).enter()) {
+                DeadlineExceededException e = assertThrows(DeadlineExceededException.class,
+                        () -> client(server, transport).enrollAndUnlock("at", "356938035643809", "client"));
+                assertEquals(KnoxOperation.UNLOCK_DEVICE, e.getOperation());
+            }
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 2000, "unlock only got the ~400 ms left");
+            assertEquals(1L, transport.metrics().counter("deadline.exceeded"));
+            assertNull(Deadline.current(), "scope restored");
+        }
+    }
+
+    @Test
+    void expiredDeadline_sendsNothing_andRetriesStopAtDeadline() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            KnoxTransport transport = KnoxTransport.builder().retryPolicy(new RetryPolicy(3, 0, 0, 60_000, 1.0)).build();
+            try (Deadline.Scope scope = Deadline.after(Duration.ZERO).enter()) {
+                assertThrows(DeadlineExceededException.class, () -> client(server, transport).validateAccessToken("at"));
+            }
+            assertEquals(0, server.getRequestCount());
+
+            server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "5"));
+            try (Deadline.Scope scope = Deadline.after(Duration.ofSeconds(2)).enter()) {
+                KnoxApiException e = assertThrows(KnoxApiException.class, () -> client(server, transport).validateAccessToken("at"));
+                assertEquals(503, e.getStatusCode(), "a retry would start after the deadline, so the 503 is returned");
+            }
+            assertEquals(1, server.getRequestCount());
+        }
+    }
+
+    @Test
+    void queuedBehindFullLimiter_failsAtDeadline_withoutSending() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 0.5, 100.0);
+            KnoxTransport transport = KnoxTransport.builder().retryPolicy(RetryPolicy.none())
+                    .concurrencyLimiter(limiter).rateLimiter(null).build();
+            limiter.acquire();
+            long started = System.nanoTime();
+            try (Deadline.Scope scope = Deadline.after(Duration.ofMillis(300)).enter()) {
+                DeadlineExceededException e = assertThrows(DeadlineExceededException.class,
+                        () -> client(server, transport).unlockDevice("at", "356938035643809"));
+                assertEquals(KnoxOperation.UNLOCK_DEVICE, e.getOperation());
+            } finally {
+                limiter.release(0, AdaptiveConcurrencyLimiter.Outcome.IGNORE);
+            }
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 1500, "did not wait for the slot past the deadline");
+            assertEquals(0, server.getRequestCount());
+            assertEquals(0, limiter.getInFlight());
+        }
+    }
+
+    @Test
+    void deadlineTrimmedTimeout_isNotChargedToLimiterOrBreaker() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setBody("{}").setHeadersDelay(1, TimeUnit.SECONDS));
+            server.enqueue(new MockResponse().setBody("{\"unlocked\":true}"));
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 50, 0.5, 100.0);
+            KnoxTransport transport = KnoxTransport.builder().retryPolicy(RetryPolicy.none())
+                    .circuitBreaker(new CircuitBreaker.Settings(true, 1, 1, 0.5, 1.0, 10_000, 60_000, 1))
+                    .concurrencyLimiter(limiter).rateLimiter(null).build();
+            try (Deadline.Scope scope = Deadline.after(Duration.ofMillis(200)).enter()) {
+                assertThrows(DeadlineExceededException.class, () -> client(server, transport).unlockDevice("at", "356938035643809"));
+            }
+            assertEquals(4, limiter.getLimit(), "our own deadline is not upstream overload");
+            assertEquals(true, client(server, transport).unlockDevice("at", "356938035643809").get("unlocked"),
+                    "a single-call window would have opened on a counted failure");
+        }
+    }
+
+    @Test
+    void nestedScopesKeepTighterDeadline_andPropagateToWorkers() throws Exception {
+        Deadline outer = Deadline.after(Duration.ofSeconds(1));
+        try (Deadline.Scope o = outer.enter()) {
+            try (Deadline.Scope i = Deadline.after(Duration.ofMinutes(5)).enter()) {
+                assertSame(outer, Deadline.current());
+            }
+            CompletableFuture<Deadline> seen = new CompletableFuture<>();
+            new Thread(Deadline.propagate(() -> seen.complete(Deadline.current()))).start();
+            assertSame(outer, seen.get(5, TimeUnit.SECONDS));
+        }
+        assertNull(Deadline.current());
+    }
+}
@@ -0,0 +1,212 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the {@link DeviceFlows} operators: demand-driven calls, bounded in-flight work and per-device failures. */
+public class DeviceFlowsTest {
+
+    /** Spec-compliant synchronous source of {@code count} IMEIs that records how much was requested. */
+    private static final class ImeiSource implements Flow.Publisher<String> {
+        final int count;
+        final AtomicLong requested = new AtomicLong();
+        final AtomicInteger emitted = new AtomicInteger();
+
+        ImeiSource(int count) { this.count = count; }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super String> subscriber) {
+            AtomicLong pending = new AtomicLong();
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override public void request(long n) {
+                    requested.addAndGet(n);
+                    if (pending.getAndAdd(n) != 0) return; // an outer request() call is already emitting
+                    do {
+                        if (emitted.get() >= count) { subscriber.onComplete(); return; }
+                        subscriber.onNext(String.valueOf(356938035640000L + emitted.getAndIncrement()));
+                    } while (pending.decrementAndGet() > 0);
+                    if (emitted.get() >= count) subscriber.onComplete();
+                }
+                @Override public void cancel() { }
+            });
+        }
+    }
+
+    /** Subscriber that requests {@code batch} at a time and records what it received. */
+    private static final class Collector<T> implements Flow.Subscriber<T> {
+        final List<T> items = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+        private final long initial;
+
+        Collector(long initial) { this.initial = initial; }
+
+        @Override public void onSubscribe(Flow.Subscription s) { subscription = s; if (initial > 0) s.request(initial); }
+        @Override public void onNext(T item) { items.add(item); }
+        @Override public void onError(Throwable t) { error = t; done.countDown(); }
+        @Override public void onComplete() { done.countDown(); }
+    }
+
+    private static MockWebServer server(AtomicInteger concurrent, AtomicInteger maxConcurrent) throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                    String body = request.getBody().readUtf8();
+                    if (body.contains("356938035640013")) return new MockResponse().setResponseCode(400).setBody("{\"error\":\"bad imei\"}");
+                    return new MockResponse().setBody("{\"enrolled\":true}");
+                } finally {
+                    concurrent.decrementAndGet();
+                }
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static KnoxAuthClient client(MockWebServer server) {
+        String base = server.url("/kcs/v1").toString();
+        return new KnoxAuthClient(base, base, KnoxTransport.builder().retryPolicy(RetryPolicy.none()).concurrencyLimiter(null).build());
+    }
+
+    @Test
+    void enroll_boundsInFlightAndReportsPerDeviceFailures() throws Exception {
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        try (MockWebServer server = server(concurrent, maxConcurrent)) {
+            ImeiSource source = new ImeiSource(300);
+            Collector<DeviceFlows.Result<Map<String, Object>>> results = new Collector<>(Long.MAX_VALUE);
+            new DeviceFlows(client(server), () -> "at", 4).enroll(source, "client").subscribe(results);
+
+            assertTrue(results.done.await(30, TimeUnit.SECONDS));
+            assertNull(results.error);
+            assertEquals(300, results.items.size());
+            assertTrue(maxConcurrent.get() <= 4, "max concurrent calls " + maxConcurrent.get());
+            List<DeviceFlows.Result<Map<String, Object>>> failed = results.items.stream().filter(r -> !r.isSuccess()).toList();
+            assertEquals(1, failed.size());
+            assertEquals("356938035640013", failed.get(0).key());
+            assertEquals(400, ((KnoxApiException) failed.get(0).error()).getStatusCode());
+        }
+    }
+
+    @Test
+    void slowSubscriber_limitsSourceAndCallsToItsDemand() throws Exception {
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        try (MockWebServer server = server(concurrent, maxConcurrent)) {
+            ImeiSource source = new ImeiSource(1_000_000);
+            Collector<DeviceFlows.Result<Map<String, Object>>> results = new Collector<>(0);
+            new DeviceFlows(client(server), () -> "at", 8).unlock(source).subscribe(results);
+
+            Thread.sleep(200);
+            assertEquals(0, server.getRequestCount(), "no demand, no calls");
+            assertEquals(0, source.requested.get());
+
+            results.subscription.request(3);
+            long waitUntil = System.currentTimeMillis() + 10_000;
+            while (results.items.size() < 3 && System.currentTimeMillis() < waitUntil) Thread.sleep(10);
+            Thread.sleep(100);
+            assertEquals(3, results.items.size());
+            assertEquals(3, server.getRequestCount());
+            assertEquals(3, source.emitted.get());
+
+            // a large demand is still capped by maxInFlight while the subscriber is not keeping up
+            results.subscription.request(50);
+            while (results.items.size() < 53 && System.currentTimeMillis() < waitUntil) Thread.sleep(10);
+            assertEquals(53, results.items.size());
+            assertTrue(source.requested.get() <= 53, "source asked for " + source.requested.get());
+            assertTrue(maxConcurrent.get() <= 8);
+            results.subscription.cancel();
+        }
+    }
+
+    @Test
+    void uploadStatus_andSourceErrorAfterInFlightResults() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.setDispatcher(new Dispatcher() {
+                @Override
+                public MockResponse dispatch(RecordedRequest request) {
+                    String id = request.getPath().substring(request.getPath().lastIndexOf('/') + 1);
+                    return new MockResponse().setBody("{\"uploadId\":\"" + id + "\",\"status\":\"COMPLETED\"}");
+                }
+            });
+            server.start();
+            Flow.Publisher<String> ids = subscriber -> subscriber.onSubscribe(new Flow.Subscription() {
+                boolean sent;
+                @Override public void request(long n) {
+                    if (sent) return;
+                    sent = true;
+                    subscriber.onNext("u-1");
+                    subscriber.onNext("u-2");
+                    subscriber.onError(new IllegalStateException("source broke"));
+                }
+                @Override public void cancel() { }
+            });
+            Collector<DeviceFlows.Result<UploadDetail>> results = new Collector<>(10);
+            new DeviceFlows(client(server), () -> "at", 2).uploadStatus(ids).subscribe(results);
+
+            assertTrue(results.done.await(10, TimeUnit.SECONDS));
+            assertEquals("source broke", results.error.getMessage());
+            assertEquals(2, results.items.size(), "calls already started are emitted before the error");
+            assertTrue(results.items.stream().allMatch(r -> r.isSuccess() && r.value().isTerminal()));
+        }
+    }
+
+    @Test
+    void errorFromCall_endsStreamWithOnError() throws Exception {
+        Collector<DeviceFlows.Result<String>> results = new Collector<>(Long.MAX_VALUE);
+        DeviceFlows.map(new ImeiSource(1_000), 2, "test", key -> {
+            if (key.equals("356938035640005")) throw new AssertionError("call bug");
+            return key;
+        }).subscribe(results);
+        assertTrue(results.done.await(5, TimeUnit.SECONDS), "stream must terminate");
+        assertInstanceOf(AssertionError.class, results.error);
+        assertTrue(results.items.size() < 1_000);
+    }
+
+    @Test
+    void nonPositiveRequest_failsTheStream() throws Exception {
+        Collector<DeviceFlows.Result<String>> results = new Collector<>(0);
+        DeviceFlows.map(new ImeiSource(5), 2, "test", key -> key).subscribe(results);
+        results.subscription.request(0);
+        assertTrue(results.done.await(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, results.error);
+    }
+}
@@ -0,0 +1,176 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests for {@link DeviceStateStore} persistence, crash recovery, compaction and use by the bulk pipeline. */
+public class DeviceStateStoreTest {
+    @TempDir
+    Path dir;
+
+    private static long imei(long body) {
+        for (int check = 0; check < 10; check++) {
+            if (ImeiFileReader.isValid(body * 10 + check)) return body * 10 + check;
+        }
+        throw new AssertionError();
+    }
+
+    @Test
+    void recordsStepsOnce_andReplaysThemOnOpen() throws Exception {
+        Path file = dir.resolve("state/devices.log");
+        long a = imei(35_000_000_000_001L), b = imei(35_000_000_000_002L);
+        try (DeviceStateStore store = DeviceStateStore.open(file)) {
+            assertTrue(store.record(a, DeviceStateStore.Step.ENROLLED, 1_000));
+            assertTrue(store.record(a, DeviceStateStore.Step.UNLOCKED, 2_000));
+            assertFalse(store.record(a, DeviceStateStore.Step.ENROLLED, 3_000), "already enrolled");
+            assertTrue(store.record(b, DeviceStateStore.Step.UPLOADED, 4_000));
+        }
+        assertEquals(8 + 3 * 24, Files.size(file));
+        try (DeviceStateStore store = DeviceStateStore.open(file)) {
+            assertEquals(new DeviceStateStore.DeviceState(a, 0, 1_000, 2_000), store.get(a));
+            assertTrue(store.has(b, DeviceStateStore.Step.UPLOADED));
+            assertFalse(store.has(b, DeviceStateStore.Step.ENROLLED));
+            assertNull(store.get(imei(35_000_000_000_003L)));
+            store.reset(a);
+            assertNull(store.get(a));
+            List<Long> listed = new ArrayList<>();
+            store.forEach(s -> listed.add(s.imei()));
+            assertEquals(List.of(b), listed);
+        }
+        try (DeviceStateStore store = DeviceStateStore.open(file)) {
+            assertEquals(1, store.size(), "reset survives reopen");
+        }
+    }
+
+    @Test
+    void tornOrCorruptTail_isTruncated() throws Exception {
+        Path file = dir.resolve("devices.log");
+        long a = imei(35_100_000_000_001L), b = imei(35_100_000_000_002L);
+        try (DeviceStateStore store = DeviceStateStore.open(file)) {
+            store.record(a, DeviceStateStore.Step.ENROLLED, 1_000);
+            store.record(b, DeviceStateStore.Step.ENROLLED, 1_000);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // flip a byte of b's timestamp and leave half a record behind it, as a crash mid-append would
+            channel.write(ByteBuffer.wrap(new byte[] {0x55}), 8 + 24 + 12);
+            channel.write(ByteBuffer.wrap(new byte[10]), 8 + 48);
+        }
+        try (DeviceStateStore store = DeviceStateStore.open(file)) {
+            assertTrue(store.has(a, DeviceStateStore.Step.ENROLLED));
+            assertFalse(store.has(b, DeviceStateStore.Step.ENROLLED));
+            assertEquals(8 + 24, Files.size(file));
+            assertTrue(store.record(b, DeviceStateStore.Step.ENROLLED, 2_000));
+        }
+        try (DeviceStateStore store = DeviceStateStore.open(file)) {
+            assertEquals(2_000, store.get(b).enrolledAt());
+        }
+    }
+
+    @Test
+    void supersededRecords_areCompactedOnOpen() throws Exception {
+        Path file = dir.resolve("devices.log");
+        long a = imei(35_200_000_000_001L);
+        try (DeviceStateStore store = DeviceStateStore.open(file)) {
+            for (int i = 0; i < 3_000; i++) {
+                store.record(a, DeviceStateStore.Step.ENROLLED, 1_000 + i);
+                store.reset(a);
+            }
+            store.record(a, DeviceStateStore.Step.UNLOCKED, 9_000);
+        }
+        try (DeviceStateStore store = DeviceStateStore.open(file)) {
+            assertEquals(8 + 24, Files.size(file));
+            assertEquals(new DeviceStateStore.DeviceState(a, 0, 0, 9_000), store.get(a));
+        }
+        assertEquals(List.of(file, dir.resolve("devices.log.lock")), Files.list(dir).sorted().toList(), "no temp file left");
+    }
+
+    @Test
+    void openStore_isLockedAgainstAnotherRun_includingAfterCompaction() throws Exception {
+        Path file = dir.resolve("devices.log");
+        long a = imei(35_300_000_000_001L);
+        try (DeviceStateStore store = DeviceStateStore.open(file)) {
+            store.record(a, DeviceStateStore.Step.ENROLLED, 1_000);
+            IOException e = assertThrows(IOException.class, () -> DeviceStateStore.open(file));
+            assertTrue(e.getMessage().contains("in use by another run"), e.getMessage());
+            store.compact();
+            assertThrows(IOException.class, () -> DeviceStateStore.open(file), "lock survives the file being replaced");
+            store.record(a, DeviceStateStore.Step.UNLOCKED, 2_000);
+        }
+        try (DeviceStateStore store = DeviceStateStore.open(file)) {
+            assertEquals(new DeviceStateStore.DeviceState(a, 0, 1_000, 2_000), store.get(a));
+        }
+    }
+
+    @Test
+    void pipeline_skipsDevicesAlreadyInTargetState() throws Exception {
+        AtomicInteger enrolls = new AtomicInteger();
+        AtomicInteger unlocks = new AtomicInteger();
+        try (MockWebServer server = new MockWebServer()) {
+            server.setDispatcher(new Dispatcher() {
+                @Override
+                public MockResponse dispatch(RecordedRequest request) {
+                    (request.getPath().endsWith("/devices/unlock") ? unlocks : enrolls).incrementAndGet();
+                    return new MockResponse().setBody("{}");
+                }
+            });
+            server.start();
+            String base = server.url("/kcs/v1").toString().replaceAll("/+$$", "");
+            KnoxAuthClient client = new KnoxAuthClient(base, base);
+            long unlocked = imei(35_300_000_000_001L), enrolled = imei(35_300_000_000_002L), fresh = imei(35_300_000_000_003L);
+            List<String> imeis = List.of(ImeiFileReader.format(unlocked), ImeiFileReader.format(enrolled), ImeiFileReader.format(fresh));
+
+            try (DeviceStateStore store = DeviceStateStore.open(dir.resolve("devices.log"))) {
+                store.record(unlocked, DeviceStateStore.Step.UNLOCKED, 1_000);
+                store.record(enrolled, DeviceStateStore.Step.ENROLLED, 1_000);
+                BulkEnrollUnlockPipeline pipeline = new BulkEnrollUnlockPipeline(client, 2, 2, store);
+
+                BulkEnrollUnlockPipeline.Summary first = pipeline.run("at", "client", imeis, r -> { });
+                assertEquals(1, first.getSkipped());
+                assertEquals(2, first.getUnlocked());
+                assertEquals(1, enrolls.get(), "only the fresh device is enrolled");
+                assertEquals(2, unlocks.get());
+                assertTrue(store.has(fresh, DeviceStateStore.Step.UNLOCKED));
+
+                BulkEnrollUnlockPipeline.Summary second = pipeline.run("at", "client", imeis, r -> { });
+                assertEquals(3, second.getSkipped());
+                assertTrue(second.getFailures().isEmpty());
+                assertEquals(3, server.getRequestCount(), "a repeated run makes no calls");
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.GzipSource;
+import okio.Okio;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link GzipRequestInterceptor} installed through {@link KnoxTransport}. */
+public class GzipRequestInterceptorTest {
+    private MockWebServer server;
+    private KnoxTransport transport;
+    private KnoxGuardClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        transport = KnoxTransport.builder()
+                .retryPolicy(RetryPolicy.none())
+                .circuitBreaker(CircuitBreaker.Settings.disabled())
+                .gzip(new GzipRequestInterceptor.Settings(EnumSet.of(KnoxOperation.UPLOAD_DEVICES), 1024))
+                .build();
+        client = new KnoxGuardClient(server.url("/kg").toString(), transport);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private static List<Map<String, Object>> devices(int n) {
+        return IntStream.range(0, n).mapToObj(i -> UploadPlanner.deviceEntry(String.valueOf(356938035600000L + i))).collect(Collectors.toList());
+    }
+
+    private static String gunzip(RecordedRequest request) throws Exception {
+        try (var source = Okio.buffer(new GzipSource(request.getBody()))) {
+            return source.readUtf8();
+        }
+    }
+
+    @Test
+    void compressesLargeUploads_andReportsSavings() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"uploadId\":\"u1\"}"));
+        assertEquals("u1", client.submitUpload("at", devices(500), null).uploadId());
+        RecordedRequest request = server.takeRequest();
+        assertEquals("gzip", request.getHeader("Content-Encoding"));
+        JsonNode json = new ObjectMapper().readTree(gunzip(request));
+        assertEquals(500, json.get("deviceList").size());
+
+        Map<String, Object> snapshot = transport.metrics().snapshot();
+        assertEquals(1L, snapshot.get("gzip.requests"));
+        assertTrue((Long) snapshot.get("gzip.bytesSaved") > 0);
+        assertTrue((Double) snapshot.get("gzip.ratio") < 0.2, "repetitive device list should compress well: " + snapshot.get("gzip.ratio"));
+    }
+
+    @Test
+    void leavesSmallBodiesAndOtherOperationsAlone() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"uploadId\":\"u1\"}"));
+        client.uploadDevices("at", RequestBody.create("{\"deviceList\":[]}", MediaType.get("application/json")));
+        assertNull(server.takeRequest().getHeader("Content-Encoding"));
+
+        server.enqueue(new MockResponse().setBody("{\"ok\":true}"));
+        String base = server.url("/kcs/v1").toString().replaceAll("/+$$", "");
+        new KnoxAuthClient(base, base, transport).enrollDeviceInKnoxGuard("at", "356938035643809", "c".repeat(2000));
+        assertNull(server.takeRequest().getHeader("Content-Encoding"), "enrollment is not configured for gzip");
+    }
+
+    @Test
+    void fallsBackToIdentityWhenUpstreamRefusesGzip() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(415));
+        server.enqueue(new MockResponse().setBody("{\"uploadId\":\"u1\"}"));
+        server.enqueue(new MockResponse().setBody("{\"uploadId\":\"u2\"}"));
+        assertEquals("u1", client.submitUpload("at", devices(200), null).uploadId());
+        assertEquals("u2", client.submitUpload("at", devices(200), null).uploadId());
+        assertEquals("gzip", server.takeRequest().getHeader("Content-Encoding"));
+        assertNull(server.takeRequest().getHeader("Content-Encoding"));
+        assertNull(server.takeRequest().getHeader("Content-Encoding"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests for the persistent HTTP cache of {@link KnoxTransport}: conditional revalidation and Cache-Control. */
+public class HttpCacheTest {
+    private static final String DETAIL = "{\"uploadId\":\"u1\",\"status\":\"COMPLETED\",\"deviceCount\":2}";
+
+    @TempDir
+    Path cacheDir;
+
+    private KnoxGuardClient client(MockWebServer server, KnoxTransport transport) {
+        return new KnoxGuardClient(server.url("/kg").toString(), transport);
+    }
+
+    private KnoxTransport transport() {
+        return KnoxTransport.builder().retryPolicy(RetryPolicy.none()).httpCache(cacheDir, 1024 * 1024).build();
+    }
+
+    @Test
+    void etag_revalidatedWith304_acrossTransports() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setBody(DETAIL).setHeader("ETag", "\"v1\"").setHeader("Cache-Control", "no-cache"));
+            server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+            client(server, transport()).getUploadDetail("at", "u1");
+
+            // a later run (new transport, same directory) revalidates instead of downloading
+            KnoxTransport second = transport();
+            UploadDetail detail = client(server, second).getUploadDetail("at", "u1");
+            assertEquals("COMPLETED", detail.status());
+            server.takeRequest();
+            RecordedRequest conditional = server.takeRequest();
+            assertEquals("\"v1\"", conditional.getHeader("If-None-Match"));
+            assertEquals(1, second.metrics().snapshot().get("http.cache.hits"));
+        }
+    }
+
+    @Test
+    void freshResponsesServedWithoutNetwork_noStoreNeverCached() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setBody(DETAIL).setHeader("Cache-Control", "max-age=60"));
+            server.enqueue(new MockResponse().setBody("{\"total\":0,\"uploads\":[]}").setHeader("Cache-Control", "no-store"));
+            server.enqueue(new MockResponse().setBody("{\"total\":0,\"uploads\":[]}").setHeader("Cache-Control", "no-store"));
+            KnoxGuardClient client = client(server, transport());
+            client.getUploadDetail("at", "u1");
+            assertEquals("u1", client.getUploadDetail("at", "u1").uploadId());
+            assertEquals(1, server.getRequestCount(), "fresh entry served from disk");
+
+            client.listUploadPage("at");
+            client.listUploadPage("at");
+            assertEquals(3, server.getRequestCount());
+        }
+    }
+}
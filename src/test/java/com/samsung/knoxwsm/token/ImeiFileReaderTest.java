@@ -0,0 +1,96 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests for {@link ImeiFileReader} parsing, Luhn validation and region boundaries. */
+public class ImeiFileReaderTest {
+    @TempDir
+    Path dir;
+
+    private static final String FILE = "﻿356938035643809\r\n"
+            + "# header comment\n"
+            + "\n"
+            + "  356544761873907  \n"
+            + "356938035643808\n"      // wrong check digit
+            + "35693803564380\n"       // 14 digits
+            + "3569380356438090\n"     // 16 digits
+            + "35693803564380X\n"
+            + "356938 035643809\n"
+            + "012345678901237";       // leading zero, no final newline
+
+    @Test
+    void read_parsesValidAndReportsInvalidWithLineNumbers() throws Exception {
+        Path file = dir.resolve("imeis.txt");
+        Files.writeString(file, FILE, StandardCharsets.UTF_8);
+        ImeiFileReader.Result result = ImeiFileReader.read(file);
+
+        assertArrayEquals(new long[] {356938035643809L, 356544761873907L, 12345678901237L}, result.imeis());
+        assertEquals("012345678901237", ImeiFileReader.format(result.imeis()[2]));
+        List<ImeiFileReader.InvalidLine> invalid = result.invalidLines();
+        assertEquals(5, invalid.size());
+        assertEquals(new ImeiFileReader.InvalidLine(5, ImeiFileReader.Reason.CHECK_DIGIT, "356938035643808"), invalid.get(0));
+        assertEquals(ImeiFileReader.Reason.LENGTH, invalid.get(1).reason());
+        assertEquals(7, invalid.get(2).lineNumber());
+        assertEquals(ImeiFileReader.Reason.NOT_A_DIGIT, invalid.get(3).reason());
+        assertEquals(new ImeiFileReader.InvalidLine(9, ImeiFileReader.Reason.NOT_A_DIGIT, "356938 035643809"), invalid.get(4));
+    }
+
+    @Test
+    void scan_sameResultWhenLinesSpanMappedRegions() throws Exception {
+        Path file = dir.resolve("imeis.txt");
+        Files.writeString(file, FILE, StandardCharsets.UTF_8);
+        ImeiFileReader.Result whole = ImeiFileReader.read(file);
+        for (long region : new long[] {7, 16, 17, 64}) {
+            List<Long> imeis = new ArrayList<>();
+            List<ImeiFileReader.InvalidLine> invalid = new ArrayList<>();
+            ImeiFileReader.scan(file, imeis::add, invalid::add, region);
+            assertEquals(whole.size(), imeis.size(), "region=" + region);
+            for (int i = 0; i < imeis.size(); i++) assertEquals(whole.imeis()[i], imeis.get(i));
+            assertEquals(whole.invalidLines(), invalid, "region=" + region);
+        }
+    }
+
+    @Test
+    void isValid_matchesLuhn() {
+        assertTrue(ImeiFileReader.isValid(356938035643809L));
+        assertTrue(ImeiFileReader.isValid(12345678901237L));
+        assertFalse(ImeiFileReader.isValid(356938035643808L));
+        assertFalse(ImeiFileReader.isValid(-1));
+        assertFalse(ImeiFileReader.isValid(1_000_000_000_000_000L));
+    }
+
+    @Test
+    void repoDataFiles_areAllValid() throws Exception {
+        ImeiFileReader.Result result = ImeiFileReader.read(Path.of("data/imeis-20250915.txt"));
+        assertEquals(24, result.size());
+        assertTrue(result.invalidLines().isEmpty());
+    }
+}
@@ -0,0 +1,164 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.BufferedSink;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/** Tests for {@link JdkHttpEngine} behind {@link KnoxTransport}, plus an opt-in engine benchmark. */
+public class JdkHttpEngineTest {
+
+    /** Only the engine differs; admission control and breakers are off so the benchmark measures the engines alone. */
+    private static KnoxTransport transport(HttpEngine engine) {
+        return KnoxTransport.builder().engine(engine).retryPolicy(RetryPolicy.none())
+                .concurrencyLimiter(null).rateLimiter(null).circuitBreaker(CircuitBreaker.Settings.disabled()).build();
+    }
+
+    @Test
+    void clientCalls_goThroughJdkClient() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setBody("{\"accessToken\":\"at\"}").setHeader("Content-Type", "application/json"));
+            server.enqueue(new MockResponse().setResponseCode(401).setBody("{\"error\":\"expired\"}"));
+            String base = server.url("/kcs/v1").toString();
+            KnoxAuthClient client = new KnoxAuthClient(base, base, transport(JdkHttpEngine.fromConfig()));
+
+            assertEquals("at", client.requestAccessToken("pk", "jwt", 30).get("accessToken"));
+            RecordedRequest token = server.takeRequest();
+            assertEquals("POST", token.getMethod());
+            assertEquals("jwt", token.getHeader("X-SES-JWT"));
+            assertTrue(token.getHeader("Content-Type").startsWith("application/json"));
+            assertTrue(token.getBody().readUtf8().contains("\"validityForAccessTokenInMinutes\":30"));
+
+            KnoxApiException e = assertThrows(KnoxApiException.class, () -> client.validateAccessToken("at"));
+            assertEquals(401, e.getStatusCode());
+            assertTrue(e.getErrorBody().contains("expired"));
+        }
+    }
+
+    @Test
+    void streamedBody_isPipedNotBuffered() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setBody("{}"));
+            RequestBody streamed = new RequestBody() {
+                @Override public MediaType contentType() { return MediaType.get("application/json"); }
+                @Override public long contentLength() { return -1; }
+                @Override public boolean isOneShot() { return true; }
+                @Override public void writeTo(BufferedSink sink) throws IOException {
+                    for (int i = 0; i < 20_000; i++) sink.writeUtf8("0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef\n");
+                }
+            };
+            Request request = new Request.Builder().url(server.url("/kcs/v1.1/kg/devices/uploads")).post(streamed).build();
+            try (Response response = transport(JdkHttpEngine.fromConfig()).execute(request, KnoxOperation.UPLOAD_DEVICES)) {
+                assertEquals(200, response.code());
+            }
+            assertEquals(20_000L * 65, server.takeRequest().getBodySize());
+        }
+    }
+
+    @Test
+    void callTimeout_cancelsJdkExchange() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setBody("{}").setHeadersDelay(3, TimeUnit.SECONDS));
+            KnoxTransport transport = KnoxTransport.builder().engine(JdkHttpEngine.fromConfig()).retryPolicy(RetryPolicy.none())
+                    .callTimeout(KnoxOperation.VALIDATE_TOKEN, Duration.ofMillis(300)).build();
+            String base = server.url("/kcs/v1").toString();
+            long started = System.nanoTime();
+            assertThrows(InterruptedIOException.class, () -> new KnoxAuthClient(base, base, transport).validateAccessToken("at"));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 2_000);
+        }
+    }
+
+    /**
+     * Throughput and allocation of both engines for small JSON GETs at 16-way concurrency. Run with
+     * {@code mvn test -Dtest=JdkHttpEngineTest -Dknox.benchmark=true}; the mock server runs in-process, so
+     * its own allocation is included equally for both.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "knox.benchmark", matches = "true")
+    void benchmark_okHttpVsJdk() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            String json = "{\"uploadId\":\"u-1\",\"status\":\"COMPLETED\",\"devices\":" + "[\"356938035643809\"],\"pad\":\"" + "x".repeat(900) + "\"}";
+            server.setDispatcher(new Dispatcher() {
+                @Override public MockResponse dispatch(RecordedRequest request) { return new MockResponse().setBody(json); }
+            });
+            server.start();
+            for (HttpEngine engine : List.of(HttpEngine.OKHTTP, JdkHttpEngine.fromConfig(), HttpEngine.OKHTTP, JdkHttpEngine.fromConfig())) {
+                KnoxTransport transport = transport(engine);
+                ExecutorService workers = Executors.newFixedThreadPool(16);
+                run(workers, transport, server, 500); // warm-up
+                long allocatedBefore = totalAllocatedBytes();
+                long started = System.nanoTime();
+                int calls = run(workers, transport, server, 5_000);
+                double seconds = (System.nanoTime() - started) / 1e9;
+                long allocated = totalAllocatedBytes() - allocatedBefore;
+                workers.shutdown();
+                System.out.printf("engine=%-6s calls=%d throughput=%.0f/s allocated=%d B/call%n",
+                        engine == HttpEngine.OKHTTP ? "okhttp" : "jdk", calls, calls / seconds, allocated / calls);
+            }
+        }
+    }
+
+    private static int run(ExecutorService workers, KnoxTransport transport, MockWebServer server, int calls) throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < calls; i++) {
+            futures.add(workers.submit(() -> {
+                Request request = new Request.Builder().url(server.url("/kcs/v1.1/kg/devices/uploads/u-1")).build();
+                try (Response response = transport.execute(request, KnoxOperation.GET_UPLOAD)) {
+                    return response.body().string().length();
+                }
+            }));
+        }
+        for (Future<?> f : futures) f.get();
+        return calls;
+    }
+
+    // Live platform threads only (virtual threads allocate on their carriers); pools stay alive across a run.
+    private static long totalAllocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) total += Math.max(0, bytes);
+        return total;
+    }
+}
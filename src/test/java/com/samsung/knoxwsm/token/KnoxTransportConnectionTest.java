@@ -0,0 +1,78 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link KnoxTransport} connection pre-warming and protocol configuration. */
+public class KnoxTransportConnectionTest {
+
+    @Test
+    void prewarm_opensConnectionReusedByFirstCall() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setResponseCode(404));
+            server.enqueue(new MockResponse().setBody("{\"valid\":true}"));
+            KnoxTransport transport = KnoxTransport.builder().retryPolicy(RetryPolicy.none()).build();
+            String base = server.url("/kcs/v1").toString();
+            KnoxAuthClient client = new KnoxAuthClient(base, server.url("/kcs/v1.1/kg").toString(), transport);
+
+            client.prewarm().get(5, TimeUnit.SECONDS);
+            RecordedRequest warm = server.takeRequest();
+            assertEquals("HEAD", warm.getMethod());
+            assertEquals("/", warm.getPath());
+            assertEquals(1, server.getRequestCount(), "both base URLs share one host, so one pre-warm request");
+            assertEquals(1L, transport.metrics().counter("http.prewarmed"));
+
+            client.validateAccessToken("at");
+            RecordedRequest first = server.takeRequest();
+            assertEquals(1, first.getSequenceNumber(), "first API call reuses the pre-warmed connection");
+            assertEquals(1, transport.metrics().snapshot().get("http.connections"));
+        }
+    }
+
+    @Test
+    void prewarm_failureOnlyAffectsFuture() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        String base = server.url("/kcs/v1").toString();
+        server.shutdown();
+        KnoxTransport transport = KnoxTransport.builder().retryPolicy(RetryPolicy.none()).build();
+        assertTrue(transport.prewarm(base).handle((v, e) -> e != null).get(10, TimeUnit.SECONDS));
+        assertEquals(0L, transport.metrics().counter("http.prewarmed"));
+    }
+
+    @Test
+    void protocols_keepHttp11Fallback() {
+        assertEquals(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1), KnoxTransport.protocols("h2"));
+        assertEquals(List.of(Protocol.HTTP_1_1), KnoxTransport.protocols("http/1.1"));
+        assertEquals(List.of(Protocol.H2_PRIOR_KNOWLEDGE), KnoxTransport.protocols("h2_prior_knowledge"));
+        assertThrows(IllegalArgumentException.class, () -> KnoxTransport.protocols("spdy/9"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link LongHashSet} and {@link SortedLongIndex}. */
+public class LongHashSetTest {
+
+    @Test
+    void addContainsRemove_matchHashSet_onAndOffHeap() {
+        for (boolean offHeap : new boolean[] {false, true}) {
+            LongHashSet set = new LongHashSet(4, offHeap);
+            Set<Long> reference = new HashSet<>();
+            Random random = new Random(42);
+            for (int i = 0; i < 50_000; i++) {
+                // narrow range so adds, duplicate adds and removes all happen often; 0 included
+                long value = 356938035640000L + random.nextInt(20_000) - (i % 1000 == 0 ? 356938035640000L : 0);
+                if (random.nextInt(4) == 0) {
+                    assertEquals(reference.remove(value), set.remove(value));
+                } else {
+                    assertEquals(reference.add(value), set.add(value));
+                }
+            }
+            assertEquals(reference.size(), set.size());
+            for (long v = 356938035640000L - 10; v < 356938035660010L; v++) assertEquals(reference.contains(v), set.contains(v));
+            assertEquals(reference.contains(0L), set.contains(0));
+            assertEquals(offHeap, set.isOffHeap());
+        }
+    }
+
+    @Test
+    void setAlgebra() {
+        LongHashSet a = new LongHashSet();
+        LongHashSet b = new LongHashSet();
+        for (long v = 0; v < 100; v++) a.add(v);
+        for (long v = 50; v < 150; v++) b.add(v);
+        assertEquals(50, a.difference(b).size());
+        assertFalse(a.difference(b).contains(50));
+        assertEquals(150, a.union(b).size());
+        a.removeAll(b);
+        assertEquals(50, a.size());
+        a.addAll(b);
+        assertEquals(150, a.size());
+        assertArrayEquals(new long[] {3, 1, 2}, LongHashSet.distinct(new long[] {3, 1, 3, 2, 1}));
+    }
+
+    @Test
+    void presizedTable_isEightBytesPerSlot() {
+        LongHashSet set = new LongHashSet(5_000_000, true);
+        assertEquals(64L * 1024 * 1024, set.tableBytes(), "5M IMEIs in a 2^23-slot table (50M: 512 MiB)");
+    }
+
+    @Test
+    void sortedIndex_dedupesAndMerges() {
+        long[] raw = {5, 3, 9, 3, 1, 5, 7};
+        SortedLongIndex index = SortedLongIndex.ofUnsorted(raw, true);
+        assertArrayEquals(new long[] {1, 3, 5, 7, 9}, index.toArray());
+        assertTrue(index.contains(7));
+        assertFalse(index.contains(4));
+
+        SortedLongIndex other = SortedLongIndex.of(2, 3, 9, 11);
+        assertArrayEquals(new long[] {1, 5, 7}, index.difference(other).toArray());
+        assertArrayEquals(new long[] {1, 2, 3, 5, 7, 9, 11}, index.union(other).toArray());
+        assertArrayEquals(new long[] {3, 9}, index.intersection(other).toArray());
+        assertEquals(SortedLongIndex.of(1, 5, 7), index.difference(other));
+        assertTrue(SortedLongIndex.empty().difference(other).isEmpty());
+        assertEquals(other, SortedLongIndex.empty().union(other));
+    }
+}
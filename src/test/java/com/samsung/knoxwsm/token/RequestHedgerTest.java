@@ -0,0 +1,146 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link RequestHedger} via {@link KnoxTransport}: hedge on slow responses, budget, non-hedged operations. */
+public class RequestHedgerTest {
+
+    /** First request to each upload is slow (2 s), later ones answer immediately. */
+    private MockWebServer slowFirstServer(AtomicInteger requests) {
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                int n = requests.incrementAndGet();
+                MockResponse response = new MockResponse().setBody("{\"uploadId\":\"u1\",\"status\":\"COMPLETED\",\"n\":" + n + "}");
+                return n % 2 == 1 ? response.setHeadersDelay(2, TimeUnit.SECONDS) : response;
+            }
+        });
+        return server;
+    }
+
+    private KnoxTransport transport(double budgetRatio) {
+        return KnoxTransport.builder()
+                .retryPolicy(RetryPolicy.none())
+                .hedging(new RequestHedger.Settings(EnumSet.of(KnoxOperation.GET_UPLOAD), 95, 10, 100, budgetRatio))
+                .build();
+    }
+
+    @Test
+    void slowCallHedged_fasterAnswerWins() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        try (MockWebServer server = slowFirstServer(requests)) {
+            server.start();
+            KnoxTransport transport = transport(0.5);
+            KnoxGuardClient client = new KnoxGuardClient(server.url("/kg").toString(), transport);
+            long started = System.nanoTime();
+            assertEquals("COMPLETED", client.getUploadDetail("at", "u1").status());
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 1500, "hedge answered before the slow primary");
+            assertEquals(1L, transport.metrics().counter("hedge.sent"));
+            assertEquals(1L, transport.metrics().counter("hedge.wins"));
+        }
+    }
+
+    @Test
+    void budgetCapsHedges() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        try (MockWebServer server = slowFirstServer(requests)) {
+            server.start();
+            KnoxTransport transport = transport(0);
+            KnoxGuardClient client = new KnoxGuardClient(server.url("/kg").toString(), transport);
+            // initial budget allows 10 hedges, with ratio 0 nothing is earned back
+            for (int i = 0; i < 11; i++) client.getUploadDetail("at", "u1");
+            assertEquals(10L, transport.metrics().counter("hedge.sent"));
+            assertEquals(1L, transport.metrics().counter("hedge.budgetExhausted"));
+        }
+    }
+
+    @Test
+    void manyConcurrentHedgedCalls_toOneHost_runInParallel() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.setDispatcher(new Dispatcher() {
+                @Override
+                public MockResponse dispatch(RecordedRequest request) {
+                    return new MockResponse().setBody("{\"uploadId\":\"u1\",\"status\":\"COMPLETED\"}").setHeadersDelay(1, TimeUnit.SECONDS);
+                }
+            });
+            server.start();
+            // the hedge delay is longer than the call, so only the primaries are sent
+            KnoxTransport transport = KnoxTransport.builder().retryPolicy(RetryPolicy.none()).rateLimiter(null)
+                    .hedging(new RequestHedger.Settings(EnumSet.of(KnoxOperation.GET_UPLOAD), 95, 10, 5_000, 0.1)).build();
+            KnoxGuardClient client = new KnoxGuardClient(server.url("/kg").toString(), transport);
+            ExecutorService pool = Executors.newFixedThreadPool(12);
+            List<Future<UploadDetail>> results = new ArrayList<>();
+            long started = System.nanoTime();
+            for (int i = 0; i < 12; i++) results.add(pool.submit(() -> client.getUploadDetail("at", "u1")));
+            for (Future<UploadDetail> f : results) assertEquals("COMPLETED", f.get(10, TimeUnit.SECONDS).status());
+            pool.shutdown();
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 1900, "not queued behind a per-host cap of 5");
+            assertEquals(12, server.getRequestCount());
+            assertEquals(0L, transport.metrics().counter("hedge.sent"));
+        }
+    }
+
+    @Test
+    void otherOperationsNotHedged() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setBody("{\"total\":0,\"uploads\":[]}").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+            KnoxTransport transport = transport(1);
+            new KnoxGuardClient(server.url("/kg").toString(), transport).listUploadPage("at");
+            assertEquals(1, server.getRequestCount());
+            assertEquals(0L, transport.metrics().counter("hedge.sent"));
+        }
+    }
+
+    @Test
+    void delayTracksObservedPercentile() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            for (int i = 0; i < 24; i++) server.enqueue(new MockResponse().setBody("{\"uploadId\":\"u1\",\"status\":\"COMPLETED\"}"));
+            OkHttpClient http = new OkHttpClient();
+            RequestHedger hedger = new RequestHedger(new RequestHedger.Settings(EnumSet.of(KnoxOperation.GET_UPLOAD), 95, 50, 500, 1), new KnoxMetrics());
+            assertEquals(500, hedger.hedgeDelayMillis(KnoxOperation.GET_UPLOAD), "initial delay before samples exist");
+            Request request = new Request.Builder().url(server.url("/kg/devices/uploads/u1")).build();
+            for (int i = 0; i < 24; i++) hedger.execute(http, request, KnoxOperation.GET_UPLOAD, 5_000).close();
+            assertEquals(50, hedger.hedgeDelayMillis(KnoxOperation.GET_UPLOAD), "fast local responses: clamped to the minimum delay");
+            assertEquals(24, server.getRequestCount());
+        }
+    }
+}
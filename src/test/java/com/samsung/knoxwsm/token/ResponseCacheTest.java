@@ -0,0 +1,143 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link ResponseCache} TTLs, coalescing, eviction and invalidation through {@link KnoxGuardClient}. */
+public class ResponseCacheTest {
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+    private final Map<String, String> statuses = new ConcurrentHashMap<>();
+    private MockWebServer server;
+    private KnoxTransport transport;
+    private KnoxGuardClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+                if ("POST".equals(request.getMethod())) return new MockResponse().setBody("{\"uploadId\":\"new\"}");
+                hits.computeIfAbsent(path, k -> new AtomicInteger()).incrementAndGet();
+                if (path.endsWith("/uploads")) return new MockResponse().setBody("{\"total\":1,\"uploads\":[]}");
+                String id = path.substring(path.lastIndexOf('/') + 1);
+                if (id.equals("missing")) return new MockResponse().setResponseCode(404);
+                return new MockResponse().setHeadersDelay(100, TimeUnit.MILLISECONDS)
+                        .setBody("{\"uploadId\":\"" + id + "\",\"status\":\"" + statuses.getOrDefault(id, "PROCESSING") + "\"}");
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private void client(long getTtl, long terminalTtl, int maxEntries) {
+        transport = KnoxTransport.builder()
+                .retryPolicy(RetryPolicy.none())
+                .responseCache(new ResponseCache.Settings(Map.of(KnoxOperation.GET_UPLOAD, getTtl, KnoxOperation.LIST_UPLOADS, 60_000L),
+                        terminalTtl, maxEntries))
+                .build();
+        client = new KnoxGuardClient(server.url("/kg").toString(), transport);
+    }
+
+    private int hits(String suffix) {
+        return hits.entrySet().stream().filter(e -> e.getKey().endsWith(suffix)).mapToInt(e -> e.getValue().get()).sum();
+    }
+
+    @Test
+    void concurrentLookupsCoalesced_thenServedFromCache() throws Exception {
+        client(60_000, 60_000, 100);
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<UploadDetail>> results = new ArrayList<>();
+        for (int i = 0; i < 6; i++) results.add(pool.submit(() -> { start.await(); return client.getUploadDetail("at", "u1"); }));
+        start.countDown();
+        for (Future<UploadDetail> f : results) assertEquals("PROCESSING", f.get(5, TimeUnit.SECONDS).status());
+        pool.shutdown();
+        assertEquals("u1", client.getUploadById("at", "u1").get("uploadId"), "Map and typed variants share entries");
+        assertEquals(1, hits("/u1"));
+        assertEquals(1L, transport.metrics().counter("cache.hits"));
+        client.getUploadDetail("other-token", "u1");
+        assertEquals(2, hits("/u1"), "entries are per API token");
+    }
+
+    @Test
+    void terminalStatusCachedLonger_errorsNotCached() throws Exception {
+        client(1, 60_000, 100);
+        client.getUploadDetail("at", "u1");
+        Thread.sleep(5);
+        client.getUploadDetail("at", "u1");
+        assertEquals(2, hits("/u1"), "in-progress entry expired");
+        statuses.put("u2", "COMPLETED");
+        client.getUploadDetail("at", "u2");
+        Thread.sleep(5);
+        client.getUploadDetail("at", "u2");
+        assertEquals(1, hits("/u2"), "terminal entry still fresh");
+
+        assertThrows(KnoxApiException.class, () -> client.getUploadDetail("at", "missing"));
+        assertThrows(KnoxApiException.class, () -> client.getUploadDetail("at", "missing"));
+        assertEquals(2, hits("/missing"));
+    }
+
+    @Test
+    void lruEviction_andUploadInvalidatesLists() throws Exception {
+        client(60_000, 60_000, 2);
+        client.getUploadDetail("at", "u1");
+        client.getUploadDetail("at", "u2");
+        client.getUploadDetail("at", "u1");
+        client.getUploadDetail("at", "u3");
+        assertEquals(1L, transport.metrics().counter("cache.evictions"));
+        client.getUploadDetail("at", "u1");
+        assertEquals(1, hits("/u1"), "recently used entry survives");
+        client.getUploadDetail("at", "u2");
+        assertEquals(2, hits("/u2"), "least recently used entry evicted");
+
+        client.listUploadPage("at");
+        client.listUploadPage("at");
+        assertEquals(1, hits("/uploads"));
+        client.submitUpload("at", List.of(UploadPlanner.deviceEntry("356938035643809")), null);
+        client.listUploadPage("at");
+        assertEquals(2, hits("/uploads"));
+    }
+}
@@ -0,0 +1,134 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.*;
+
+/** Tests for {@link RetryPolicy} classification/backoff and its application in {@link KnoxTransport}. */
+public class RetryPolicyTest {
+    private MockWebServer server;
+    private KnoxAuthClient client;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        String base = server.url("/kcs/v1").toString().replaceAll("/+$$", "");
+        String guardBase = server.url("/kcs/v1.1/kg").toString().replaceAll("/+$$", "");
+        KnoxTransport transport = KnoxTransport.builder().retryPolicy(new RetryPolicy(3, 1, 5, 2_000, 0.2)).build();
+        client = new KnoxAuthClient(base, guardBase, transport);
+    }
+
+    @AfterEach
+    void stop() throws IOException { server.shutdown(); }
+
+    @Test
+    void idempotentGet_retriesServerErrorsUntilSuccess() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(502));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"id\":\"u1\"}"));
+        Map<String, Object> resp = client.getUploadById("at", "u1");
+        assertEquals("u1", resp.get("id"));
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    void nonIdempotentPost_notRetriedOn500() {
+        server.enqueue(new MockResponse().setResponseCode(500).setBody("{\"error\":\"boom\"}"));
+        KnoxApiException ex = assertThrows(KnoxApiException.class, () -> client.uploadDevices("at", "{\"deviceList\":[]}"));
+        assertEquals(500, ex.getStatusCode());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void nonIdempotentPost_retriedOn429HonoringRetryAfter() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "0"));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"uploadId\":\"u9\"}"));
+        Map<String, Object> resp = client.uploadDevices("at", "{\"deviceList\":[]}");
+        assertEquals("u9", resp.get("uploadId"));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void retryAfterBeyondCap_surfacesResponse() {
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "120"));
+        KnoxApiException ex = assertThrows(KnoxApiException.class, () -> client.validateAccessToken("at"));
+        assertEquals(429, ex.getStatusCode());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void exhaustedAttempts_returnLastError() {
+        for (int i = 0; i < 3; i++) server.enqueue(new MockResponse().setResponseCode(503));
+        KnoxApiException ex = assertThrows(KnoxApiException.class, () -> client.listDeviceUploads("at"));
+        assertEquals(503, ex.getStatusCode());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    void classification() {
+        RetryPolicy policy = new RetryPolicy(5, 10, 100, 1_000, 0.2);
+        assertTrue(policy.isRetryableStatus(KnoxOperation.ENROLL_DEVICE, 429));
+        assertFalse(policy.isRetryableStatus(KnoxOperation.ENROLL_DEVICE, 502));
+        assertTrue(policy.isRetryableStatus(KnoxOperation.GET_UPLOAD, 502));
+        assertFalse(policy.isRetryableStatus(KnoxOperation.GET_UPLOAD, 404));
+        assertTrue(policy.isRetryableException(KnoxOperation.UPLOAD_DEVICES, new ConnectException("refused")));
+        assertFalse(policy.isRetryableException(KnoxOperation.UPLOAD_DEVICES, new SocketTimeoutException("read")));
+        assertTrue(policy.isRetryableException(KnoxOperation.VALIDATE_TOKEN, new SocketTimeoutException("read")));
+    }
+
+    @Test
+    void backoff_isJitteredWithinExponentialCeiling() {
+        RetryPolicy policy = new RetryPolicy(10, 100, 1_000, 1_000, 0.2);
+        for (int i = 0; i < 200; i++) {
+            assertTrue(policy.backoffMillis(1) <= 100);
+            assertTrue(policy.backoffMillis(3) <= 400);
+            assertTrue(policy.backoffMillis(9) <= 1_000);
+        }
+    }
+
+    @Test
+    void parseRetryAfter_secondsAndHttpDate() {
+        assertEquals(5_000, RetryPolicy.parseRetryAfterMillis("5", 0));
+        assertEquals(-1, RetryPolicy.parseRetryAfterMillis("soon", 0));
+        long now = java.time.ZonedDateTime.parse("Wed, 21 Oct 2015 07:28:00 GMT",
+                java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        assertEquals(2_000, RetryPolicy.parseRetryAfterMillis("Wed, 21 Oct 2015 07:28:02 GMT", now));
+    }
+
+    @Test
+    void retryBudget_limitsRetriesAcrossCalls() {
+        RetryPolicy policy = new RetryPolicy(5, 0, 0, 0, 0);
+        int granted = 0;
+        for (int i = 0; i < 50; i++) {
+            if (policy.retryDelayMillis(KnoxOperation.GET_UPLOAD, 503, null, 1) >= 0) granted++;
+        }
+        assertEquals(10, granted, "initial budget only, ratio 0 adds nothing");
+    }
+}
@@ -0,0 +1,79 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link ServerClock} offset estimation from response Date headers. */
+public class ServerClockTest {
+
+    @Test
+    void smoothsSamples_andIgnoresSubThresholdSkew() {
+        ServerClock clock = new ServerClock(true, 1000);
+        assertFalse(clock.isCalibrated());
+        clock.observe(100_000, 99_900, 100_100);
+        assertTrue(clock.isCalibrated(), "a sub-threshold sample still counts as calibrated");
+        assertEquals(0, clock.offsetMillis(), "500 ms (Date resolution) is below the threshold");
+
+        clock = new ServerClock(true, 1000);
+        clock.observe(160_000, 100_000, 100_000);
+        assertEquals(60_500, clock.offsetMillis());
+        clock.observe(100_000, 100_000, 100_000);
+        assertEquals(48_500, clock.offsetMillis(), "single outlier only moves the estimate partially");
+    }
+
+    @Test
+    void transport_learnsOffsetFromDateHeader() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            String ahead = DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.now().plusSeconds(3600).atZone(ZoneOffset.UTC));
+            server.enqueue(new MockResponse().setResponseCode(401).setHeader("Date", ahead).setBody("{}"));
+            ServerClock clock = new ServerClock(true, 1000);
+            KnoxTransport transport = KnoxTransport.builder().retryPolicy(RetryPolicy.none()).serverClock(clock).build();
+            String base = server.url("/kcs/v1").toString();
+            assertThrows(KnoxApiException.class, () -> new KnoxAuthClient(base, base, transport).validateAccessToken("at"));
+
+            assertEquals(3_600_000, clock.offsetMillis(), 2_000);
+            assertEquals(System.currentTimeMillis() + 3_600_000, clock.currentTimeMillis(), 2_000);
+            assertEquals(clock.offsetMillis(), transport.metrics().snapshot().get("clock.offsetMillis"));
+        }
+    }
+
+    @Test
+    void disabledClockNeverAdjusts() {
+        ServerClock clock = new ServerClock(false, 0);
+        clock.observe(new Response.Builder()
+                .request(new Request.Builder().url("https://example.invalid/").build())
+                .protocol(Protocol.HTTP_1_1).code(200).message("OK")
+                .header("Date", "Mon, 01 Jan 2001 00:00:00 GMT").sentRequestAtMillis(1).receivedResponseAtMillis(2).build());
+        assertEquals(0, clock.offsetMillis());
+    }
+}
@@ -0,0 +1,123 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link SingleFlight} and coalesced token requests in {@link KnoxAuthClient}. */
+public class SingleFlightTest {
+
+    @Test
+    void concurrentTokenRequests_shareOneCall() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setBody("{\"accessToken\":\"at-1\"}").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+            server.enqueue(new MockResponse().setBody("{\"accessToken\":\"at-2\"}"));
+            KnoxTransport transport = KnoxTransport.builder().retryPolicy(RetryPolicy.none()).build();
+            String base = server.url("/kcs/v1").toString();
+            KnoxAuthClient client = new KnoxAuthClient(base, base, transport);
+
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<AccessToken>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String jwt = jwt("client-a", i);
+                results.add(pool.submit(() -> { start.await(); return client.requestToken("pub", jwt, 30); }));
+            }
+            start.countDown();
+            for (Future<AccessToken> f : results) assertEquals("at-1", f.get(5, TimeUnit.SECONDS).accessToken());
+            pool.shutdown();
+            assertEquals(1, server.getRequestCount());
+            assertEquals(7L, transport.metrics().counter("singleflight.shared"));
+
+            assertEquals("at-2", client.requestToken("pub", "jwt", 30).accessToken(), "completed calls are not cached");
+        }
+    }
+
+    @Test
+    void tokenRequestsOfDifferentClients_areNotShared() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setBody("{\"accessToken\":\"at-a\"}").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+            server.enqueue(new MockResponse().setBody("{\"accessToken\":\"at-b\"}").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+            String base = server.url("/kcs/v1").toString();
+            KnoxAuthClient client = new KnoxAuthClient(base, base, KnoxTransport.builder().retryPolicy(RetryPolicy.none()).build());
+
+            ExecutorService pool = Executors.newFixedThreadPool(2);
+            Future<AccessToken> a = pool.submit(() -> client.requestToken("pub", jwt("client-a", 1), 30));
+            Future<AccessToken> b = pool.submit(() -> client.requestToken("pub", jwt("client-b", 1), 30));
+            assertNotEquals(a.get(5, TimeUnit.SECONDS).accessToken(), b.get(5, TimeUnit.SECONDS).accessToken());
+            pool.shutdown();
+            assertEquals(2, server.getRequestCount());
+            List<String> sent = List.of(server.takeRequest().getHeader("X-SES-JWT"), server.takeRequest().getHeader("X-SES-JWT"));
+            assertTrue(sent.contains(jwt("client-a", 1)) && sent.contains(jwt("client-b", 1)), "each client sends its own JWT");
+        }
+    }
+
+    /** Unsigned JWT for {@code subject}; {@code issuedAt} makes JWTs of the same client differ. */
+    private static String jwt(String subject, int issuedAt) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String payload = "{\"sub\":\"" + subject + "\",\"iat\":" + issuedAt + "}";
+        return encoder.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + ".";
+    }
+
+    @Test
+    void followersReceiveLeaderFailure() throws Exception {
+        SingleFlight flight = new SingleFlight(new KnoxMetrics());
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        SingleFlight.IOCall<String> failing = () -> {
+            calls.incrementAndGet();
+            leaderStarted.countDown();
+            try { release.await(); } catch (InterruptedException e) { throw new AssertionError(e); }
+            throw new KnoxApiException(401, "{}", "check JWT");
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<String> leader = pool.submit(() -> flight.execute("k", failing));
+        leaderStarted.await();
+        Future<String> follower = pool.submit(() -> flight.execute("k", failing));
+        Thread.sleep(100);
+        release.countDown();
+        for (Future<String> f : List.of(leader, follower)) {
+            Exception e = assertThrows(Exception.class, () -> f.get(5, TimeUnit.SECONDS));
+            assertEquals(401, ((KnoxApiException) e.getCause()).getStatusCode());
+        }
+        pool.shutdown();
+        assertEquals(1, calls.get());
+        assertEquals("v", flight.execute("k", () -> "v"), "key is free again after a failure");
+    }
+}
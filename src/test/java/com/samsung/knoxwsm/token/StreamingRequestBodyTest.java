@@ -0,0 +1,110 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests for {@link DeviceListRequestBody} and {@link JsonFileRequestBody}. */
+public class StreamingRequestBodyTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void imeiFileBody_isReplayable_andWritesDeviceListWithFlags() throws Exception {
+        Path imeis = Files.writeString(dir.resolve("imeis.txt"), "# header\n356938035643809\n\n 490154203237518 \n");
+        DeviceListRequestBody body = DeviceListRequestBody.ofImeiFile(imeis, Map.of("autoAccept", true));
+        assertFalse(body.isOneShot());
+        for (int pass = 0; pass < 2; pass++) {
+            Buffer sink = new Buffer();
+            body.writeTo(sink);
+            JsonNode json = mapper.readTree(sink.readUtf8());
+            assertEquals(2, json.get("deviceList").size());
+            assertEquals("490154203237518", json.get("deviceList").get(1).get("deviceId").asText());
+            assertEquals("android", json.get("deviceList").get(0).get("platform").asText());
+            assertTrue(json.get("autoAccept").asBoolean());
+        }
+    }
+
+    @Test
+    void iteratorBody_isOneShot() throws Exception {
+        DeviceListRequestBody body = DeviceListRequestBody.of(List.of(UploadPlanner.deviceEntry("356938035643809")).iterator(), null);
+        assertTrue(body.isOneShot());
+        Buffer sink = new Buffer();
+        body.writeTo(sink);
+        assertEquals("{\"deviceList\":[{\"deviceId\":\"356938035643809\",\"platform\":\"android\"}]}", sink.readUtf8());
+    }
+
+    @Test
+    void transportRetriesReplayableBodies_only() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            KnoxTransport transport = KnoxTransport.builder()
+                    .retryPolicy(new RetryPolicy(2, 0, 0, 0, 1.0))
+                    .circuitBreaker(CircuitBreaker.Settings.disabled())
+                    .build();
+            KnoxGuardClient client = new KnoxGuardClient(server.url("/kg").toString(), transport);
+            Path imeis = Files.writeString(dir.resolve("imeis.txt"), "356938035643809\n");
+
+            server.enqueue(new MockResponse().setResponseCode(503));
+            server.enqueue(new MockResponse().setBody("{\"uploadId\":\"u1\"}"));
+            assertEquals("u1", client.submitUpload("at", DeviceListRequestBody.ofImeiFile(imeis, null)).uploadId());
+            server.takeRequest();
+            assertTrue(server.takeRequest().getBody().readUtf8().contains("356938035643809"), "retry must resend the full body");
+
+            server.enqueue(new MockResponse().setResponseCode(503));
+            DeviceListRequestBody oneShot = DeviceListRequestBody.of(List.of(UploadPlanner.deviceEntry("356938035643809")).iterator(), null);
+            KnoxApiException ex = assertThrows(KnoxApiException.class, () -> client.submitUpload("at", oneShot));
+            assertEquals(503, ex.getStatusCode());
+            assertEquals(3, server.getRequestCount());
+        }
+    }
+
+    @Test
+    void jsonFileBody_sendsFileVerbatim() throws Exception {
+        String payload = "{\"deviceList\":[{\"deviceId\":\"356938035643809\"}],\"autoLock\":false}";
+        Path file = Files.writeString(dir.resolve("payload.json"), payload);
+        JsonFileRequestBody body = new JsonFileRequestBody(file);
+        assertEquals(payload.length(), body.contentLength());
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setBody("{\"status\":\"accepted\"}"));
+            String base = server.url("/kcs/v1").toString().replaceAll("/+$$", "");
+            KnoxAuthClient client = new KnoxAuthClient(base, base);
+            assertEquals("accepted", client.uploadDevices("at", body).get("status"));
+            assertEquals(payload, server.takeRequest().getBody().readUtf8());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new JsonFileRequestBody(dir.resolve("missing.json")));
+    }
+}
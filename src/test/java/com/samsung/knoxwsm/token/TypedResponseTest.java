@@ -0,0 +1,94 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the typed (record) response methods of {@link KnoxAuthClient} and {@link KnoxGuardClient}. */
+public class TypedResponseTest {
+    private MockWebServer server;
+    private String base;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        base = server.url("/kcs/v1").toString().replaceAll("/+$$", "");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    void requestToken_bindsRecord_andRedactsToString() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"accessToken\":\"abc.def\",\"refreshToken\":\"r1\",\"expiresIn\":1800,\"extra\":true}"));
+        KnoxAuthClient client = new KnoxAuthClient(base, base);
+        AccessToken token = client.requestToken("pk", "jwt", 30);
+        assertEquals("abc.def", token.accessToken());
+        assertEquals("r1", token.refreshToken());
+        assertEquals(1800L, token.expiresIn());
+        assertFalse(token.toString().contains("abc.def"));
+    }
+
+    @Test
+    void getUploadDetail_acceptsAliasedFields() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"id\":\"u1\",\"status\":\"COMPLETED\",\"totalCount\":2,"
+                + "\"deviceList\":[{\"imei\":\"356938035643809\",\"status\":\"SUCCESS\"},"
+                + "{\"deviceId\":\"490154203237518\",\"status\":\"FAIL\",\"errorCode\":\"E1\",\"message\":\"dup\"}]}"));
+        KnoxAuthClient client = new KnoxAuthClient(base, base);
+        UploadDetail detail = client.getUploadDetail("at", "u1");
+        assertEquals("u1", detail.uploadId());
+        assertEquals(2, detail.deviceCount());
+        assertEquals(2, detail.devices().size());
+        assertEquals("356938035643809", detail.devices().get(0).deviceId());
+        assertEquals("dup", detail.devices().get(1).errorMessage());
+    }
+
+    @Test
+    void guardClient_listUploadPage_andSubmitUpload() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"totalCount\":1,\"uploadList\":[{\"uploadId\":\"u7\",\"status\":\"IN_PROGRESS\"}]}"));
+        server.enqueue(new MockResponse().setBody("{\"uploadID\":\"u8\",\"status\":\"accepted\"}"));
+        KnoxGuardClient client = new KnoxGuardClient(base);
+        UploadPage page = client.listUploadPage("at");
+        assertEquals(1, page.total());
+        assertEquals("u7", page.uploads().get(0).uploadId());
+        UploadSummary submitted = client.submitUpload("at", java.util.List.of(java.util.Map.of("deviceId", "356938035643809")), null);
+        assertEquals("u8", submitted.uploadId());
+    }
+
+    @Test
+    void emptyListing_yieldsEmptyList_andErrorsStillCarryBody() throws Exception {
+        server.enqueue(new MockResponse().setBody("{}"));
+        server.enqueue(new MockResponse().setResponseCode(404).setBody("{\"error\":\"no such upload\"}"));
+        KnoxAuthClient client = new KnoxAuthClient(base, base);
+        assertTrue(client.listUploadPage("at").uploads().isEmpty());
+        KnoxApiException ex = assertThrows(KnoxApiException.class, () -> client.getUploadDetail("at", "missing"));
+        assertTrue(ex.getErrorBody().contains("no such upload"));
+    }
+}
@@ -0,0 +1,121 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Tests for lazy paged upload listing ({@link UploadPager} via the clients' {@code streamUploads}). */
+public class UploadPagerTest {
+    private MockWebServer server;
+    private String base;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        base = server.url("/kcs/v1").toString().replaceAll("/+$$", "");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    /** Serves {@code total} uploads u1..uN honouring pageNum/pageSize. */
+    private void serveHistory(int total) {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                int page = Integer.parseInt(request.getRequestUrl().queryParameter("pageNum"));
+                int size = Integer.parseInt(request.getRequestUrl().queryParameter("pageSize"));
+                StringBuilder items = new StringBuilder();
+                for (int i = (page - 1) * size + 1; i <= Math.min(total, page * size); i++) {
+                    if (items.length() > 0) items.append(',');
+                    items.append("{\"uploadId\":\"u").append(i).append("\",\"status\":\"COMPLETED\",\"meta\":{\"x\":[1,2]}}");
+                }
+                return new MockResponse().setBody("{\"note\":{\"a\":1},\"uploads\":[" + items + "],\"totalCount\":" + total + "}");
+            }
+        });
+    }
+
+    @Test
+    void iteratesAllPages_andSendsFilters() throws Exception {
+        serveHistory(7);
+        KnoxAuthClient client = new KnoxAuthClient(base, base);
+        UploadQuery query = UploadQuery.builder().pageSize(3).status("COMPLETED")
+                .from(Instant.parse("2025-09-01T00:00:00Z")).to(Instant.parse("2025-09-30T00:00:00Z")).build();
+        List<String> ids;
+        try (Stream<UploadSummary> uploads = client.streamUploads("at", query)) {
+            ids = uploads.map(UploadSummary::uploadId).collect(Collectors.toList());
+        }
+        assertEquals(List.of("u1", "u2", "u3", "u4", "u5", "u6", "u7"), ids);
+        assertEquals(3, server.getRequestCount());
+        RecordedRequest first = server.takeRequest();
+        assertEquals("COMPLETED", first.getRequestUrl().queryParameter("status"));
+        assertEquals("2025-09-01T00:00:00Z", first.getRequestUrl().queryParameter("startDate"));
+        assertEquals("at", first.getHeader("x-knox-apitoken"));
+    }
+
+    @Test
+    void fetchesLazily_withOnePagePrefetch() throws Exception {
+        serveHistory(1_000);
+        KnoxGuardClient client = new KnoxGuardClient(base);
+        try (Stream<UploadSummary> uploads = client.streamUploads("at", UploadQuery.builder().pageSize(10).build())) {
+            assertEquals(5, uploads.limit(5).count());
+        }
+        Thread.sleep(100);
+        assertTrue(server.getRequestCount() <= 2, "only the current page and one prefetch, got " + server.getRequestCount());
+    }
+
+    @Test
+    void stopsWhenServerIgnoresPaging() throws Exception {
+        server.enqueue(new MockResponse().setBody("[{\"id\":\"a\"},{\"id\":\"b\"},{\"id\":\"c\"}]"));
+        KnoxAuthClient client = new KnoxAuthClient(base, base);
+        try (Stream<UploadSummary> uploads = client.streamUploads("at", UploadQuery.builder().pageSize(2).build())) {
+            assertEquals(3, uploads.count());
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void pageErrorSurfacesAsUncheckedKnoxApiException() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(403).setBody("{\"error\":\"forbidden\"}"));
+        KnoxAuthClient client = new KnoxAuthClient(base, base, KnoxTransport.builder().retryPolicy(RetryPolicy.none()).build());
+        try (Stream<UploadSummary> uploads = client.streamUploads("at", UploadQuery.all())) {
+            UncheckedIOException e = assertThrows(UncheckedIOException.class, uploads::count);
+            KnoxApiException api = assertInstanceOf(KnoxApiException.class, e.getCause());
+            assertEquals(403, api.getStatusCode());
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link UploadPlanner} batching, concurrent submission and per-batch retries. */
+public class UploadPlannerTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger uploads = new AtomicInteger();
+    private MockWebServer server;
+    private KnoxGuardClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        KnoxTransport transport = KnoxTransport.builder()
+                .retryPolicy(RetryPolicy.none())
+                .circuitBreaker(CircuitBreaker.Settings.disabled())
+                .build();
+        client = new KnoxGuardClient(server.url("/kg").toString(), transport);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private List<Map<String, Object>> devices(int n) {
+        return IntStream.range(0, n).mapToObj(i -> UploadPlanner.deviceEntry(String.valueOf(356938035600000L + i))).collect(Collectors.toList());
+    }
+
+    /** Accepts every upload, except that the first request containing {@code failImei} gets {@code failStatus}. */
+    private void serve(String failImei, int failStatus, boolean failAlways) {
+        AtomicInteger failures = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                try {
+                    JsonNode list = mapper.readTree(request.getBody().clone().readUtf8()).get("deviceList");
+                    boolean hit = failImei != null && list.toString().contains(failImei);
+                    if (hit && (failAlways || failures.getAndIncrement() == 0)) return new MockResponse().setResponseCode(failStatus);
+                    batchSizes.add(list.size());
+                    return new MockResponse().setBody("{\"uploadId\":\"up-" + list.get(0).get("deviceId").asText() + "\"}");
+                } catch (Exception e) {
+                    return new MockResponse().setResponseCode(400);
+                } finally {
+                    uploads.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    @Test
+    void splitsByDeviceCount_andCollectsUploadIdsInOrder() throws Exception {
+        serve(null, 0, false);
+        List<Integer> progress = Collections.synchronizedList(new ArrayList<>());
+        UploadPlanner planner = new UploadPlanner(client, 10, 1_000_000, 3, 1);
+        UploadPlanner.Summary summary = planner.run("at", devices(35).iterator(), Map.of("autoAccept", true),
+                (r, p) -> progress.add(p.getBatchesCompleted()));
+        assertEquals(4, summary.getBatches());
+        assertEquals(35, summary.getDevices());
+        assertEquals(List.of("up-356938035600000", "up-356938035600010", "up-356938035600020", "up-356938035600030"), summary.getUploadIds());
+        assertTrue(summary.getFailures().isEmpty());
+        assertEquals(List.of(5, 10, 10, 10), batchSizes.stream().sorted().collect(Collectors.toList()));
+        assertEquals(4, progress.size());
+        assertTrue(server.takeRequest().getBody().readUtf8().contains("\"autoAccept\":true"));
+    }
+
+    @Test
+    void splitsByBytes() throws Exception {
+        serve(null, 0, false);
+        int entryBytes = mapper.writeValueAsBytes(UploadPlanner.deviceEntry("356938035600000")).length + 1;
+        UploadPlanner planner = new UploadPlanner(client, 1000, 16 + 4L * entryBytes, 2, 1);
+        UploadPlanner.Summary summary = planner.run("at", devices(10).iterator(), null, null);
+        assertEquals(3, summary.getBatches());
+        assertEquals(List.of(2, 4, 4), batchSizes.stream().sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    void throttledBatchRetriedOnlyByTransport_clientErrorsNotRetried() throws Exception {
+        serve("356938035600004", 503, true);
+        UploadPlanner.Summary throttled = new UploadPlanner(client, 5, 1_000_000, 2, 3).run("at", devices(10).iterator(), null, null);
+        assertEquals(1, throttled.getFailures().size());
+        assertEquals(1, throttled.getFailures().get(0).getAttempts(), "503 is the transport's to retry");
+        assertEquals(2, uploads.get());
+
+        batchSizes.clear();
+        uploads.set(0);
+        serve("356938035600004", 503, false);
+        KnoxGuardClient retrying = new KnoxGuardClient(server.url("/kg").toString(), KnoxTransport.builder()
+                .retryPolicy(new RetryPolicy(3, 0, 0, 60_000, 1.0)).circuitBreaker(CircuitBreaker.Settings.disabled()).build());
+        UploadPlanner.Summary retried = new UploadPlanner(retrying, 5, 1_000_000, 2, 3).run("at", devices(10).iterator(), null, null);
+        assertTrue(retried.getFailures().isEmpty());
+        assertEquals(2, retried.getUploadIds().size());
+        assertEquals(3, uploads.get());
+
+        batchSizes.clear();
+        uploads.set(0);
+        serve("356938035600004", 400, true);
+        UploadPlanner.Summary failed = new UploadPlanner(client, 5, 1_000_000, 2, 3).run("at", devices(10).iterator(), null, null);
+        assertEquals(1, failed.getFailures().size());
+        UploadPlanner.BatchResult bad = failed.getFailures().get(0);
+        assertEquals(0, bad.getIndex());
+        assertEquals(1, bad.getAttempts());
+        assertEquals(400, ((KnoxApiException) bad.getError()).getStatusCode());
+        assertEquals(List.of("up-356938035600005"), failed.getUploadIds());
+        assertEquals(2, uploads.get());
+    }
+
+    @Test
+    void refusedConnectionResubmitted_upToMaxAttempts() throws Exception {
+        MockWebServer gone = new MockWebServer();
+        gone.start();
+        String url = gone.url("/kg").toString();
+        gone.shutdown();
+        KnoxGuardClient unreachable = new KnoxGuardClient(url, KnoxTransport.builder()
+                .retryPolicy(RetryPolicy.none()).circuitBreaker(CircuitBreaker.Settings.disabled()).build());
+        UploadPlanner.Summary summary = new UploadPlanner(unreachable, 5, 1_000_000, 1, 3).run("at", devices(5).iterator(), null, null);
+        assertEquals(1, summary.getFailures().size());
+        assertEquals(3, summary.getFailures().get(0).getAttempts());
+        assertInstanceOf(ConnectException.class, summary.getFailures().get(0).getError());
+    }
+
+    @Test
+    void errorInSubmit_failsBatchWithoutHangingRun() throws Exception {
+        serve(null, 0, false);
+        KnoxGuardClient broken = new KnoxGuardClient(server.url("/kg").toString(), client.getTransport()) {
+            @Override
+            public UploadSummary submitUpload(String accessToken, List<Map<String, Object>> devices, Map<String, Object> policyFlags) {
+                if (devices.get(0).get("deviceId").equals("356938035600000")) throw new AssertionError("client bug");
+                return new UploadSummary("up-ok", null, devices.size(), null, null, null);
+            }
+        };
+        UploadPlanner.Summary summary = assertTimeoutPreemptively(Duration.ofSeconds(20),
+                () -> new UploadPlanner(broken, 5, 1_000_000, 1, 3).run("at", devices(15).iterator(), null, null));
+        assertEquals(3, summary.getBatches());
+        assertEquals(1, summary.getFailures().size());
+        assertEquals(0, summary.getFailures().get(0).getIndex());
+        assertInstanceOf(AssertionError.class, summary.getFailures().get(0).getError().getCause());
+    }
+
+    @Test
+    void ambiguousFailuresAreNotResubmitted() throws Exception {
+        for (int status : new int[] {500, 502, 504}) {
+            uploads.set(0);
+            serve("356938035600004", status, false);
+            UploadPlanner.Summary summary = new UploadPlanner(client, 5, 1_000_000, 2, 3).run("at", devices(10).iterator(), null, null);
+            assertEquals(1, summary.getFailures().size(), "status " + status);
+            assertEquals(1, summary.getFailures().get(0).getAttempts(), "status " + status + " may have created the upload");
+            assertEquals(2, uploads.get());
+        }
+    }
+}
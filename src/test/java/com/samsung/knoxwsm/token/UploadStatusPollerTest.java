@@ -0,0 +1,120 @@
+package com.samsung.knoxwsm.token;
+
+/*-
+ * #%L
+ * Knox Guard Token Utility
+ * %%
+ * Copyright (C) 2025 Samsung
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link UploadStatusPoller} completion, deadlines and error handling across many uploads. */
+public class UploadStatusPollerTest {
+    private final Map<String, AtomicInteger> polls = new ConcurrentHashMap<>();
+    private MockWebServer server;
+    private UploadStatusPoller poller;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new MockWebServer();
+        // "u<n>" reports PROCESSING for its first n polls, "flaky" fails once, "never" stays PENDING, "missing" is unknown
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String id = request.getPath().substring(request.getPath().lastIndexOf('/') + 1);
+                int n = polls.computeIfAbsent(id, k -> new AtomicInteger()).incrementAndGet();
+                if (id.equals("missing")) return new MockResponse().setResponseCode(404).setBody("{\"message\":\"not found\"}");
+                if (id.equals("flaky") && n == 1) return new MockResponse().setResponseCode(503);
+                boolean done = id.equals("flaky") || (id.startsWith("u") && n > Integer.parseInt(id.substring(1)));
+                String status = done ? "COMPLETED" : id.equals("never") ? "PENDING" : "PROCESSING";
+                return new MockResponse().setHeader("Content-Type", "application/json")
+                        .setBody("{\"uploadId\":\"" + id + "\",\"status\":\"" + status + "\",\"deviceCount\":2}");
+            }
+        });
+        server.start();
+        KnoxTransport transport = KnoxTransport.builder()
+                .retryPolicy(RetryPolicy.none())
+                .circuitBreaker(CircuitBreaker.Settings.disabled())
+                .build();
+        KnoxGuardClient client = new KnoxGuardClient(server.url("/kg").toString(), transport);
+        poller = new UploadStatusPoller(client, () -> "at", 5, 20, 2.0, 4);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        poller.close();
+        server.shutdown();
+    }
+
+    @Test
+    void tracksManyUploadsUntilTerminal() throws Exception {
+        List<CompletableFuture<UploadDetail>> futures = IntStream.range(0, 50)
+                .mapToObj(i -> poller.track("u" + (i % 4), Duration.ofSeconds(10)))
+                .collect(Collectors.toList());
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        for (CompletableFuture<UploadDetail> f : futures) {
+            assertTrue(f.join().isTerminal());
+            assertEquals("COMPLETED", f.join().status());
+        }
+        assertEquals(4, polls.get("u3").get(), "duplicate track() calls share one poll loop");
+        assertEquals(0, poller.getTrackedCount());
+    }
+
+    @Test
+    void deadlineCompletesWithTimeout() {
+        CompletableFuture<UploadDetail> f = poller.track("never", Duration.ofMillis(150));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> f.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertTrue(e.getCause().getMessage().contains("PENDING"));
+        assertTrue(polls.get("never").get() > 2, "keeps polling until the deadline");
+    }
+
+    @Test
+    void transientErrorsRetried_clientErrorsFail() throws Exception {
+        assertEquals("COMPLETED", poller.track("flaky", Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS).status());
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> poller.track("missing", Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS));
+        assertEquals(404, ((KnoxApiException) e.getCause()).getStatusCode());
+        assertEquals(1, polls.get("missing").get());
+    }
+
+    @Test
+    void terminalStatusRule() {
+        assertFalse(UploadSummary.isTerminalStatus(null));
+        assertFalse(UploadSummary.isTerminalStatus("In_Progress"));
+        assertTrue(UploadSummary.isTerminalStatus("FAILED"));
+    }
+}